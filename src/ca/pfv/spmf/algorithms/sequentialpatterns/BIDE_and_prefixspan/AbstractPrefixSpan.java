@@ -0,0 +1,893 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceView;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+
+/***
+ * This is the pattern-growth search shared by the algorithms based on PrefixSpan
+ * (Pei et al. 2001): the scan of the database for the frequent items, the pseudo-projections,
+ * the counting of the frequent items of a projected database, and the output of the patterns
+ * (to a file in the text or the binary format, to memory or to a PatternSink).
+ *
+ * A subclass grows the patterns in depthFirstSearch(), which is called with the empty
+ * prefix and the initial projected database once the output is ready. It decides which
+ * patterns are saved (all the frequent patterns for AlgoPrefixSpan, the closed ones for
+ * AlgoBIDEPlus...) and how the search is pruned. The options of a search that are only
+ * supported by PrefixSpan, such as the parallel mode and the checkpoints, are in AlgoPrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ * @see AlgoBIDEPlus
+ */
+
+public abstract class AbstractPrefixSpan implements SequentialPatternMiner{
+		
+	// for statistics
+	long startTime;
+	long endTime;
+	
+	// the number of pattern found
+	int patternCount;
+	
+	// absolute minimum support
+	int minsuppAbsolute;
+
+	// the sink receiving the patterns (a file, the memory or a sink provided by the user)
+	NodePatternSink sink = null;
+	
+	// The sequential patterns that are found 
+	// (if the user want to keep them into memory)
+	SequentialPatterns patterns = null;
+	
+	// maximum pattern length in terms of item count
+	private int maximumPatternLength = Integer.MAX_VALUE;
+	
+	/** if true, sequence identifiers of each pattern will be shown*/
+	boolean showSequenceIdentifiers = false;
+	
+	/** if true, the patterns only keep their support instead of the 
+	 * sequence identifiers (if they are not shown) */
+	private boolean countOnly = false;
+	
+	/** if the items of the database were recoded, the recoding used to output 
+	 * the patterns with the original items (null otherwise) */
+	private ItemRecoding itemRecoding = null;
+	
+	/** the projected databases reused at each depth of the sequential search */
+	ProjectedDatabaseArena arena = null;
+	
+	/** the path of the output file (null if the patterns are kept into memory) */
+	String outputFilePath = null;
+	
+	/** the number of buffers of the output file that can wait to be written by a writer thread
+	 * (0 = the patterns are written by the threads that find them) */
+	private int outputQueueSize = 0;
+	
+	/** the number of threads compressing the output file with gzip (0 = not compressed) */
+	private int compressionThreads = 0;
+	
+	/** if true, the output file is written in the binary format (see BinaryPatternSink) */
+	private boolean binaryOutput = false;
+	
+	/** the arrays used to count the support of items (one instance per thread) */
+	private final ThreadLocal<SupportCounter> supportCounters = new ThreadLocal<SupportCounter>(){
+		@Override
+		protected SupportCounter initialValue() {
+			return new SupportCounter();
+		}
+	};
+	
+	
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceDatabase database, double minsupRelative, String outputFilePath) throws IOException {
+		// convert to a absolute minimum support
+		this.minsuppAbsolute = (int) Math.ceil(minsupRelative * database.size());
+		if(this.minsuppAbsolute == 0){ // protection
+			this.minsuppAbsolute = 1;
+		}
+		// record start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(outputFilePath);
+		prefixSpan(database);
+		
+		// record end time
+		endTime = System.currentTimeMillis();
+		// close the output file if the result was saved to a file
+		sink.close();
+		return patterns;
+	}
+	
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param minsupPercent  :  the minimum support as an integer
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null 
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceDatabase database, String outputFilePath, int minsup) throws IOException {
+		// initialize variables for statistics
+		patternCount =0;
+		MemoryLogger.getInstance().reset();
+		// save the minsup chosen  by the user
+		this.minsuppAbsolute = minsup;
+		// save the start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(outputFilePath);
+		prefixSpan(database);
+		
+		// save the end time
+		endTime = System.currentTimeMillis();
+		// close the output file if the result was saved to a file
+		sink.close();
+		return patterns;
+	}
+	
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceStore database, double minsupRelative, String outputFilePath) throws IOException {
+		// convert to a absolute minimum support (the empty sequences removed while loading are counted)
+		this.minsuppAbsolute = (int) Math.ceil(minsupRelative * database.getSizeBeforePruning());
+		if(this.minsuppAbsolute == 0){ // protection
+			this.minsuppAbsolute = 1;
+		}
+		// record start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(outputFilePath);
+		prefixSpan(database);
+		
+		// record end time
+		endTime = System.currentTimeMillis();
+		// close the output file if the result was saved to a file
+		sink.close();
+		return patterns;
+	}
+	
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsup  :  the minimum support as an integer
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null 
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceStore database, String outputFilePath, int minsup) throws IOException {
+		// initialize variables for statistics
+		patternCount =0;
+		MemoryLogger.getInstance().reset();
+		// save the minsup chosen  by the user
+		this.minsuppAbsolute = minsup;
+		// save the start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(outputFilePath);
+		prefixSpan(database);
+		
+		// save the end time
+		endTime = System.currentTimeMillis();
+		// close the output file if the result was saved to a file
+		sink.close();
+		return patterns;
+	}
+	
+	/**
+	 * Run the algorithm and give each pattern found to a sink, as soon as it is found.
+	 * The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence database
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	public void runAlgorithm(SequenceDatabase database, int minsup, PatternSink sink) throws IOException {
+		// initialize variables for statistics
+		patternCount =0;
+		MemoryLogger.getInstance().reset();
+		// save the minsup chosen  by the user
+		this.minsuppAbsolute = minsup;
+		// save the start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(sink);
+		prefixSpan(database);
+		
+		// save the end time
+		endTime = System.currentTimeMillis();
+		this.sink.close();
+	}
+	
+	/**
+	 * Run the algorithm on a sequence store and give each pattern found to 
+	 * a sink, as soon as it is found. The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	public void runAlgorithm(SequenceStore database, int minsup, PatternSink sink) throws IOException {
+		// initialize variables for statistics
+		patternCount =0;
+		MemoryLogger.getInstance().reset();
+		// save the minsup chosen  by the user
+		this.minsuppAbsolute = minsup;
+		// save the start time
+		startTime = System.currentTimeMillis();
+		
+		// run the algorithm
+		openOutput(sink);
+		prefixSpan(database);
+		
+		// save the end time
+		endTime = System.currentTimeMillis();
+		this.sink.close();
+	}
+	
+	/**
+	 * This is the main method for the PrefixSpan algorithm that is called
+	 * to start the algorithm (after the output is prepared)
+	 * @param database a sequence database
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	void prefixSpan(SequenceDatabase database) throws IOException{
+		// We have to scan the database to find all frequent sequential patterns of size 1.
+		// We note the sequences in which the items appear.
+		Map<Integer, SidSet> mapSequenceID = findSequencesContainingItems(database);
+		
+		// WE CONVERT THE DATABASE INTO A COMPACT DATABASE, AND REMOVE
+		// THE ITEMS OF SIZE 1 THAT ARE NOT FREQUENT, SO THAT THE ALGORITHM 
+		// WILL NOT CONSIDER THEM ANYMORE. 
+		CompactSequenceDatabase initialDatabase = new CompactSequenceDatabase();
+		// for each sequence in  the database
+		for(Sequence sequence : database.getSequences()){
+			// copy the sequence without the infrequent items
+			initialDatabase.addSequenceMinusItems(sequence, mapSequenceID, minsuppAbsolute);
+		}
+		initialDatabase.trimToSize();
+		
+		startOutput(getFrequentItems(mapSequenceID), database.size());
+		mineFrequentItems(initialDatabase);
+	}
+	
+	/**
+	 * This is the main method for the PrefixSpan algorithm that is called
+	 * to start the algorithm on a sequence store (after the output is prepared)
+	 * @param database a sequence store
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	void prefixSpan(SequenceStore database) throws IOException{
+		if(database.getPruningMinsup() > minsuppAbsolute){
+			throw new IllegalArgumentException("The database was loaded without the items having a support lower than "
+					+ database.getPruningMinsup() + ", so it cannot be mined with a minimum support of " + minsuppAbsolute);
+		}
+		int[] frequentItems = database.getFrequentItems(minsuppAbsolute);
+		if(frequentItems != null){
+			// the supports of the items are known (the infrequent items were removed while loading
+			// the database, or it is a snapshot): it is mined directly, without scanning it and copying it.
+			// The infrequent items that are left are never frequent in a projected database, so they are not extended
+			for(int i = 0; itemRecoding != null && i < frequentItems.length; i++){
+				frequentItems[i] = itemRecoding.getOriginalItem(frequentItems[i]);
+			}
+			startOutput(frequentItems, database.getSizeBeforePruning());
+			mineFrequentItems(database);
+			return;
+		}
+		
+		// We have to scan the database to find all frequent sequential patterns of size 1.
+		// We note the sequences in which the items appear.
+		Map<Integer, SidSet> mapSequenceID = findSequencesContainingItems(database);
+		
+		// copy the database without the infrequent items
+		SequenceStore initialDatabase = database.cloneDatabaseMinusItems(mapSequenceID, minsuppAbsolute);
+		
+		startOutput(getFrequentItems(mapSequenceID), database.getSizeBeforePruning());
+		mineFrequentItems(initialDatabase);
+	}
+	
+	/**
+	 * Get the frequent items, with their original value if the items were recoded.
+	 * @param mapSequenceID a map with key = item, value = the IDs of sequences containing the item
+	 * @return the frequent items
+	 */
+	private int[] getFrequentItems(Map<Integer, SidSet> mapSequenceID) {
+		int[] frequentItems = new int[mapSequenceID.size()];
+		int count = 0;
+		for(Map.Entry<Integer, SidSet> entry : mapSequenceID.entrySet()){
+			if(entry.getValue().size() >= minsuppAbsolute){
+				int item = entry.getKey();
+				frequentItems[count++] = itemRecoding == null ? item : itemRecoding.getOriginalItem(item);
+			}
+		}
+		return Arrays.copyOf(frequentItems, count);
+	}
+	
+	/**
+	 * Give the frequent items and the parameters of the search to the sink, before the first pattern.
+	 * @param frequentItems the frequent items
+	 * @param sequenceCount the number of sequences of the database
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	void startOutput(int[] frequentItems, int sequenceCount) throws IOException {
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		parameters.put("algorithm", getAlgorithmName());
+		parameters.put("minsup", Integer.toString(minsuppAbsolute));
+		parameters.put("sequenceCount", Integer.toString(sequenceCount));
+		if(maximumPatternLength != Integer.MAX_VALUE){
+			parameters.put("maximumPatternLength", Integer.toString(maximumPatternLength));
+		}
+		putParameters(parameters);
+		sink.start(frequentItems, parameters);
+	}
+	
+	/**
+	 * Get the name of the algorithm, which is given to the sink with the parameters of the search.
+	 * @return the name
+	 */
+	abstract String getAlgorithmName();
+	
+	/**
+	 * Add the parameters that are specific to a variant of the algorithm to the parameters 
+	 * given to the sink (nothing by default).
+	 * @param parameters the parameters
+	 */
+	void putParameters(Map<String, String> parameters) {
+		// no other parameter
+	}
+	
+	/**
+	 * Prepare the output of the algorithm
+	 * @param outputFilePath  an output file path if the result should be saved to a file
+	 *                        or null if the result should be saved to memory.
+	 * @throws IOException exception if an error while opening the output file
+	 */
+	void openOutput(String outputFilePath) throws IOException {
+		this.outputFilePath = outputFilePath;
+		// if the user want to keep the result into memory
+		if(outputFilePath == null){
+			MemoryPatternSink memorySink = new MemoryPatternSink("FREQUENT SEQUENTIAL PATTERNS");
+			patterns = memorySink.getPatterns();
+			sink = memorySink;
+		}else{ // if the user want to save the result to a file
+			patterns = null;
+			sink = createFileSink(outputFilePath, false); 
+		}
+	}
+	
+	/**
+	 * Create the sink writing the patterns to the output file, with the output options
+	 * (the asynchronous output and the compression only apply to the text format).
+	 * @param outputFilePath the path of the output file
+	 * @param append if true, the patterns are appended to the file
+	 * @return the sink
+	 * @throws IOException exception if an error while opening the file
+	 */
+	NodePatternSink createFileSink(String outputFilePath, boolean append) throws IOException {
+		if(binaryOutput){
+			return new BinaryPatternSink(outputFilePath, showSequenceIdentifiers, append);
+		}
+		FilePatternSink fileSink = new FilePatternSink(outputFilePath, showSequenceIdentifiers, append);
+		fileSink.setAsynchronousOutput(outputQueueSize);
+		fileSink.setCompressedOutput(compressionThreads);
+		return fileSink;
+	}
+	
+	/**
+	 * Prepare the output of the algorithm to a sink provided by the user.
+	 * @param patternSink the sink
+	 */
+	void openOutput(PatternSink patternSink) {
+		outputFilePath = null;
+		patterns = patternSink instanceof MemoryPatternSink ? ((MemoryPatternSink) patternSink).getPatterns() : null;
+		sink = NodePatternSink.of(patternSink);
+	}
+	
+	/**
+	 * Find the sequential patterns starting with each frequent item.
+	 * @param database the database without infrequent items
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	void mineFrequentItems(SequenceStore database) throws IOException{
+		// Create the initial projected database (one pseudo-sequence per sequence of the database)
+		ProjectedDatabase initialDatabase = ProjectedDatabase.createInitialDatabase(database);
+		
+		// the projected databases are reused for all the prefixes of a same length
+		arena = new ProjectedDatabaseArena();
+		// the search starts from the empty prefix: its extensions are the frequent items
+		depthFirstSearch(null, initialDatabase, 1);
+		arena = null;
+	}
+	
+	/**
+	 * Method to grow a given sequential pattern with a depth-first search, and save the
+	 * patterns that are found.
+	 * @param prefix  the current sequential pattern that we want to try to grow (null for the empty pattern)
+	 * @param database the current projected sequence database
+	 * @param k  the prefix length in terms of items
+	 * @throws IOException exception if there is an error writing to the output file
+	 */
+	abstract void depthFirstSearch(PatternNode prefix, ProjectedDatabase database, int k) throws IOException;
+	
+	/**
+	 * This method saves a sequential pattern to the output file or
+	 * in memory, depending on if the user provided an output file path or not
+	 * when he launched the algorithm, or gives it to the sink provided by the user
+	 * @param prefix the pattern to be saved.
+	 * @throws IOException exception if error while writing the output file.
+	 */
+	void savePattern(PatternNode prefix) throws IOException {
+		// increase the number of pattern found for statistics purposes
+		patternCount++; 
+	
+		// give the pattern to the sink (a file, the memory or the sink of the user)
+		sink.savePattern(prefix, itemRecoding);
+	}
+	
+	/**
+	 * For each item, calculate the sequence id of sequences containing that item
+	 * @param database the current sequence database
+	 * @return Map of items to sequence IDs that contains each item
+	 */
+	private Map<Integer, SidSet> findSequencesContainingItems(SequenceDatabase database) {
+		// We use a map to store the sequence IDs where an item appear
+		// Key : item   Value :  a set of sequence IDs
+		Map<Integer, SidSet> mapSequenceID = new HashMap<Integer, SidSet>(); 
+		// for each sequence in the current database
+		for(Sequence sequence : database.getSequences()){
+			// for each itemset in this sequence
+			for(List<Integer> itemset : sequence.getItemsets()){
+				// for each item
+				for(Integer item : itemset){
+					// get the set of sequence IDs for this item until now
+					SidSet sequenceIDs = mapSequenceID.get(item);
+					if(sequenceIDs == null){
+						// if the set does not exist, create one
+						sequenceIDs = new SidSet();
+						mapSequenceID.put(item, sequenceIDs);
+					}
+					// add the sequence ID of the current sequence to the 
+					// set of sequences IDs of this item
+					sequenceIDs.add(sequence.getId());
+				}
+			}
+		}
+		return mapSequenceID;
+	}
+	
+	/**
+	 * For each item, calculate the sequence id of sequences containing that item
+	 * @param database the current sequence store
+	 * @return Map of items to sequence IDs that contains each item
+	 */
+	private Map<Integer, SidSet> findSequencesContainingItems(SequenceStore database) {
+		// Key : item   Value :  a set of sequence IDs
+		Map<Integer, SidSet> mapSequenceID = new HashMap<Integer, SidSet>(); 
+		SequenceView view = new SequenceView();
+		// for each sequence in the current database
+		for(int s = 0; s < database.size(); s++){
+			int sid = database.getSequenceId(s);
+			database.readSequence(s, view);
+			// for each item of each itemset in this sequence
+			for(int i = 0; i < view.getItemsetCount(); i++){
+				for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+					SidSet sequenceIDs = mapSequenceID.get(view.getItem(p));
+					if(sequenceIDs == null){
+						sequenceIDs = new SidSet();
+						mapSequenceID.put(view.getItem(p), sequenceIDs);
+					}
+					sequenceIDs.add(sid);
+				}
+			}
+		}
+		return mapSequenceID;
+	}
+	
+	/**
+	 * Create a projected database by pseudo-projection. Only the groups of pseudo-sequences 
+	 * where the item of the pair was found are scanned.
+	 * <br/><br/>
+	 * If the item is not in a postfix, the new pseudo-sequences are found by scanning the first
+	 * pseudo-sequence of each group, since it contains the itemsets of the other ones
+	 * (except the itemsets that are cut). If the item is in a postfix, only the first 
+	 * itemset of each pseudo-sequence that is cut is scanned.
+	 * A pseudo-sequence is added only once, even if several pseudo-sequences of 
+	 * the database lead to it.
+	 * @param pair the item to use to make the pseudo-projection, with the groups where it appears
+	 * @param database The current sequence database.
+	 * @param result the projected database to be filled (it is cleared first)
+	 * @return the projected database.
+	 */
+	ProjectedDatabase buildProjectedDatabase(Pair pair, ProjectedDatabase database, ProjectedDatabase result) {
+		SequenceStore sequences = database.getDatabase();
+		result.clear(sequences);
+		SequenceView view = result.getSequenceView();
+		int item = pair.getItem();
+		
+		// for each group of pseudo-sequences containing the item
+		for(int g = 0; g < pair.getGroupCount(); g++){
+			int group = pair.getGroup(g);
+			int sequence = database.getSequence(group);
+			int end = database.getGroupEnd(group);
+			
+			if(pair.isPostfix()){
+				// only the first itemsets of the pseudo-sequences are read
+				// (the last pseudo-sequence of the group has the last one)
+				sequences.readItemsets(sequence, database.getItemset(group), database.getItemset(end - 1) + 1, view);
+				int lastItemset = view.getItemsetCount();
+				// for each pseudo-sequence of the group that is cut at left
+				for(int i = group; i < end; i++){
+					if(!database.isPostfix(i)){
+						continue;
+					}
+					// scan the first itemset of the pseudo-sequence
+					int itemset = database.getItemset(i);
+					int start = view.getFirstItem(itemset);
+					int last = view.getLastItem(itemset);
+					for(int p = start + database.getItem(i); p < last; p++){
+						if(view.getItem(p) == item){
+							addPseudoSequence(result, sequence, itemset, p - start, last - start, lastItemset);
+						}
+					}
+				}
+			}else{
+				// scan the itemsets of the first pseudo-sequence of the group that are not cut
+				int itemset = database.getItemset(group);
+				if(database.isPostfix(group)){
+					itemset++;
+				}
+				sequences.readItemsets(sequence, itemset, Integer.MAX_VALUE, view);
+				int lastItemset = view.getItemsetCount();
+				for(; itemset < lastItemset; itemset++){
+					int start = view.getFirstItem(itemset);
+					int last = view.getLastItem(itemset);
+					for(int p = start; p < last; p++){
+						if(view.getItem(p) == item){
+							addPseudoSequence(result, sequence, itemset, p - start, last - start, lastItemset);
+						}
+					}
+				}
+			}
+		}
+		return result; // return the projected database
+	}
+	
+	/**
+	 * Add the pseudo-sequence following an occurrence of an item to a projected database,
+	 * if it is not empty and was not just added.
+	 * @param result the projected database
+	 * @param sequence the index of the original sequence
+	 * @param itemset the position of the itemset containing the item in the sequence
+	 * @param index the position of the item in the itemset
+	 * @param itemsetSize the size of the itemset
+	 * @param sequenceSize the number of itemsets of the sequence
+	 */
+	private void addPseudoSequence(ProjectedDatabase result, int sequence, int itemset, int index,
+			int itemsetSize, int sequenceSize) {
+		// if the item is the last item of this itemset
+		if(index == itemsetSize - 1){
+			// the pseudo-sequence starts at the next itemset, if it is not the last itemset
+			itemset++;
+			index = 0;
+			if(itemset == sequenceSize){
+				return;
+			}
+		}else{
+			index++;
+		}
+		if(!result.isLast(sequence, itemset, index)){
+			result.add(sequence, itemset, index);
+		}
+	}
+	
+	/**
+	 * Create a frame of the depth-first search, by finding the frequent items
+	 * of the projected database of a prefix.
+	 * @param prefix the prefix (null for the empty pattern)
+	 * @param database the projected database of the prefix
+	 * @param k the length of the extensions of the prefix in terms of items
+	 * @return the frame
+	 */
+	SearchFrame createFrame(PatternNode prefix, ProjectedDatabase database, int k) {
+		// find frequent items of size 1 in the current projected database.
+		// (a pair is an item with a boolean indicating if it appears in an itemset
+		// that is cut (a postfix) or not, and the sequence IDs where it appears)
+		List<Pair> frequentPairs = new ArrayList<Pair>();
+		for(Pair pair : findAllFrequentPairs(database, minsuppAbsolute)){
+			if(pair.getCount() >= minsuppAbsolute){
+				frequentPairs.add(pair);
+			}
+		}
+		return new SearchFrame(prefix, database, k, frequentPairs);
+	}
+	
+	/**
+	 * Method to find the frequent items in a projected sequence database.
+	 * The support is counted with arrays indexed by item if the items are not too
+	 * large, and with a map of pairs otherwise.
+	 * @param database  the projected database
+	 * @param minsup the absolute minimum support
+	 * @return the pairs having a support no less than minsup, where a pair is an item with
+	 *    (1) a boolean indicating if it is in an itemset that is "cut" and (2) the sequence IDs where it occurs.
+	 */
+	Collection<Pair> findAllFrequentPairs(ProjectedDatabase database, int minsup){
+		List<Pair> pairs = supportCounters.get().findFrequentPairs(database, minsup, keepSequenceIDs());
+		if(pairs == null){
+			// some items cannot be counted with arrays
+			return findAllFrequentPairs(database);
+		}
+		MemoryLogger.getInstance().checkMemory();  // check the memory for statistics.
+		return pairs;
+	}
+	
+	/**
+	 * Method to find all frequent items in a projected sequence database
+	 * @param database  the projected database
+	 * @return A list of pairs, where a pair is an item with (1) a boolean indicating if it
+	 *         is in an itemset that is "cut" and (2) the sequence IDs where it occurs.
+	 */
+	protected Set<Pair> findAllFrequentPairs(ProjectedDatabase database){
+		SequenceStore sequences = database.getDatabase();
+		boolean keepSequenceIDs = keepSequenceIDs();
+		// We use a Map the store the pairs.
+		Map<Pair, Pair> mapPairs = new HashMap<Pair, Pair>();
+		SequenceView view = new SequenceView();
+		// for each group of pseudo-sequences
+		for(int group = 0; group < database.size(); ){
+			int end = database.getGroupEnd(group);
+			int sid = sequences.getSequenceId(database.getSequence(group));
+			sequences.readItemsets(database.getSequence(group), database.getItemset(group), Integer.MAX_VALUE, view);
+			// for each pseudo-sequence (the itemsets of the first one contains the itemsets 
+			// of the other ones that are not cut)
+			for(int i = group; i < end; i++){
+				if(i != group && !database.isPostfix(i)){
+					continue;
+				}
+				int itemset = database.getItemset(i);
+				int lastItemset = i == group ? view.getItemsetCount() : itemset + 1;
+				boolean postfix = database.isPostfix(i);
+				// for each itemset
+				for(int position = view.getFirstItem(itemset) + database.getItem(i); itemset < lastItemset; itemset++){
+					// for each item
+					for(; position < view.getLastItem(itemset); position++){
+						// create the pair corresponding to this item
+						Pair pair = new Pair(postfix, view.getItem(position), 0, keepSequenceIDs);   
+						// get the pair object store in the map if there is one already
+						Pair oldPair = mapPairs.get(pair);
+						// if there is no pair object yet
+						if(oldPair == null){
+							// store the pair object that we created
+							mapPairs.put(pair, pair);
+						}else{
+							// otherwise use the old one
+							pair = oldPair;
+						}
+						// record the current sequence id and group for that pair
+						pair.addSequence(sid, group);
+					}
+					postfix = false;
+				}
+			}
+			group = end;
+		}
+		MemoryLogger.getInstance().checkMemory();  // check the memory for statistics.
+		// return the map of pairs
+		return mapPairs.keySet();
+	}
+	
+	/**
+	 * Check if the sequence identifiers of the patterns must be kept. They are not kept
+	 * in count-only mode, unless they are shown in the output.
+	 * @return true if they are kept
+	 */
+	private boolean keepSequenceIDs() {
+		return !countOnly || showSequenceIdentifiers;
+	}
+	
+	/**
+	 * Set the support of a new pattern from the pair of its last item: its 
+	 * sequence identifiers, or only its support in count-only mode.
+	 * @param pattern the pattern
+	 * @param pair the pair
+	 */
+	void setSupport(PatternNode pattern, Pair pair) {
+		if(pair.getSequenceIDs() != null){
+			pattern.setSequenceIDs(pair.getSequenceIDs());
+		}else{
+			pattern.setAbsoluteSupport(pair.getCount());
+		}
+	}
+	
+	/**
+	 * Print statistics about the algorithm execution to System.out.
+	 * @param size  the size of the database
+	 */
+	public void printStatistics(int size) {
+		StringBuilder r = new StringBuilder(200);
+		r.append("=============  " + getAlgorithmName().toUpperCase() + " - STATISTICS =============\n Total time ~ ");
+		r.append(endTime - startTime);
+		r.append(" ms\n");
+		r.append(" Frequent sequences count : " + patternCount);
+		r.append('\n');
+		r.append(" Max memory (mb) : " );
+		r.append(MemoryLogger.getInstance().getMaxMemory());
+		r.append(patternCount);
+		r.append('\n');
+		r.append("===================================================\n");
+		// if the result was save into memory, print it
+		if(patterns !=null){
+			patterns.printFrequentPatterns(size, showSequenceIdentifiers);
+		}
+		System.out.println(r.toString());
+	}
+	
+	/**
+	 * Get the maximum length of patterns to be found (in terms of item count)
+	 * @return the maximumPatternLength
+	 */
+	public int getMaximumPatternLength() {
+		return maximumPatternLength;
+	}
+	
+	/**
+	 * Set the maximum length of patterns to be found (in terms of item count)
+	 * @param maximumPatternLength the maximumPatternLength to set
+	 */
+	public void setMaximumPatternLength(int maximumPatternLength) {
+		this.maximumPatternLength = maximumPatternLength;
+	}
+	
+	/**
+	 * Set that the sequence identifiers should be shown (true) or not (false) for each
+	 * pattern found
+	 * @param showSequenceIdentifiers true or false
+	 */
+	public void setShowSequenceIdentifiers(boolean showSequenceIdentifiers) {
+		this.showSequenceIdentifiers = showSequenceIdentifiers;
+	}
+	
+	/**
+	 * Set the count-only mode. In this mode, the patterns only keep their support
+	 * instead of the set of sequence identifiers (getSequenceIDs() returns null), which
+	 * reduces the memory used by the patterns kept into memory. This has no effect
+	 * if the sequence identifiers are shown (see setShowSequenceIdentifiers()).
+	 * @param countOnly true to use the count-only mode
+	 */
+	public void setCountOnly(boolean countOnly) {
+		this.countOnly = countOnly;
+	}
+	
+	/**
+	 * Set the recoding of the items of the database (see SequenceDatabase.recodeItems()),
+	 * so that the patterns are output with the original items.
+	 * @param itemRecoding the recoding, or null if the items were not recoded
+	 */
+	public void setItemRecoding(ItemRecoding itemRecoding) {
+		this.itemRecoding = itemRecoding;
+	}
+	
+	/**
+	 * Set the asynchronous output of the patterns to a file. The patterns are encoded by the
+	 * threads that find them, and the full buffers (of 64 KB) are written by a dedicated
+	 * writer thread. If the queue of buffers waiting to be written is full, the threads
+	 * finding patterns wait (so that the memory used by the output is bounded).
+	 * @param queueSize the size of the queue, or 0 to write the buffers directly (the default)
+	 */
+	public void setAsynchronousOutput(int queueSize) {
+		this.outputQueueSize = queueSize;
+	}
+	
+	/**
+	 * Set the compressed output of the patterns to a file. The file is a gzip file made of
+	 * independent members of 1 MB (before compression) that are compressed in parallel,
+	 * so that it can be read by the standard gzip tools. If a checkpoint is written, a
+	 * member is ended at each checkpoint.
+	 * @param compressionThreads the number of threads compressing the output, or 0 for
+	 *   an output that is not compressed (the default)
+	 */
+	public void setCompressedOutput(int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+	
+	/**
+	 * Set if the output file is written in the binary format instead of the text format.
+	 * The binary file has a header with the frequent items and the parameters of the run,
+	 * and can be read with BinaryPatternReader or converted with BinaryPatternConverter.
+	 * @param binaryOutput true for the binary format (by default, false)
+	 */
+	public void setBinaryOutput(boolean binaryOutput) {
+		this.binaryOutput = binaryOutput;
+	}
+	
+	/**
+	 * Get the recoding of the items of the database.
+	 * @return the recoding, or null if the items were not recoded
+	 */
+	ItemRecoding getItemRecoding() {
+		return itemRecoding;
+	}
+	
+	/**
+	 * A frame of the depth-first search: a prefix with its projected database
+	 * and its frequent extensions.
+	 */
+	static class SearchFrame {
+		// the prefix (null for the empty pattern)
+		final PatternNode prefix;
+		// the projected database of the prefix
+		final ProjectedDatabase database;
+		// the length of the extensions of the prefix in terms of items
+		final int k;
+		// the frequent items that extend the prefix
+		final List<Pair> pairs;
+		// the position of the next extension to be explored
+		int next = 0;
+		
+		/**
+		 * Constructor
+		 * @param prefix the prefix (null for the empty pattern)
+		 * @param database the projected database of the prefix
+		 * @param k the length of the extensions of the prefix in terms of items
+		 * @param pairs the frequent items that extend the prefix
+		 */
+		SearchFrame(PatternNode prefix, ProjectedDatabase database, int k, List<Pair> pairs) {
+			this.prefix = prefix;
+			this.database = database;
+			this.k = k;
+			this.pairs = pairs;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ca.pfv.spmf.tools.MemoryLogger;
+
+
+/***
+ * This is an implementation of the BIDE+ algorithm, which finds the closed sequential
+ * patterns (the patterns having no super-pattern with the same support).
+ * BIDE+ was proposed by Wang and Han 2004.
+ *
+ * The patterns are grown as in PrefixSpan, with the same pseudo-projections, and a pattern
+ * is only saved if it is closed: it has no forward extension (an item of its projected database
+ * appearing in all the sequences containing it) and no backward extension (an item that can
+ * be inserted before its last item without changing its support, see BackwardExtensionChecker).
+ * If an item appears in a semi-maximum period of all the sequences containing a pattern,
+ * no pattern starting with it is closed, so that it is not grown (BackScan pruning).
+ *
+ * The algorithm is run and its output is set with the same methods as AlgoPrefixSpan (to
+ * a file in the text or the binary format, to memory or to a PatternSink), which are inherited
+ * from AbstractPrefixSpan. The search is sequential: the parallel mode and the checkpoints of
+ * AlgoPrefixSpan are not available. If a maximum pattern length is set, the
+ * closed patterns that are not longer are found (a pattern is not closed if it has a longer
+ * super-pattern with the same support).
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AbstractPrefixSpan
+ * @see AlgoPrefixSpan
+ */
+
+public class AlgoBIDEPlus extends AbstractPrefixSpan{
+
+	// the checker of the backward extensions and of the BackScan pruning
+	private final BackwardExtensionChecker checker = new BackwardExtensionChecker();
+
+	// the number of patterns pruned by BackScan (for statistics)
+	private int prunedPatternCount;
+
+	/**
+	 * Default constructor
+	 */
+	public AlgoBIDEPlus(){
+	}
+
+	@Override
+	String getAlgorithmName() {
+		return "BIDE+";
+	}
+
+	/**
+	 * Method to grow a given sequential pattern with a depth-first search, and save the
+	 * closed patterns. The search uses an explicit stack of frames, as in AlgoPrefixSpan.
+	 * @param prefix  the current sequential pattern that we want to try to grow (null for the empty pattern)
+	 * @param database the current projected sequence database
+	 * @param k  the prefix length in terms of items
+	 * @throws IOException exception if there is an error writing to the output file
+	 */
+	@Override
+	void depthFirstSearch(PatternNode prefix, ProjectedDatabase database, int k) throws IOException {
+		prunedPatternCount = 0;
+		Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+		stack.push(createFrame(prefix, database, k));
+
+		while(!stack.isEmpty()){
+			SearchFrame frame = stack.peek();
+			// if all the extensions of the prefix were explored, return to the previous prefix
+			if(frame.next == frame.pairs.size()){
+				stack.pop();
+				// check the current memory usage
+				MemoryLogger.getInstance().checkMemory();
+				continue;
+			}
+			Pair pair = frame.pairs.get(frame.next++);
+			PatternNode newPrefix = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+			setSupport(newPrefix, pair);
+
+			// check the backward extensions, in the sequences containing the new prefix
+			int backwardExtension = checker.check(newPrefix, pair, frame.database);
+			if(backwardExtension == BackwardExtensionChecker.BACKSCAN_PRUNED){
+				// neither the new prefix nor the patterns starting with it are closed
+				prunedPatternCount++;
+				continue;
+			}
+			boolean closed = backwardExtension == BackwardExtensionChecker.NO_BACKWARD_EXTENSION;
+			boolean grown = frame.k < getMaximumPatternLength();
+			if(!closed && !grown){
+				continue;
+			}
+			// find the frequent items of the projected database of the new prefix
+			// (the database of depth k is reused for all the prefixes of length k)
+			ProjectedDatabase projectedDatabase = buildProjectedDatabase(pair, frame.database,
+					arena.get(frame.k, frame.database.getDatabase()));
+			SearchFrame newFrame = createFrame(newPrefix, projectedDatabase, frame.k + 1);
+
+			// the new prefix is not closed if it has a forward extension with the same support
+			for(int i = 0; closed && i < newFrame.pairs.size(); i++){
+				closed = newFrame.pairs.get(i).getCount() != pair.getCount();
+			}
+			if(closed){
+				savePattern(newPrefix);
+			}
+			// grow the new prefix before the next extensions of the prefix
+			if(grown){
+				stack.push(newFrame);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of patterns that were not grown because of the BackScan pruning
+	 * during the last run.
+	 * @return the number of patterns
+	 */
+	public int getPrunedPatternCount() {
+		return prunedPatternCount;
+	}
+}
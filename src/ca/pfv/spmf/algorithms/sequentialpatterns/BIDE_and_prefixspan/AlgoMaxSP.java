@@ -0,0 +1,116 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ca.pfv.spmf.tools.MemoryLogger;
+
+
+/***
+ * This is an implementation of the MaxSP algorithm, which finds the maximal sequential
+ * patterns (the frequent patterns having no frequent super-pattern).
+ * MaxSP was proposed by Fournier-Viger et al. 2013.
+ *
+ * The patterns are grown as in PrefixSpan, with the same pseudo-projections, and a pattern
+ * is only saved if it is maximal: it has no frequent forward extension (its projected database
+ * has no frequent item) and no frequent backward extension (an item that can be inserted before
+ * its last item so that the new pattern is frequent, see BackwardExtensionChecker). Thus, the
+ * maximal patterns are found without keeping the patterns found, and only the patterns without
+ * frequent forward extension (the leaves of the search) are checked for backward extensions.
+ * The prefixes pruned by the BackScan pruning of BIDE+ are not grown, since a pattern starting
+ * with them has a super-pattern with the same support.
+ *
+ * The algorithm is run and its output is set with the same methods as AlgoPrefixSpan, which are
+ * inherited from AbstractPrefixSpan. The search is sequential: the parallel mode and the
+ * checkpoints of AlgoPrefixSpan are not available. If a maximum pattern length is set,
+ * the maximal patterns that are not longer are found.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AbstractPrefixSpan
+ * @see AlgoBIDEPlus
+ */
+
+public class AlgoMaxSP extends AbstractPrefixSpan{
+
+	// the checker of the backward extensions and of the BackScan pruning
+	private final BackwardExtensionChecker checker = new BackwardExtensionChecker();
+
+	/**
+	 * Default constructor
+	 */
+	public AlgoMaxSP(){
+	}
+
+	@Override
+	String getAlgorithmName() {
+		return "MaxSP";
+	}
+
+	/**
+	 * Method to grow a given sequential pattern with a depth-first search, and save the
+	 * maximal patterns. The search uses an explicit stack of frames, as in AlgoPrefixSpan.
+	 * @param prefix  the current sequential pattern that we want to try to grow (null for the empty pattern)
+	 * @param database the current projected sequence database
+	 * @param k  the prefix length in terms of items
+	 * @throws IOException exception if there is an error writing to the output file
+	 */
+	@Override
+	void depthFirstSearch(PatternNode prefix, ProjectedDatabase database, int k) throws IOException {
+		Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+		stack.push(createFrame(prefix, database, k));
+
+		while(!stack.isEmpty()){
+			SearchFrame frame = stack.peek();
+			// if all the extensions of the prefix were explored, return to the previous prefix
+			if(frame.next == frame.pairs.size()){
+				stack.pop();
+				// check the current memory usage
+				MemoryLogger.getInstance().checkMemory();
+				continue;
+			}
+			Pair pair = frame.pairs.get(frame.next++);
+			PatternNode newPrefix = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+			setSupport(newPrefix, pair);
+
+			// a pattern having a backward extension with the same support is not maximal
+			// (and the patterns starting with it are not maximal if it is pruned by BackScan)
+			int backwardExtension = checker.check(newPrefix, pair, frame.database);
+			if(backwardExtension == BackwardExtensionChecker.BACKSCAN_PRUNED){
+				continue;
+			}
+			boolean grown = frame.k < getMaximumPatternLength();
+			// find the frequent items of the projected database of the new prefix
+			// (the database of depth k is reused for all the prefixes of length k)
+			ProjectedDatabase projectedDatabase = buildProjectedDatabase(pair, frame.database,
+					arena.get(frame.k, frame.database.getDatabase()));
+			SearchFrame newFrame = createFrame(newPrefix, projectedDatabase, frame.k + 1);
+
+			if(!newFrame.pairs.isEmpty()){
+				// the new prefix has a frequent forward extension: it is not maximal
+				if(grown){
+					stack.push(newFrame);
+				}
+			}else if(backwardExtension == BackwardExtensionChecker.NO_BACKWARD_EXTENSION
+					&& !checker.hasFrequentBackwardExtension(newPrefix, pair, frame.database, minsuppAbsolute)){
+				savePattern(newPrefix);
+			}
+		}
+	}
+}
@@ -1,19 +1,14 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
-import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
-import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
-import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 
@@ -23,7 +18,21 @@ import ca.pfv.spmf.tools.MemoryLogger;
  * 
  * NOTE: This implementation saves the pattern  to a file as soon 
  * as they are found or can keep the pattern into memory, depending
- * on what the user choose.
+ * on what the user choose. The patterns can also be given to a 
+ * PatternSink as soon as they are found.
+ * 
+ * The sequential mode grows the patterns with a depth-first search that uses
+ * an explicit stack instead of recursive calls, so that very long patterns
+ * do not cause a StackOverflowError. If a checkpoint file is set (see setCheckpoint()),
+ * the frontier of the search is periodically written to that file, and a run that
+ * was interrupted can be resumed from it.
+ *
+ * The scan of the database, the pseudo-projections and the output of the patterns are
+ * shared with the other algorithms based on PrefixSpan (see AbstractPrefixSpan), while the
+ * parallel mode, the segment files and the checkpoints are specific to this class.
+ *
+ * For dense databases of short sequences, the vertical engine AlgoSPAM finds the same
+ * patterns through the same SequentialPatternMiner interface.
  *
  * Copyright (c) 2008-2012 Philippe Fournier-Viger
  * 
@@ -42,32 +51,45 @@ import ca.pfv.spmf.tools.MemoryLogger;
  *
  * You should have received a copy of the GNU General Public License
  * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AbstractPrefixSpan
  */
 
-public class AlgoPrefixSpan{
-		
-	// for statistics
-	long startTime;
-	long endTime;
+public class AlgoPrefixSpan extends AbstractPrefixSpan{
 	
-	// the number of pattern found
-	int patternCount;
+	/** the number of threads used for mining (1 = sequential mining) */
+	private int threadCount = 1;
 	
-	// absolute minimum support
-	private int minsuppAbsolute;
-
-	// writer to write output file
-	BufferedWriter writer = null;
+	/** if true, the parallel mode outputs the patterns in the same order
+	 *  as the sequential mode */
+	private boolean deterministicOutput = false;
+	
+	/** in parallel mode, a projected database containing at least this number
+	 * of pseudo-sequences is mined by a separate subtask */
+	private int splitThreshold = 256;
+	
+	/** the path of the checkpoint file of the sequential search (null = no checkpoint) */
+	private String checkpointPath = null;
 	
-	// The sequential patterns that are found 
-	// (if the user want to keep them into memory)
-	private SequentialPatterns patterns = null;
+	/** the minimum time between two checkpoints (in ms) */
+	private long checkpointInterval = 0;
 	
-	// maximum pattern length in terms of item count
-	private int maximumPatternLength = Integer.MAX_VALUE;
+	/** the time when the next checkpoint should be written */
+	private long nextCheckpointTime;
 	
-	/** if true, sequence identifiers of each pattern will be shown*/
-	boolean showSequenceIdentifiers = false;
+	/** in parallel mode, if true each thread writes its patterns to its own segment file */
+	private boolean segmentFiles = false;
+	
+	/** if true, the segment files are appended to the output file at the end */
+	private boolean concatenateSegments = true;
+	
+	/** the checkpoint from which the search is resumed (null if the search starts from the beginning) */
+	private SearchCheckpoint resumedCheckpoint = null;
+	
+	/** when the search is resumed, the patterns of the checkpoint that were not saved yet */
+	private Deque<PatternNode> pendingPatterns = null;
+	
+	/** the number of sequences of the database mined by the sequential search */
+	private int sequenceCount;
 	
 	
 	/**
@@ -76,473 +98,332 @@ public class AlgoPrefixSpan{
 	public AlgoPrefixSpan(){
 	}
 	
+	@Override
+	String getAlgorithmName() {
+		return "PrefixSpan";
+	}
+	
 	/**
-	 * Run the algorithm
-	 * @param database : a sequence database
-	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
-	 * @param outputFilePath : the path of the output file to save the result
-	 *                         or null if you want the result to be saved into memory
-	 * @return return the result, if saved into memory, otherwise null
-	 * @throws IOException  exception if error while writing the file
+	 * Prepare the output of the algorithm. If a checkpoint file was set and it exists, the
+	 * search is resumed from it.
+	 * @param outputFilePath  an output file path if the result should be saved to a file
+	 *                        or null if the result should be saved to memory.
+	 * @throws IOException exception if an error while opening the output file
 	 */
-	public SequentialPatterns runAlgorithm(SequenceDatabase database, double minsupRelative, String outputFilePath) throws IOException {
-		// convert to a absolute minimum support
-		this.minsuppAbsolute = (int) Math.ceil(minsupRelative * database.size());
-		if(this.minsuppAbsolute == 0){ // protection
-			this.minsuppAbsolute = 1;
+	@Override
+	void openOutput(String outputFilePath) throws IOException {
+		resumedCheckpoint = null;
+		if(outputFilePath == null || checkpointPath == null || !new File(checkpointPath).exists()){
+			super.openOutput(outputFilePath);
+			return;
 		}
-		// record start time
-		startTime = System.currentTimeMillis();
-		
-		// run the algorithm
-		prefixSpan(database, outputFilePath);
-		
-		// record end time
-		endTime = System.currentTimeMillis();
-		// close the output file if the result was saved to a file
-		if(writer != null){
-			writer.close();
+		// if a previous run was interrupted, the search is resumed from its checkpoint
+		// and the patterns that it saved after the checkpoint are removed from the file
+		this.outputFilePath = outputFilePath;
+		patterns = null;
+		resumedCheckpoint = SearchCheckpoint.read(checkpointPath);
+		RandomAccessFile file = new RandomAccessFile(outputFilePath, "rw");
+		try{
+			if(file.length() < resumedCheckpoint.outputLength){
+				throw new IOException("The output file " + outputFilePath 
+						+ " is shorter than when the checkpoint was written");
+			}
+			file.setLength(resumedCheckpoint.outputLength);
+		}finally{
+			file.close();
 		}
-		return patterns;
+		patternCount = resumedCheckpoint.patternCount;
+		sink = createFileSink(outputFilePath, true);
 	}
 	
 	/**
-	 * Run the algorithm
-	 * @param database : a sequence database
-	 * @param minsupPercent  :  the minimum support as an integer
-	 * @param outputFilePath : the path of the output file to save the result
-	 *                         or null if you want the result to be saved into memory
-	 * @return return the result, if saved into memory, otherwise null 
-	 * @throws IOException  exception if error while writing the file
+	 * Create the sink writing the patterns to the output file, with the output options
+	 * (the segment files only apply to the text format).
+	 * @param outputFilePath the path of the output file
+	 * @param append if true, the patterns are appended to the file
+	 * @return the sink
+	 * @throws IOException exception if an error while opening the file
 	 */
-	public SequentialPatterns runAlgorithm(SequenceDatabase database, String outputFilePath, int minsup) throws IOException {
-		// initialize variables for statistics
-		patternCount =0;
-		MemoryLogger.getInstance().reset();
-		// save the minsup chosen  by the user
-		this.minsuppAbsolute = minsup;
-		// save the start time
-		startTime = System.currentTimeMillis();
-		
-		// run the algorithm
-		prefixSpan(database, outputFilePath);
-		
-		// save the end time
-		endTime = System.currentTimeMillis();
-		// close the output file if the result was saved to a file
-		if(writer != null){
-			writer.close();
+	@Override
+	NodePatternSink createFileSink(String outputFilePath, boolean append) throws IOException {
+		NodePatternSink fileSink = super.createFileSink(outputFilePath, append);
+		if(fileSink instanceof FilePatternSink){
+			((FilePatternSink) fileSink).setSegmentFiles(segmentFiles, concatenateSegments);
 		}
-		return patterns;
+		return fileSink;
 	}
 	
 	/**
-	 * This is the main method for the PrefixSpan algorithm that is called
-	 * to start the algorithm
-	 * @param outputFilePath  an output file path if the result should be saved to a file
-	 *                        or null if the result should be saved to memory.
-	 * @param database a sequence database
+	 * Prepare the output of the algorithm to a sink provided by the user.
+	 * @param patternSink the sink
+	 */
+	@Override
+	void openOutput(PatternSink patternSink) {
+		resumedCheckpoint = null;
+		super.openOutput(patternSink);
+	}
+	
+	/**
+	 * Find the sequential patterns starting with each frequent item, in parallel if several
+	 * threads are set, or from the checkpoint of an interrupted run.
+	 * @param database the database without infrequent items
 	 * @throws IOException exception if an error while writing the output file
 	 */
-	private void prefixSpan(SequenceDatabase database, String outputFilePath) throws IOException{
-		// if the user want to keep the result into memory
-		if(outputFilePath == null){
-			writer = null;
-			patterns = new SequentialPatterns("FREQUENT SEQUENTIAL PATTERNS");
-		}else{ // if the user want to save the result to a file
-			patterns = null;
-			writer = new BufferedWriter(new FileWriter(outputFilePath)); 
-		}
+	@Override
+	void mineFrequentItems(SequenceStore database) throws IOException{
+		// Create the initial projected database (one pseudo-sequence per sequence of the database)
+		ProjectedDatabase initialDatabase = ProjectedDatabase.createInitialDatabase(database);
 		
-		// We have to scan the database to find all frequent sequential patterns of size 1.
-		// We note the sequences in which the items appear.
-		Map<Integer, Set<Integer>> mapSequenceID = findSequencesContainingItems(database);
+		// if the user asked for more than one thread, the projected databases
+		// of the frequent items are mined in parallel (the checkpoints are only 
+		// written by the sequential search)
+		if(threadCount > 1 && !isCheckpointEnabled()){
+			ParallelPrefixSpan parallel = new ParallelPrefixSpan(this, minsuppAbsolute, 
+					splitThreshold, deterministicOutput);
+			patternCount += parallel.run(initialDatabase, threadCount);
+			return;
+		}
 		
-		// WE CONVERT THE DATABASE ITON A PSEUDO-DATABASE, AND REMOVE
-		// THE ITEMS OF SIZE 1 THAT ARE NOT FREQUENT, SO THAT THE ALGORITHM 
-		// WILL NOT CONSIDER THEM ANYMORE. 
+		// the projected databases are reused for all the prefixes of a same length
+		arena = new ProjectedDatabaseArena();
+		sequenceCount = database.size();
+		nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
 		
-		// Create a list of pseudosequence
-		List<PseudoSequence> initialDatabase = new ArrayList<PseudoSequence>();
-		// for each sequence in  the database
-		for(Sequence sequence : database.getSequences()){
-			// remove infrequent items
-			Sequence optimizedSequence = sequence.cloneSequenceMinusItems(mapSequenceID, minsuppAbsolute);
-			if(optimizedSequence.size() != 0){
-				// if the size is > 0, create a pseudo sequence with this sequence
-				initialDatabase.add(new PseudoSequence(optimizedSequence, 0, 0));
-			}
+		if(resumedCheckpoint != null){
+			resumeSearch(database);
+		}else{
+			// the search starts from the empty prefix: its extensions are the frequent items
+			// (each frequent item is saved and its projected database is mined)
+			depthFirstSearch(null, initialDatabase, 1);
 		}
-				
-		// For each item
-		for(Entry<Integer, Set<Integer>> entry : mapSequenceID.entrySet()){
-			// if the item is frequent  (has a support >= minsup)
-			if(entry.getValue().size() >= minsuppAbsolute){ 
-				Integer item = entry.getKey();
-				
-				// Create the prefix for this projected database
-				SequentialPattern prefix = new SequentialPattern();  
-				prefix.addItemset(new Itemset(item));
-				prefix.setSequenceIDs(entry.getValue());
-
-				// The prefix is a frequent sequential pattern.
-				// We save it in the result.
-				savePattern(prefix);  
-
-				// build the projected database for that item
-				List<PseudoSequence> projectedContext
-				   = buildProjectedDatabaseForSingleItem(item, initialDatabase, entry.getValue());
+		arena = null;
 		
-				// We make a recursive call to try to find larger sequential
-				// patterns starting with this prefix
-				if(maximumPatternLength >1){
-					recursion(prefix, projectedContext, 2); 
-				}
-			}
-		}		
-	}
-	
-	/**
-	 * This method saves a sequential pattern to the output file or
-	 * in memory, depending on if the user provided an output file path or not
-	 * when he launched the algorithm
-	 * @param prefix the pattern to be saved.
-	 * @throws IOException exception if error while writing the output file.
-	 */
-	private void savePattern(SequentialPattern prefix) throws IOException {
-		// increase the number of pattern found for statistics purposes
-		patternCount++; 
-	
-		// if the result should be saved to a file
-		if(writer != null){
-			// create a StringBuilder
-			StringBuilder r = new StringBuilder("");
-			// for each itemset in this sequential pattern
-			for(Itemset itemset : prefix.getItemsets()){
-				// for each item
-				for(Integer item : itemset.getItems()){
-					r.append(item.toString()); // add the item
-					r.append(' ');
-				}
-				r.append("-1 "); // add the itemset separator
-			}		
-			// add the support
-			r.append("#SUP: ");
-			r.append(prefix.getAbsoluteSupport());
-			if(showSequenceIdentifiers) {
-	        	r.append(" #SID: ");
-	        	for (Integer sid: prefix.getSequenceIDs()) {
-	        		r.append(sid);
-	        		r.append(" ");
-	        	}
-			}
-			// write the string to the file
-			writer.write(r.toString());
-			// start a new line
-			writer.newLine();
-		}
-		// otherwise the result is kept into memory
-		else{
-			patterns.addSequence(prefix, prefix.size());
+		// the search is complete, so the checkpoint is not needed anymore
+		if(isCheckpointEnabled()){
+			Files.deleteIfExists(new File(checkpointPath).toPath());
 		}
-
 	}
 	
 	/**
-	 * For each item, calculate the sequence id of sequences containing that item
-	 * @param database the current sequence database
-	 * @return Map of items to sequence IDs that contains each item
+	 * Resume the search from the checkpoint of a previous run. Each pattern of the
+	 * checkpoint that was not saved is saved and grown, in the same order as in the
+	 * interrupted run.
+	 * @param database the database without infrequent items
+	 * @throws IOException exception if the checkpoint does not match this run, or if an 
+	 *    error while writing the output file
 	 */
-	private Map<Integer, Set<Integer>> findSequencesContainingItems(SequenceDatabase database) {
-		// We use a map to store the sequence IDs where an item appear
-		// Key : item   Value :  a set of sequence IDs
-		Map<Integer, Set<Integer>> mapSequenceID = new HashMap<Integer, Set<Integer>>(); 
-		// for each sequence in the current database
-		for(Sequence sequence : database.getSequences()){
-			// for each itemset in this sequence
-			for(List<Integer> itemset : sequence.getItemsets()){
-				// for each item
-				for(Integer item : itemset){
-					// get the set of sequence IDs for this item until now
-					Set<Integer> sequenceIDs = mapSequenceID.get(item);
-					if(sequenceIDs == null){
-						// if the set does not exist, create one
-						sequenceIDs = new HashSet<Integer>();
-						mapSequenceID.put(item, sequenceIDs);
-					}
-					// add the sequence ID of the current sequence to the 
-					// set of sequences IDs of this item
-					sequenceIDs.add(sequence.getId());
-				}
+	private void resumeSearch(SequenceStore database) throws IOException {
+		SearchCheckpoint checkpoint = resumedCheckpoint;
+		if(checkpoint.minsup != minsuppAbsolute || checkpoint.maximumPatternLength != getMaximumPatternLength()
+				|| checkpoint.sequenceCount != database.size()){
+			throw new IOException("The checkpoint " + checkpointPath 
+					+ " was written by a run with different parameters or another database");
+		}
+		pendingPatterns = new ArrayDeque<PatternNode>(checkpoint.pendingPatterns);
+		while(!pendingPatterns.isEmpty()){
+			PatternNode pattern = pendingPatterns.poll();
+			savePattern(pattern);
+			if(pattern.getLength() < getMaximumPatternLength()){
+				depthFirstSearch(pattern, projectPattern(database, pattern), pattern.getLength() + 1);
 			}
 		}
-		return mapSequenceID;
+		pendingPatterns = null;
 	}
 	
 	/**
-	 * Create a projected database by pseudo-projection with the initial database and a given item.
-	 * @param item The item to use to make the pseudo-projection
-	 * @param initialDatabase The current database.
-	 * @param sidSet  The set of sequence ids containing the item
-	 * @return the projected database.
+	 * Build the projected database of a pattern by projecting the database with each item
+	 * of the pattern. Only the sequences containing the pattern are projected, if their IDs are known.
+	 * This is used to resume a search, since a checkpoint does not contain the projected databases.
+	 * @param database the database without infrequent items
+	 * @param pattern the pattern
+	 * @return the projected database (stored in the arena at the depth of the pattern length)
+	 * @throws IOException exception if the pattern does not appear in the database
 	 */
-	private List<PseudoSequence> buildProjectedDatabaseForSingleItem(Integer item, List<PseudoSequence> initialDatabase,Set<Integer> sidSet) {
-		// We create a new projected database
-		List<PseudoSequence> sequenceDatabase = new ArrayList<PseudoSequence>();
-
-		// for each sequence in the database received as parameter
-		for(PseudoSequence sequence : initialDatabase){ 
-
-			// if this sequence do not contain the current prefix, then skip it.
-			if(!sidSet.contains(sequence.getId())){
-				continue;
+	private ProjectedDatabase projectPattern(SequenceStore database, PatternNode pattern) throws IOException {
+		// the items of the pattern from the first one
+		PatternNode[] nodes = new PatternNode[pattern.getLength()];
+		int i = nodes.length;
+		for(PatternNode node = pattern; node != null; node = node.getParent()){
+			nodes[--i] = node;
+		}
+		SidSet sequenceIDs = pattern.getSequenceIDs();
+		ProjectedDatabase projectedDatabase = arena.get(0, database);
+		for(int s = 0; s < database.size(); s++){
+			if(sequenceIDs == null || sequenceIDs.contains(database.getSequenceId(s))){
+				projectedDatabase.add(s, 0, 0);
 			}
-			
-			// for each itemset of the sequence
-			for(int i = 0; i< sequence.size(); i++){
-
-				// check if the itemset contains the item that is used for the projection
-				int index = sequence.indexOfBis(i, item);
-				// if it does not, and the current item is part of a suffix if inSuffix is true
-				//   and vice-versa
-				if(index == -1 ){
-					continue;
-				}
-				
-				// if the item is the last item of this itemset
-				if(index == sequence.getSizeOfItemsetAt(i)-1){ 
-					// if it is not the last itemset
-					if ((i != sequence.size()-1)){
-						// create new pseudo sequence
-						// add it to the projected database.
-						sequenceDatabase.add(new PseudoSequence( sequence, i+1, 0));
-					}
-				}else{
-					// create a new pseudo sequence and
-					// add it to the projected database.
-					sequenceDatabase.add(new PseudoSequence(sequence, i, index+1));
+		}
+		for(int k = 0; k < nodes.length; k++){
+			// find the groups where the item appears (in a postfix if it is an itemset extension)
+			Pair itemPair = null;
+			for(Pair pair : findAllFrequentPairs(projectedDatabase)){
+				if(pair.getItem() == nodes[k].getItem() && pair.isPostfix() == nodes[k].isItemsetExtension()){
+					itemPair = pair;
 				}
-
 			}
+			if(itemPair == null){
+				throw new IOException("The checkpoint " + checkpointPath + " does not match the database");
+			}
+			projectedDatabase = buildProjectedDatabase(itemPair, projectedDatabase, arena.get(k + 1, database));
 		}
-
-		return sequenceDatabase; // return the projected database
+		return projectedDatabase;
 	}
-
+	
 	/**
-	 * Create a projected database by pseudo-projection
-	 * @param item The item to use to make the pseudo-projection
-	 * @param database The current sequence database.
-	 * @param inPostFix This boolean indicates if the item "item" is part of a suffix or not.
-	 * @param sidset the set of sequence IDs of sequence containing this item
-	 * @return the projected database.
+	 * Method to grow a given sequential pattern with a depth-first search. The patterns
+	 * are saved in the same order as with recursive calls, but the search uses an explicit
+	 * stack of frames, so that its depth is not limited by the size of the thread stack.
+	 * @param prefix  the current sequential pattern that we want to try to grow (null for the empty pattern)
+	 * @param database the current projected sequence database
+	 * @param k  the prefix length in terms of items
+	 * @throws IOException exception if there is an error writing to the output file
 	 */
-	private List<PseudoSequence> buildProjectedDatabase(Integer item, List<PseudoSequence> database, Set<Integer> sidset, boolean inPostFix) {
-		// We create a new projected database
-		List<PseudoSequence> sequenceDatabase = new ArrayList<PseudoSequence>();
-
-		// for each sequence in the database received as parameter
-		for(PseudoSequence sequence : database){ 
-			
-			if(sidset.contains(sequence.getId()) == false){
+	@Override
+	void depthFirstSearch(PatternNode prefix, ProjectedDatabase database, int k) throws IOException {
+		Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+		stack.push(createFrame(prefix, database, k));
+		
+		while(!stack.isEmpty()){
+			// write a checkpoint if it is time (all the patterns before the
+			// frontier of the search are saved at this point)
+			if(isCheckpointEnabled() && System.currentTimeMillis() >= nextCheckpointTime){
+				writeCheckpoint(stack);
+				nextCheckpointTime = System.currentTimeMillis() + checkpointInterval;
+			}
+			SearchFrame frame = stack.peek();
+			// if all the extensions of the prefix were explored, return to the previous prefix
+			if(frame.next == frame.pairs.size()){
+				stack.pop();
+				// check the current memory usage
+				MemoryLogger.getInstance().checkMemory();
 				continue;
 			}
-			
-			// for each itemset of the sequence
-			for(int i = 0; i< sequence.size(); i++){
-	
-				if (sequence.isPostfix(i) != inPostFix){
-					// if the item is not in a postfix, but this itemset
-					// is a postfix, then we can continue scanning from the next itemset
-					continue;
-				}
+			Pair pair = frame.pairs.get(frame.next++);
+			// create the new postfix by appending this item to the prefix
+			// (to the last itemset of the prefix if the item is part of a postfix,
+			// and as a new itemset otherwise)
+			PatternNode newPrefix = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+			setSupport(newPrefix, pair);
 
-				// check if the itemset contains the item that we use for the projection
-				int index = sequence.indexOfBis(i, item);
-				
-				// if it does not, move to next itemset
-				if(index == -1 ){
-					continue;
-				}
-				
-				// if the item is the last item of this itemset
-				if(index == sequence.getSizeOfItemsetAt(i)-1){ 
-					// if it is not the last itemset
-					if ((i != sequence.size()-1)){
-						// create new pseudo sequence
-						// add it to the projected database.
-						sequenceDatabase.add(new PseudoSequence( sequence, i+1, 0));
-						//System.out.println(sequence.getId() + "--> "+ newSequence.toString());
-//						break itemsetLoop;
-					}
-				}else{
-					// create a new pseudo sequence and
-					// add it to the projected database.
-					sequenceDatabase.add(new PseudoSequence(sequence, i, index+1));
-					//System.out.println(sequence.getId() + "--> "+ newSequence.toString());
-//					break itemsetLoop;
-				}
+			// save the pattern
+			savePattern(newPrefix);
+			// grow the new prefix before the next extensions of the prefix
+			if(frame.k < getMaximumPatternLength()){
+				// build the projected database with this item (the database of depth k
+				// is reused for all the prefixes of length k)
+				ProjectedDatabase projectedDatabase = buildProjectedDatabase(pair, frame.database, 
+						arena.get(frame.k, frame.database.getDatabase()));
+				stack.push(createFrame(newPrefix, projectedDatabase, frame.k + 1));
 			}
 		}
-		return sequenceDatabase; // return the projected database
 	}
 	
 	/**
-	 * Method to recursively grow a given sequential pattern.
-	 * @param prefix  the current sequential pattern that we want to try to grow
-	 * @param database the current projected sequence database
-	 * @param k  the prefix length in terms of items
-	 * @throws IOException exception if there is an error writing to the output file
+	 * Check if checkpoints of the search are written. They are only written if
+	 * a checkpoint file was set and the patterns are saved to a file.
+	 * @return true if they are written
 	 */
-	private void recursion(SequentialPattern prefix, List<PseudoSequence> database, int k) throws IOException {	
-		// find frequent items of size 1 in the current projected database.
-		Set<Pair> pairs = findAllFrequentPairs(database);
-	
-		// For each pair found (a pair is an item with a boolean indicating if it
-		// appears in an itemset that is cut (a postfix) or not, and the sequence IDs
-		// where it appears in the projected database).
-		for(Pair pair : pairs){
-			// if the item is frequent in the current projected database
-			if(pair.getCount() >= minsuppAbsolute){
-				// create the new postfix by appending this item to the prefix
-				SequentialPattern newPrefix;
-				// if the item is part of a postfix
-				if(pair.isPostfix()){ 
-					// we append it to the last itemset of the prefix
-					newPrefix = appendItemToPrefixOfSequence(prefix, pair.getItem()); 
-				}else{ // else, we append it as a new itemset to the sequence
-					newPrefix = appendItemToSequence(prefix, pair.getItem());
-				}
-				newPrefix.setSequenceIDs(pair.getSequenceIDs()); 
-
-				// build the projected database with this item
-				List<PseudoSequence> projectedDatabase = buildProjectedDatabase(pair.getItem(), database, pair.getSequenceIDs(), pair.isPostfix());
-
-				// save the pattern
-				savePattern(newPrefix);
-				// make a recursive call
-				if( k < maximumPatternLength){
-					recursion(newPrefix, projectedDatabase, k+1);
-				}
-			}
-		}
-		// check the current memory usage
-		MemoryLogger.getInstance().checkMemory();
+	private boolean isCheckpointEnabled() {
+		return checkpointPath != null && outputFilePath != null;
 	}
 	
 	/**
-	 * Method to find all frequent items in a projected sequence database
-	 * @param sequences  the set of sequences
-	 * @return A list of pairs, where a pair is an item with (1) a boolean indicating if it
-	 *         is in an itemset that is "cut" and (2) the sequence IDs where it occurs.
+	 * Write a checkpoint containing the frontier of the search: the extensions
+	 * that were not explored yet in each frame (from the top of the stack), followed 
+	 * by the patterns of the resumed checkpoint that were not saved yet.
+	 * @param stack the stack of the depth-first search
+	 * @throws IOException exception if an error while writing the files
 	 */
-	protected Set<Pair> findAllFrequentPairs(List<PseudoSequence> sequences){
-		// We use a Map the store the pairs.
-		Map<Pair, Pair> mapPairs = new HashMap<Pair, Pair>();
-		// for each sequence
-		for(PseudoSequence sequence : sequences){
-			// for each itemset
-			for(int i=0; i< sequence.size(); i++){
-				// for each item
-				for(int j=0; j < sequence.getSizeOfItemsetAt(i); j++){
-					Integer item = sequence.getItemAtInItemsetAt(j, i);
-					// create the pair corresponding to this item
-					Pair pair = new Pair(sequence.isPostfix(i), item);   
-					// get the pair object store in the map if there is one already
-					Pair oldPair = mapPairs.get(pair);
-					// if there is no pair object yet
-					if(oldPair == null){
-						// store the pair object that we created
-						mapPairs.put(pair, pair);
-					}else{
-						// otherwise use the old one
-						pair = oldPair;
-					}
-					// record the current sequence id for that pair
-					pair.getSequenceIDs().add(sequence.getId());
-				}
+	private void writeCheckpoint(Deque<SearchFrame> stack) throws IOException {
+		// the patterns saved until now must be in the output file
+		sink.flush();
+		SearchCheckpoint checkpoint = new SearchCheckpoint();
+		checkpoint.minsup = minsuppAbsolute;
+		checkpoint.maximumPatternLength = getMaximumPatternLength();
+		checkpoint.sequenceCount = sequenceCount;
+		checkpoint.outputLength = new File(outputFilePath).length();
+		checkpoint.patternCount = patternCount;
+		for(SearchFrame frame : stack){
+			for(int i = frame.next; i < frame.pairs.size(); i++){
+				Pair pair = frame.pairs.get(i);
+				PatternNode pattern = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+				setSupport(pattern, pair);
+				checkpoint.pendingPatterns.add(pattern);
 			}
 		}
-		MemoryLogger.getInstance().checkMemory();  // check the memory for statistics.
-		// return the map of pairs
-		return mapPairs.keySet();
+		if(pendingPatterns != null){
+			checkpoint.pendingPatterns.addAll(pendingPatterns);
+		}
+		checkpoint.write(checkpointPath);
 	}
-
+	
 	/**
-	 *  This method creates a copy of the sequence and add a given item 
-	 *  as a new itemset to the sequence. 
-	 *  It sets the support of the sequence as the support of the item.
-	 * @param prefix  the sequence
-	 * @param item the item
-	 * @return the new sequence
+	 * Set the number of threads used for mining. If more than one thread is used,
+	 * the projected database of each frequent item is mined by a separate fork-join task
+	 * and large projected databases are further split into subtasks.
+	 * @param threadCount the number of threads (1 = sequential mining, the default)
 	 */
-	private SequentialPattern appendItemToSequence(SequentialPattern prefix, Integer item) {
-		SequentialPattern newPrefix = prefix.cloneSequence();  // isSuffix
-		newPrefix.addItemset(new Itemset(item));  // cr�� un nouvel itemset   + decalage
-		return newPrefix;
+	public void setThreadCount(int threadCount) {
+		this.threadCount = Math.max(1, threadCount);
 	}
 	
 	/**
-	 *  This method creates a copy of the sequence and add a given item 
-	 *  to the last itemset of the sequence. 
-	 *  It sets the support of the sequence as the support of the item.
-	 * @param prefix  the sequence
-	 * @param item the item
-	 * @return the new sequence
+	 * Get the number of threads used for mining
+	 * @return the number of threads
 	 */
-	private SequentialPattern appendItemToPrefixOfSequence(SequentialPattern prefix, Integer item) {
-		SequentialPattern newPrefix = prefix.cloneSequence();
-		Itemset itemset = newPrefix.get(newPrefix.size()-1);  // ajoute au dernier itemset
-		itemset.addItem(item);  
-		return newPrefix;
+	public int getThreadCount() {
+		return threadCount;
 	}
-
+	
 	/**
-	 * Print statistics about the algorithm execution to System.out.
-	 * @param size  the size of the database
+	 * Set if the parallel mode should output the patterns in the same order as the
+	 * sequential mode (true) or in the order that they are found (false). In the first case,
+	 * the patterns are buffered until all the tasks are finished.
+	 * @param deterministicOutput true or false
 	 */
-	public void printStatistics(int size) {
-		StringBuilder r = new StringBuilder(200);
-		r.append("=============  PREFIXSPAN - STATISTICS =============\n Total time ~ ");
-		r.append(endTime - startTime);
-		r.append(" ms\n");
-		r.append(" Frequent sequences count : " + patternCount);
-		r.append('\n');
-		r.append(" Max memory (mb) : " );
-		r.append(MemoryLogger.getInstance().getMaxMemory());
-		r.append(patternCount);
-		r.append('\n');
-		r.append("===================================================\n");
-		// if the result was save into memory, print it
-		if(patterns !=null){
-			patterns.printFrequentPatterns(size, showSequenceIdentifiers);
-		}
-		System.out.println(r.toString());
+	public void setDeterministicOutput(boolean deterministicOutput) {
+		this.deterministicOutput = deterministicOutput;
 	}
 	
 	/**
-	 * Get the maximum length of patterns to be found (in terms of item count)
-	 * @return the maximumPatternLength
+	 * Set the minimum number of pseudo-sequences that a projected database must contain
+	 * so that the parallel mode may mine it as a separate subtask.
+	 * @param splitThreshold the number of pseudo-sequences
 	 */
-	public int getMaximumPatternLength() {
-		return maximumPatternLength;
+	public void setSplitThreshold(int splitThreshold) {
+		this.splitThreshold = splitThreshold;
 	}
-
+	
 	/**
-	 * Set the maximum length of patterns to be found (in terms of item count)
-	 * @param maximumPatternLength the maximumPatternLength to set
+	 * Set a checkpoint file for the sequential search. While the patterns are saved to
+	 * an output file, the frontier of the search (the patterns found but not saved, with their
+	 * sequence IDs) is written to the checkpoint file at most once per interval. 
+	 * If the checkpoint file exists when the algorithm is run, the search resumes from it:
+	 * the output file is truncated to its length at the time of the checkpoint, and the
+	 * remaining patterns are appended to it, so that each pattern is saved once.
+	 * The algorithm must be run with the same database, output file and parameters as the
+	 * interrupted run. The checkpoint file is deleted when the search is complete.
+	 * If a checkpoint file is set, the search is sequential even if several threads are set.
+	 * @param checkpointPath the path of the checkpoint file, or null to write no checkpoint
+	 * @param checkpointInterval the minimum time between two checkpoints (in ms)
 	 */
-	public void setMaximumPatternLength(int maximumPatternLength) {
-		this.maximumPatternLength = maximumPatternLength;
+	public void setCheckpoint(String checkpointPath, long checkpointInterval) {
+		this.checkpointPath = checkpointPath;
+		this.checkpointInterval = checkpointInterval;
 	}
 	
 	/**
-	 * Set that the sequence identifiers should be shown (true) or not (false) for each
-	 * pattern found
-	 * @param showSequenceIdentifiers true or false
+	 * Set if, in parallel mode, each thread writes the patterns that it finds to its own
+	 * segment file, named as the output file followed by ".segment" and a number, so that 
+	 * the threads do not wait for each other to write. The patterns of the sequential part of
+	 * the search are written to the output file.
+	 * @param segmentFiles true to use segment files (by default, false)
+	 * @param concatenateSegments true to append the segment files to the output file (in the
+	 *   order where they were created) and delete them at the end, false to keep them
 	 */
-	public void setShowSequenceIdentifiers(boolean showSequenceIdentifiers) {
-		this.showSequenceIdentifiers = showSequenceIdentifiers;
+	public void setSegmentFiles(boolean segmentFiles, boolean concatenateSegments) {
+		this.segmentFiles = segmentFiles;
+		this.concatenateSegments = concatenateSegments;
 	}
 	
 	//=================================================================
@@ -564,14 +445,17 @@ public class AlgoPrefixSpan{
 		startTime = System.currentTimeMillis();
 		
 		// run the algorithm
-		writer = null;
-		patterns = new SequentialPatterns("=========  " + prefix.toString());
-		recursion(prefix, projectedDB, 2);
+		MemoryPatternSink memorySink = new MemoryPatternSink("=========  " + prefix.toString());
+		patterns = memorySink.getPatterns();
+		sink = memorySink;
+		outputFilePath = null;
+		arena = new ProjectedDatabaseArena();
+		depthFirstSearch(PatternNode.fromSequentialPattern(prefix), ProjectedDatabase.fromPseudoSequences(projectedDB), 2);
+		arena = null;
 		
 		// save the end time
 		endTime = System.currentTimeMillis();
 		
 		return patterns;
 	}
-
 }
@@ -1,19 +1,24 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import spmf.extension.prefixspan.JSPattern;
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
 import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
 import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
 import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+import ca.pfv.spmf.tools.ParallelGzipOutputStream;
 
 public class AlgoPrefixSpanJS {
 	
@@ -24,19 +29,13 @@ public class AlgoPrefixSpanJS {
 	}
 	
 	public void prefixSpan(SequenceDatabase db, int minSup) throws IOException{
-		Map<Integer, Set<Integer>> map = findSequencesContainingItems(db);
-		List<PseudoSequence> initDB = new ArrayList<PseudoSequence>();
-		for(Sequence sequence : db.getSequences()){
-			Sequence optimizedSequence = sequence.cloneSequenceMinusItems(map, minSup);
-			if(optimizedSequence.size() != 0){
-				initDB.add(new PseudoSequence(optimizedSequence, 0, 0));
-			}
-		}
+		Map<Integer, SidSet> map = findSequencesContainingItems(db);
+		List<PseudoSequence> initDB = buildInitialDatabase(db, map, minSup);
 		SequentialPattern prefix;
 		List<PseudoSequence> projected1DB;
 		SequentialPatterns result;
 		AlgoPrefixSpan algoPrefixSpan = new AlgoPrefixSpan();
-		for(Entry<Integer, Set<Integer>> entry : map.entrySet()){
+		for(Entry<Integer, SidSet> entry : map.entrySet()){
 			if(entry.getValue().size() < minSup) continue;
 			prefix = new SequentialPattern();
 			prefix.addItemset(new Itemset(entry.getKey()));
@@ -48,6 +47,29 @@ public class AlgoPrefixSpanJS {
 		}
 	}
 	
+	/**
+	 * Save the patterns found by prefixSpanJS() to a file, one pattern per line.
+	 * @param outputFilePath the path of the output file
+	 * @param compressionThreads the number of threads compressing the file with gzip
+	 *   (0 for a file that is not compressed)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	public void saveResult(String outputFilePath, int compressionThreads) throws IOException{
+		OutputStream out = new FileOutputStream(outputFilePath);
+		if(compressionThreads > 0){
+			out = new ParallelGzipOutputStream(out, compressionThreads);
+		}
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		try{
+			for(JSPattern pattern : patterns){
+				writer.write(pattern.toString());
+				writer.newLine();
+			}
+		}finally{
+			writer.close();
+		}
+	}
+	
 	/**
 	 * Mine JS with prefixSpan. 
 	 * Sequences of the same ID from left and right, and tag[ID] form <X|Y>(tag).
@@ -60,23 +82,23 @@ public class AlgoPrefixSpanJS {
 		patterns = new ArrayList<JSPattern>();
 		
 		//Occurence counting
-		Map<Integer, Set<Integer>> mapLeft = findSequencesContainingItems(left);
-		Map<Integer, Set<Integer>> mapRight = findSequencesContainingItems(right);
-		Map<Integer, Set<Integer>> mapTag = new HashMap<Integer, Set<Integer>>();
+		Map<Integer, SidSet> mapLeft = findSequencesContainingItems(left);
+		Map<Integer, SidSet> mapRight = findSequencesContainingItems(right);
+		Map<Integer, SidSet> mapTag = new HashMap<Integer, SidSet>();
 		int tagNumber;
-		Set<Integer> set;
+		SidSet set;
 		for(int i=0; i<tag.length; i++){
 			tagNumber = tag[i];
 			if(mapTag.containsKey(tagNumber)){
 				set = mapTag.get(tagNumber);
 			}else{
-				set = new HashSet<Integer>();
+				set = new SidSet();
 			}
 			set.add(i);
 			mapTag.put(tagNumber, set);
 		}
 		//Also remove non-frequent tag
-		Iterator<Entry<Integer, Set<Integer>>> iterator = mapTag.entrySet().iterator();
+		Iterator<Entry<Integer, SidSet>> iterator = mapTag.entrySet().iterator();
 		while(iterator.hasNext()){
 			if(iterator.next().getValue().size() < minSup){
 				iterator.remove();
@@ -84,42 +106,27 @@ public class AlgoPrefixSpanJS {
 		}
 		
 		//Setup initial database for both sides -- all non-frequent items are removed
-		List<PseudoSequence> initDBLeft = new ArrayList<PseudoSequence>();
-		for(Sequence sequence : left.getSequences()){
-			Sequence optimizedSequence = sequence.cloneSequenceMinusItems(mapLeft, minSup);
-			if(optimizedSequence.size() != 0){
-				initDBLeft.add(new PseudoSequence(optimizedSequence, 0, 0));
-			}
-		}
-		
-		List<PseudoSequence> initDBRight = new ArrayList<PseudoSequence>();
-		for(Sequence sequence : right.getSequences()){
-			Sequence optimizedSequence = sequence.cloneSequenceMinusItems(mapRight, minSup);
-			if(optimizedSequence.size() != 0){
-				initDBRight.add(new PseudoSequence(optimizedSequence, 0, 0));
-			}
-		}
+		List<PseudoSequence> initDBLeft = buildInitialDatabase(left, mapLeft, minSup);
+		List<PseudoSequence> initDBRight = buildInitialDatabase(right, mapRight, minSup);
 		
 		//For all frequent length-1 JS (with tag) -- do separated PrefixSpan
-		Set<Integer> seqIds;
+		SidSet seqIds;
 		SequentialPattern prefixLeft,prefixRight;
 		JSPattern rootPattern;
 		
-		for(Entry<Integer, Set<Integer>> entryLeft : mapLeft.entrySet()){
+		for(Entry<Integer, SidSet> entryLeft : mapLeft.entrySet()){
 			prefixLeft = new SequentialPattern();
 			prefixLeft.addItemset(new Itemset(entryLeft.getKey()));
 			
-			for(Entry<Integer, Set<Integer>> entryRight : mapRight.entrySet()){
-				set = new HashSet<Integer>(entryLeft.getValue());
-				set.retainAll(entryRight.getValue());
+			for(Entry<Integer, SidSet> entryRight : mapRight.entrySet()){
+				set = (entryLeft.getValue()).intersect(entryRight.getValue());
 				if(set.size() < minSup) continue; //left && right
 				
 				prefixRight = new SequentialPattern();
 				prefixRight.addItemset(new Itemset(entryRight.getKey()));
 				
-				for(Entry<Integer, Set<Integer>> entryTag : mapTag.entrySet()){
-					seqIds = new HashSet<Integer>(set);
-					seqIds.retainAll(entryTag.getValue());
+				for(Entry<Integer, SidSet> entryTag : mapTag.entrySet()){
+					seqIds = set.intersect(entryTag.getValue());
 					if(seqIds.size() < minSup) continue; //left && right && tag
 					
 					rootPattern = new JSPattern(prefixLeft, prefixRight, 
@@ -153,7 +160,7 @@ public class AlgoPrefixSpanJS {
 	private void runLength2PrefixSpanAndGetResult(JSPattern rootPattern,
 			SequentialPattern prefixLeft, List<PseudoSequence> initDBLeft,
 			SequentialPattern prefixRight, List<PseudoSequence> initDBRight,
-			Set<Integer> seqIds, int minSup
+			SidSet seqIds, int minSup
 			) throws IOException{
 		List<PseudoSequence> projected1DB;
 		SequentialPatterns leftResult,rightResult;
@@ -184,13 +191,12 @@ public class AlgoPrefixSpanJS {
 		}
 		
 		//Intersected pattern
-		Set<Integer> seqs;
+		SidSet seqs;
 		for(int leftLevel=0; leftLevel<leftResult.getLevelCount(); leftLevel++){
 			for(SequentialPattern leftPattern : leftResult.getLevel(leftLevel)){
 				for(int rightLevel=0; rightLevel<rightResult.getLevelCount(); rightLevel++){
 					for(SequentialPattern rightPattern : rightResult.getLevel(rightLevel)){
-						seqs = new HashSet<Integer>(leftPattern.getSequenceIDs());
-						seqs.retainAll(rightPattern.getSequenceIDs());
+						seqs = leftPattern.getSequenceIDs().intersect(rightPattern.getSequenceIDs());
 						if(seqs.size() < minSup) continue;
 						
 						patterns.add(new JSPattern(rootPattern, leftPattern, rightPattern, seqs));
@@ -201,14 +207,36 @@ public class AlgoPrefixSpanJS {
 		
 	}
 	
+	/**
+	 * Copy a database without its infrequent items into a compact database and
+	 * create a pseudo-sequence for each of its sequences.
+	 * @param database the database
+	 * @param mapSequenceID the sequence ids of sequences containing each item
+	 * @param minSup Minimum support
+	 * @return the pseudo-sequences
+	 */
+	private List<PseudoSequence> buildInitialDatabase(SequenceDatabase database,
+			Map<Integer, SidSet> mapSequenceID, int minSup){
+		CompactSequenceDatabase compactDatabase = new CompactSequenceDatabase();
+		for(Sequence sequence : database.getSequences()){
+			compactDatabase.addSequenceMinusItems(sequence, mapSequenceID, minSup);
+		}
+		compactDatabase.trimToSize();
+		List<PseudoSequence> initDB = new ArrayList<PseudoSequence>(compactDatabase.size());
+		for(int i = 0; i < compactDatabase.size(); i++){
+			initDB.add(new PseudoSequence(compactDatabase, i, 0, 0));
+		}
+		return initDB;
+	}
+	
 	/*
 	 * Methods below copied from AlgoPrefixSpan
 	 */
 	
-	private Map<Integer, Set<Integer>> findSequencesContainingItems(SequenceDatabase database) {
+	private Map<Integer, SidSet> findSequencesContainingItems(SequenceDatabase database) {
 		// We use a map to store the sequence IDs where an item appear
 		// Key : item   Value :  a set of sequence IDs
-		Map<Integer, Set<Integer>> mapSequenceID = new HashMap<Integer, Set<Integer>>(); 
+		Map<Integer, SidSet> mapSequenceID = new HashMap<Integer, SidSet>(); 
 		// for each sequence in the current database
 		for(Sequence sequence : database.getSequences()){
 			// for each itemset in this sequence
@@ -216,10 +244,10 @@ public class AlgoPrefixSpanJS {
 				// for each item
 				for(Integer item : itemset){
 					// get the set of sequence IDs for this item until now
-					Set<Integer> sequenceIDs = mapSequenceID.get(item);
+					SidSet sequenceIDs = mapSequenceID.get(item);
 					if(sequenceIDs == null){
 						// if the set does not exist, create one
-						sequenceIDs = new HashSet<Integer>();
+						sequenceIDs = new SidSet();
 						mapSequenceID.put(item, sequenceIDs);
 					}
 					// add the sequence ID of the current sequence to the 
@@ -231,7 +259,7 @@ public class AlgoPrefixSpanJS {
 		return mapSequenceID;
 	}
 	
-	private List<PseudoSequence> buildProjectedDatabaseForSingleItem(Integer item, List<PseudoSequence> initialDatabase,Set<Integer> sidSet) {
+	private List<PseudoSequence> buildProjectedDatabaseForSingleItem(Integer item, List<PseudoSequence> initialDatabase,SidSet sidSet) {
 		// We create a new projected database
 		List<PseudoSequence> sequenceDatabase = new ArrayList<PseudoSequence>();
 
@@ -0,0 +1,527 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceView;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+
+/***
+ * This is an implementation of the SPAM algorithm, which finds the same frequent
+ * sequential patterns as PrefixSpan with a vertical representation of the database.
+ * SPAM was proposed by Ayres et al. 2002.
+ *
+ * Each frequent item is represented by a SequenceBitmap (one bit per itemset of each sequence
+ * containing it), and the bitmap of each pattern is computed from the bitmap of its prefix and
+ * the bitmap of its last item with word-level operations: an S-step for an item added as a new
+ * itemset, and an I-step for an item added to the last itemset. The support of a pattern is
+ * the number of sequences of its bitmap. The items tried to extend a pattern are only the
+ * frequent extensions of its prefix (of the same kind for the I-steps, and after the last item).
+ * Since a sequence of up to 64 itemsets is one word, this is much faster than the
+ * pseudo-projections of PrefixSpan for dense databases of short sequences, while PrefixSpan
+ * is better for sparse databases and long sequences.
+ *
+ * The algorithm is run through the same SequentialPatternMiner interface as AlgoPrefixSpan,
+ * with the same outputs (a file in the SPMF text format, the memory or a PatternSink), but the
+ * patterns are found in another order. The search uses an explicit stack, as in AlgoPrefixSpan,
+ * and it is sequential.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see SequenceBitmap
+ * @see AlgoPrefixSpan
+ */
+
+public class AlgoSPAM implements SequentialPatternMiner{
+
+	// the bitmap of an item is indexed if it contains at least 1/INDEX_DENSITY of the sequences
+	// (an index takes one int per sequence of the database)
+	private static final int INDEX_DENSITY = 16;
+
+	// for statistics
+	private long startTime;
+	private long endTime;
+
+	// the number of pattern found
+	private int patternCount;
+
+	// absolute minimum support
+	private int minsuppAbsolute;
+
+	// the sink receiving the patterns (a file, the memory or a sink provided by the user)
+	private NodePatternSink sink = null;
+
+	// The sequential patterns that are found
+	// (if the user want to keep them into memory)
+	private SequentialPatterns patterns = null;
+
+	// maximum pattern length in terms of item count
+	private int maximumPatternLength = Integer.MAX_VALUE;
+
+	/** if true, sequence identifiers of each pattern will be shown*/
+	private boolean showSequenceIdentifiers = false;
+
+	/** if true, the patterns only keep their support instead of the
+	 * sequence identifiers (if they are not shown) */
+	private boolean countOnly = false;
+
+	/** if the items of the database were recoded, the recoding used to output
+	 * the patterns with the original items (null otherwise) */
+	private ItemRecoding itemRecoding = null;
+
+	/** the database that is mined (to find the IDs of the sequences) */
+	private SequenceStore database = null;
+
+	/** the frequent items, sorted (the items are identified by their index in this array) */
+	private int[] frequentItems = null;
+
+	/** the bitmap of each frequent item */
+	private SequenceBitmap[] itemBitmaps = null;
+
+	/** the bitmap receiving the extensions, before they are copied if they are frequent */
+	private SequenceBitmap buffer = null;
+
+
+	/**
+	 * Default constructor
+	 */
+	public AlgoSPAM(){
+	}
+
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceDatabase database, double minsupRelative, String outputFilePath) throws IOException {
+		return runAlgorithm(database, outputFilePath, toAbsoluteMinsup(minsupRelative, database.size()));
+	}
+
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @param minsup  :  the minimum support as an integer
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceDatabase database, String outputFilePath, int minsup) throws IOException {
+		return runAlgorithm(new CompactSequenceDatabase(database), outputFilePath, minsup);
+	}
+
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceStore database, double minsupRelative, String outputFilePath) throws IOException {
+		// the empty sequences removed while loading are counted
+		return runAlgorithm(database, outputFilePath, toAbsoluteMinsup(minsupRelative, database.getSizeBeforePruning()));
+	}
+
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @param minsup  :  the minimum support as an integer
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	public SequentialPatterns runAlgorithm(SequenceStore database, String outputFilePath, int minsup) throws IOException {
+		// if the user want to keep the result into memory
+		if(outputFilePath == null){
+			MemoryPatternSink memorySink = new MemoryPatternSink("FREQUENT SEQUENTIAL PATTERNS");
+			patterns = memorySink.getPatterns();
+			spam(database, minsup, memorySink);
+		}else{ // if the user want to save the result to a file
+			patterns = null;
+			spam(database, minsup, new FilePatternSink(outputFilePath, showSequenceIdentifiers));
+		}
+		return patterns;
+	}
+
+	/**
+	 * Run the algorithm and give each pattern found to a sink, as soon as it is found.
+	 * The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence database
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	public void runAlgorithm(SequenceDatabase database, int minsup, PatternSink sink) throws IOException {
+		runAlgorithm(new CompactSequenceDatabase(database), minsup, sink);
+	}
+
+	/**
+	 * Run the algorithm on a sequence store and give each pattern found to
+	 * a sink, as soon as it is found. The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	public void runAlgorithm(SequenceStore database, int minsup, PatternSink sink) throws IOException {
+		patterns = sink instanceof MemoryPatternSink ? ((MemoryPatternSink) sink).getPatterns() : null;
+		spam(database, minsup, NodePatternSink.of(sink));
+	}
+
+	/**
+	 * Convert a minimum support to an absolute minimum support.
+	 * @param minsupRelative the minimum support as a value in [0,1]
+	 * @param sequenceCount the number of sequences of the database
+	 * @return the absolute minimum support (at least 1)
+	 */
+	private static int toAbsoluteMinsup(double minsupRelative, int sequenceCount) {
+		return Math.max(1, (int) Math.ceil(minsupRelative * sequenceCount));
+	}
+
+	/**
+	 * This is the main method for the SPAM algorithm: it creates the bitmaps of the
+	 * frequent items and grows the patterns, and then closes the sink.
+	 * @param database a sequence store
+	 * @param minsup the absolute minimum support
+	 * @param patternSink the sink receiving the patterns
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	private void spam(SequenceStore database, int minsup, NodePatternSink patternSink) throws IOException {
+		if(database.getPruningMinsup() > minsup){
+			throw new IllegalArgumentException("The database was loaded without the items having a support lower than "
+					+ database.getPruningMinsup() + ", so it cannot be mined with a minimum support of " + minsup);
+		}
+		// initialize variables for statistics
+		patternCount = 0;
+		MemoryLogger.getInstance().reset();
+		// save the minsup chosen  by the user
+		this.minsuppAbsolute = minsup;
+		// save the start time
+		startTime = System.currentTimeMillis();
+
+		this.sink = patternSink;
+		this.database = database;
+		createItemBitmaps();
+		startOutput();
+		depthFirstSearch();
+		this.database = null;
+		frequentItems = null;
+		itemBitmaps = null;
+		buffer = null;
+
+		// save the end time
+		endTime = System.currentTimeMillis();
+		sink.close();
+	}
+
+	/**
+	 * Scan the database to create the bitmap of each item, and keep the frequent items.
+	 */
+	private void createItemBitmaps() {
+		Map<Integer, SequenceBitmap> bitmaps = new HashMap<Integer, SequenceBitmap>();
+		SequenceView view = new SequenceView();
+		for(int s = 0; s < database.size(); s++){
+			database.readSequence(s, view);
+			// one bit per itemset of the sequence
+			int wordCount = (view.getItemsetCount() + 63) >>> 6;
+			for(int i = 0; i < view.getItemsetCount(); i++){
+				for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+					int item = view.getItem(p);
+					SequenceBitmap bitmap = bitmaps.get(item);
+					if(bitmap == null){
+						bitmap = new SequenceBitmap(4, 4 * wordCount);
+						bitmaps.put(item, bitmap);
+					}
+					bitmap.setBit(s, wordCount, i);
+				}
+			}
+		}
+
+		// keep the frequent items, sorted (the order of the I-steps)
+		List<Integer> items = new ArrayList<Integer>();
+		for(Map.Entry<Integer, SequenceBitmap> entry : bitmaps.entrySet()){
+			if(entry.getValue().getSupport() >= minsuppAbsolute){
+				items.add(entry.getKey());
+			}
+		}
+		Collections.sort(items);
+		frequentItems = new int[items.size()];
+		itemBitmaps = new SequenceBitmap[items.size()];
+		for(int i = 0; i < frequentItems.length; i++){
+			frequentItems[i] = items.get(i);
+			itemBitmaps[i] = bitmaps.get(frequentItems[i]).copy();
+			if((long) itemBitmaps[i].getSupport() * INDEX_DENSITY >= database.size()){
+				itemBitmaps[i].createIndex(database.size());
+			}
+		}
+		// the arrays of the buffer grow with the largest extension
+		buffer = new SequenceBitmap(16, 16);
+	}
+
+	/**
+	 * Give the frequent items and the parameters of the search to the sink, before the first pattern.
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	private void startOutput() throws IOException {
+		int[] items = frequentItems.clone();
+		for(int i = 0; itemRecoding != null && i < items.length; i++){
+			items[i] = itemRecoding.getOriginalItem(items[i]);
+		}
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		parameters.put("algorithm", "SPAM");
+		parameters.put("minsup", Integer.toString(minsuppAbsolute));
+		parameters.put("sequenceCount", Integer.toString(database.getSizeBeforePruning()));
+		if(maximumPatternLength != Integer.MAX_VALUE){
+			parameters.put("maximumPatternLength", Integer.toString(maximumPatternLength));
+		}
+		sink.start(items, parameters);
+	}
+
+	/**
+	 * Grow the patterns from the frequent items with a depth-first search, and save them.
+	 * The search uses an explicit stack of frames instead of recursive calls, so that very
+	 * long patterns do not cause a StackOverflowError.
+	 * @throws IOException exception if there is an error writing to the output file
+	 */
+	private void depthFirstSearch() throws IOException {
+		// the extensions of the empty pattern are the frequent items
+		SearchFrame root = new SearchFrame(null, 0);
+		root.sItems = new int[frequentItems.length];
+		root.sBitmaps = itemBitmaps.clone();
+		for(int i = 0; i < frequentItems.length; i++){
+			root.sItems[i] = i;
+		}
+		root.sCount = frequentItems.length;
+
+		Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+		stack.push(root);
+		while(!stack.isEmpty()){
+			SearchFrame frame = stack.peek();
+			// if all the extensions of the prefix were explored, return to the previous prefix
+			if(frame.next == frame.sCount + frame.iCount){
+				stack.pop();
+				// check the current memory usage
+				MemoryLogger.getInstance().checkMemory();
+				continue;
+			}
+			int extension = frame.next++;
+			boolean itemsetExtension = extension >= frame.sCount;
+			int position = itemsetExtension ? extension - frame.sCount : extension;
+			int item = itemsetExtension ? frame.iItems[position] : frame.sItems[position];
+			SequenceBitmap[] bitmaps = itemsetExtension ? frame.iBitmaps : frame.sBitmaps;
+			SequenceBitmap bitmap = bitmaps[position];
+			// the bitmap is not needed by the next extensions of the prefix
+			bitmaps[position] = null;
+
+			PatternNode pattern = new PatternNode(frame.prefix, frequentItems[item], itemsetExtension);
+			setSupport(pattern, bitmap);
+			savePattern(pattern);
+
+			// grow the new pattern before the next extensions of the prefix
+			if(frame.length + 1 < maximumPatternLength){
+				// its S-steps are the S-steps of the prefix, and its I-steps are the items
+				// after its last item that extend the prefix in the same way
+				SearchFrame newFrame = new SearchFrame(pattern, frame.length + 1);
+				findExtensions(newFrame, bitmap, frame.sItems, 0, frame.sCount,
+						itemsetExtension ? frame.iItems : frame.sItems, position + 1,
+						itemsetExtension ? frame.iCount : frame.sCount);
+				if(newFrame.sCount + newFrame.iCount > 0){
+					stack.push(newFrame);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the frequent extensions of the pattern of a frame, among candidate items.
+	 * @param frame the frame
+	 * @param bitmap the bitmap of the pattern of the frame
+	 * @param sItems the items tried for the S-steps
+	 * @param sFrom the position of the first item tried for the S-steps
+	 * @param sTo the position after the last item tried for the S-steps
+	 * @param iItems the items tried for the I-steps
+	 * @param iFrom the position of the first item tried for the I-steps
+	 * @param iTo the position after the last item tried for the I-steps
+	 */
+	private void findExtensions(SearchFrame frame, SequenceBitmap bitmap, int[] sItems, int sFrom, int sTo,
+			int[] iItems, int iFrom, int iTo) {
+		frame.sItems = new int[sTo - sFrom];
+		frame.sBitmaps = new SequenceBitmap[sTo - sFrom];
+		if(sTo > sFrom){
+			long[] mask = bitmap.createSStepMask();
+			for(int i = sFrom; i < sTo; i++){
+				if(bitmap.join(mask, itemBitmaps[sItems[i]], minsuppAbsolute, buffer)){
+					frame.sItems[frame.sCount] = sItems[i];
+					frame.sBitmaps[frame.sCount++] = buffer.copy();
+				}
+			}
+		}
+		frame.iItems = new int[Math.max(0, iTo - iFrom)];
+		frame.iBitmaps = new SequenceBitmap[frame.iItems.length];
+		for(int i = iFrom; i < iTo; i++){
+			if(bitmap.join(bitmap.getWords(), itemBitmaps[iItems[i]], minsuppAbsolute, buffer)){
+				frame.iItems[frame.iCount] = iItems[i];
+				frame.iBitmaps[frame.iCount++] = buffer.copy();
+			}
+		}
+	}
+
+	/**
+	 * Set the support of a new pattern from its bitmap: its sequence identifiers,
+	 * or only its support in count-only mode.
+	 * @param pattern the pattern
+	 * @param bitmap the bitmap of the pattern
+	 */
+	private void setSupport(PatternNode pattern, SequenceBitmap bitmap) {
+		if(!countOnly || showSequenceIdentifiers){
+			pattern.setSequenceIDs(bitmap.toSidSet(database));
+		}else{
+			pattern.setAbsoluteSupport(bitmap.getSupport());
+		}
+	}
+
+	/**
+	 * This method saves a sequential pattern to the output file or
+	 * in memory, depending on if the user provided an output file path or not
+	 * when he launched the algorithm, or gives it to the sink provided by the user
+	 * @param pattern the pattern to be saved.
+	 * @throws IOException exception if error while writing the output file.
+	 */
+	private void savePattern(PatternNode pattern) throws IOException {
+		// increase the number of pattern found for statistics purposes
+		patternCount++;
+		sink.savePattern(pattern, itemRecoding);
+	}
+
+	/**
+	 * Print statistics about the algorithm execution to System.out.
+	 * @param size  the size of the database
+	 */
+	public void printStatistics(int size) {
+		StringBuilder r = new StringBuilder(200);
+		r.append("=============  SPAM - STATISTICS =============\n Total time ~ ");
+		r.append(endTime - startTime);
+		r.append(" ms\n");
+		r.append(" Frequent sequences count : " + patternCount);
+		r.append('\n');
+		r.append(" Max memory (mb) : " );
+		r.append(MemoryLogger.getInstance().getMaxMemory());
+		r.append('\n');
+		r.append("===================================================\n");
+		// if the result was save into memory, print it
+		if(patterns !=null){
+			patterns.printFrequentPatterns(size, showSequenceIdentifiers);
+		}
+		System.out.println(r.toString());
+	}
+
+	/**
+	 * Get the maximum length of patterns to be found (in terms of item count)
+	 * @return the maximumPatternLength
+	 */
+	public int getMaximumPatternLength() {
+		return maximumPatternLength;
+	}
+
+	/**
+	 * Set the maximum length of patterns to be found (in terms of item count)
+	 * @param maximumPatternLength the maximumPatternLength to set
+	 */
+	public void setMaximumPatternLength(int maximumPatternLength) {
+		this.maximumPatternLength = maximumPatternLength;
+	}
+
+	/**
+	 * Set that the sequence identifiers should be shown (true) or not (false) for each
+	 * pattern found
+	 * @param showSequenceIdentifiers true or false
+	 */
+	public void setShowSequenceIdentifiers(boolean showSequenceIdentifiers) {
+		this.showSequenceIdentifiers = showSequenceIdentifiers;
+	}
+
+	/**
+	 * Set the count-only mode. In this mode, the patterns only keep their support
+	 * instead of the set of sequence identifiers (getSequenceIDs() returns null), which
+	 * reduces the memory used by the patterns kept into memory. This has no effect
+	 * if the sequence identifiers are shown (see setShowSequenceIdentifiers()).
+	 * @param countOnly true to use the count-only mode
+	 */
+	public void setCountOnly(boolean countOnly) {
+		this.countOnly = countOnly;
+	}
+
+	/**
+	 * Set the recoding of the items of the database (see SequenceDatabase.recodeItems()),
+	 * so that the patterns are output with the original items.
+	 * @param itemRecoding the recoding, or null if the items were not recoded
+	 */
+	public void setItemRecoding(ItemRecoding itemRecoding) {
+		this.itemRecoding = itemRecoding;
+	}
+
+	/**
+	 * A frame of the depth-first search: a pattern with its frequent S-steps and I-steps
+	 * (the items and the bitmaps of the extensions).
+	 */
+	private static class SearchFrame {
+		// the pattern (null for the empty pattern)
+		final PatternNode prefix;
+		// the length of the pattern in terms of items
+		final int length;
+		// the items of the frequent S-steps, sorted, and the bitmaps of the extensions
+		int[] sItems;
+		SequenceBitmap[] sBitmaps;
+		int sCount = 0;
+		// the items of the frequent I-steps, sorted, and the bitmaps of the extensions
+		int[] iItems;
+		SequenceBitmap[] iBitmaps;
+		int iCount = 0;
+		// the position of the next extension to be explored (the S-steps first)
+		int next = 0;
+
+		/**
+		 * Constructor
+		 * @param prefix the pattern (null for the empty pattern)
+		 * @param length the length of the pattern in terms of items
+		 */
+		SearchFrame(PatternNode prefix, int length) {
+			this.prefix = prefix;
+			this.length = length;
+		}
+	}
+}
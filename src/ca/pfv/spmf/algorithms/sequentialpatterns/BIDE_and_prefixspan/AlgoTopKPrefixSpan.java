@@ -0,0 +1,249 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import ca.pfv.spmf.tools.MemoryLogger;
+
+
+/***
+ * This is a top-k version of the PrefixSpan algorithm: it finds the k sequential patterns 
+ * having the highest support, without having to choose a minimum support.
+ * The idea of raising the minimum support during the search is the one of the TKS 
+ * algorithm (Fournier-Viger et al. 2013), applied to the PrefixSpan search.
+ *
+ * The patterns found are kept in a min-heap ordered by support. As soon as the heap contains
+ * k patterns, a new pattern replaces the pattern of the heap having the lowest support only if it
+ * has a higher support. Since the extensions of a pattern do not have a higher support than it,
+ * the minimum support is raised to the lowest support of the heap plus one, so that the next 
+ * projected databases are smaller and the search ends earlier. To raise
+ * the minimum support quickly, the extensions of a prefix are added to the heap as soon as
+ * they are found (before growing any of them), and they are grown from the one with the 
+ * highest support. The extensions whose support became lower than the minimum support
+ * before they are grown are skipped.
+ *
+ * The minimum support given to runAlgorithm() is the initial minimum support (1 to find
+ * the top-k patterns of the whole database). The patterns are saved at the end of the search,
+ * from the highest support to the lowest one. If several patterns have the support of the
+ * k-th pattern, those found first are kept, so that exactly k patterns are saved (unless fewer
+ * patterns have the initial minimum support). The search is shared with the other algorithms
+ * based on PrefixSpan (see AbstractPrefixSpan), and it is sequential: the parallel mode and
+ * the checkpoints of AlgoPrefixSpan are not available.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AbstractPrefixSpan
+ * @see AlgoPrefixSpan
+ */
+
+public class AlgoTopKPrefixSpan extends AbstractPrefixSpan{
+
+	// the number of patterns to be found
+	private final int k;
+
+	// the patterns found, from the lowest support (with the order where they were found)
+	private PriorityQueue<RankedPattern> topPatterns = null;
+	// the number of patterns added to the heap until now
+	private long addedPatternCount;
+
+	// the order of the patterns in the heap: from the lowest support
+	private static final Comparator<RankedPattern> LOWEST_SUPPORT_FIRST = new Comparator<RankedPattern>() {
+		@Override
+		public int compare(RankedPattern o1, RankedPattern o2) {
+			if(o1.support != o2.support){
+				return o1.support < o2.support ? -1 : 1;
+			}
+			return Long.compare(o1.order, o2.order);
+		}
+	};
+
+	// the order of the extensions of a prefix: from the highest support
+	private static final Comparator<Pair> HIGHEST_SUPPORT_FIRST = new Comparator<Pair>() {
+		@Override
+		public int compare(Pair o1, Pair o2) {
+			return Integer.compare(o2.getCount(), o1.getCount());
+		}
+	};
+
+	/**
+	 * Constructor
+	 * @param k the number of patterns to be found
+	 */
+	public AlgoTopKPrefixSpan(int k){
+		if(k < 1){
+			throw new IllegalArgumentException("k must be at least 1");
+		}
+		this.k = k;
+	}
+
+	@Override
+	String getAlgorithmName() {
+		return "TopKPrefixSpan";
+	}
+
+	@Override
+	void putParameters(Map<String, String> parameters) {
+		parameters.put("k", Integer.toString(k));
+	}
+
+	/**
+	 * Method to grow a given sequential pattern with a depth-first search, keeping the
+	 * top-k patterns, and save them when the search is finished.
+	 * @param prefix  the current sequential pattern that we want to try to grow (null for the empty pattern)
+	 * @param database the current projected sequence database
+	 * @param k  the prefix length in terms of items
+	 * @throws IOException exception if there is an error writing to the output file
+	 */
+	@Override
+	void depthFirstSearch(PatternNode prefix, ProjectedDatabase database, int k) throws IOException {
+		topPatterns = new PriorityQueue<RankedPattern>(this.k + 1, LOWEST_SUPPORT_FIRST);
+		addedPatternCount = 0;
+		Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+		stack.push(createTopKFrame(prefix, database, k));
+
+		while(!stack.isEmpty()){
+			SearchFrame frame = stack.peek();
+			// if all the extensions of the prefix were explored, return to the previous prefix
+			if(frame.next == frame.pairs.size()){
+				stack.pop();
+				// check the current memory usage
+				MemoryLogger.getInstance().checkMemory();
+				continue;
+			}
+			Pair pair = frame.pairs.get(frame.next++);
+			if(pair.getCount() < minsuppAbsolute){
+				// the minimum support was raised since the extension was found
+				// (the next extensions of the prefix have a lower support)
+				frame.next = frame.pairs.size();
+				continue;
+			}
+			// grow the new prefix (it was added to the heap with the other extensions of the prefix)
+			if(frame.k < getMaximumPatternLength()){
+				PatternNode newPrefix = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+				setSupport(newPrefix, pair);
+				ProjectedDatabase projectedDatabase = buildProjectedDatabase(pair, frame.database,
+						arena.get(frame.k, frame.database.getDatabase()));
+				stack.push(createTopKFrame(newPrefix, projectedDatabase, frame.k + 1));
+			}
+		}
+		saveTopPatterns();
+	}
+
+	/**
+	 * Create a frame of the depth-first search, add the extensions of its prefix to the heap,
+	 * and sort them from the highest support.
+	 * @param prefix the prefix (null for the empty pattern)
+	 * @param database the projected database of the prefix
+	 * @param k the length of the extensions of the prefix in terms of items
+	 * @return the frame
+	 */
+	private SearchFrame createTopKFrame(PatternNode prefix, ProjectedDatabase database, int k) {
+		SearchFrame frame = createFrame(prefix, database, k);
+		Collections.sort(frame.pairs, HIGHEST_SUPPORT_FIRST);
+		for(Pair pair : frame.pairs){
+			if(pair.getCount() < minsuppAbsolute){
+				break;
+			}
+			PatternNode pattern = new PatternNode(prefix, pair.getItem(), pair.isPostfix());
+			setSupport(pattern, pair);
+			addPattern(pattern, pair.getCount());
+		}
+		return frame;
+	}
+
+	/**
+	 * Add a pattern to the heap if it contains less than k patterns or if the pattern has a higher
+	 * support than one of them (which is removed), and raise the minimum support if the heap is full.
+	 * @param pattern the pattern
+	 * @param support the support of the pattern
+	 */
+	private void addPattern(PatternNode pattern, int support) {
+		if(topPatterns.size() == k){
+			if(support <= topPatterns.peek().support){
+				return;
+			}
+			topPatterns.poll();
+		}
+		topPatterns.add(new RankedPattern(pattern, support, addedPatternCount++));
+		if(topPatterns.size() == k){
+			// a pattern must have a higher support than the lowest one to enter the heap
+			minsuppAbsolute = Math.max(minsuppAbsolute, topPatterns.peek().support + 1);
+		}
+	}
+
+	/**
+	 * Save the patterns of the heap, from the highest support to the lowest one
+	 * (in the order where they were found for a same support).
+	 * @throws IOException exception if error while writing the output file
+	 */
+	private void saveTopPatterns() throws IOException {
+		List<RankedPattern> patterns = new ArrayList<RankedPattern>(topPatterns);
+		topPatterns = null;
+		Collections.sort(patterns, new Comparator<RankedPattern>() {
+			@Override
+			public int compare(RankedPattern o1, RankedPattern o2) {
+				if(o1.support != o2.support){
+					return o1.support > o2.support ? -1 : 1;
+				}
+				return Long.compare(o1.order, o2.order);
+			}
+		});
+		for(RankedPattern pattern : patterns){
+			savePattern(pattern.pattern);
+		}
+	}
+
+	/**
+	 * Get the number of patterns to be found.
+	 * @return k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * A pattern of the heap, with its support and the order where it was found.
+	 */
+	private static class RankedPattern {
+		// the pattern
+		final PatternNode pattern;
+		// the support of the pattern
+		final int support;
+		// the number of patterns found before this pattern
+		final long order;
+
+		/**
+		 * Constructor
+		 * @param pattern the pattern
+		 * @param support the support of the pattern
+		 * @param order the number of patterns found before this pattern
+		 */
+		RankedPattern(PatternNode pattern, int support, long order) {
+			this.pattern = pattern;
+			this.support = support;
+			this.order = order;
+		}
+	}
+}
@@ -0,0 +1,488 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceView;
+
+/**
+ * This class checks the backward extensions of a pattern for the BIDE+ algorithm
+ * (Wang and Han, 2004). An item e is a backward extension of a pattern P = I1 I2 ... Im
+ * (where Ij is an itemset) if it can be added to P before its last item, either as a new
+ * itemset before an itemset Ij or in an itemset Ij, so that the new pattern has the same support.
+ * Such an item must appear in a period of each sequence containing P:
+ * <br/><br/>
+ * - the j-th maximum period of P in a sequence S is the part of S between the end of the
+ * first instance of I1 ... I(j-1) in S (the instance found from the start of S) and the itemset
+ * matching Ij in the last instance of Ij ... Im in S (the instance found from the end of S).
+ * If an item appears in the j-th maximum period of each sequence, P is not closed.<br/>
+ * - the j-th semi-maximum period of P in S is the part of S between the end of the first
+ * instance of I1 ... I(j-1) and the itemset matching Ij in the first instance of I1 ... Ij.
+ * If an item appears in the j-th semi-maximum period of each sequence, it also appears
+ * in the same period of each sequence containing a pattern starting with P, so that
+ * no such pattern is closed and the search can skip P (BackScan pruning).
+ * <br/><br/>
+ * For the items added to an itemset Ij, the periods are the itemsets containing Ij
+ * between the same bounds (the itemset matching Ij being included in the semi-maximum period).
+ * The items that may be added to the last itemset are not checked for the BackScan pruning,
+ * since the last itemset changes when the pattern is extended with an item of the same itemset.
+ * <br/><br/>
+ * The items appearing in each period of the first sequence are the candidates of the period,
+ * and they are intersected with the items of the same period of the next sequences, so that
+ * the sequences are only read until no candidate remains. Since a semi-maximum period is
+ * the start of the maximum period with the same bounds at left, both are read together, and
+ * the candidates of the semi-maximum period are flagged among those of the maximum period.
+ * <br/><br/>
+ * For the MaxSP algorithm, which finds the maximal patterns, a backward extension only needs
+ * to be frequent (see hasFrequentBackwardExtension()): the support of the items is counted in 
+ * the maximum periods, with arrays indexed by item as in SupportCounter.
+ * An instance is not thread-safe.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoBIDEPlus
+ * @see AlgoMaxSP
+ */
+class BackwardExtensionChecker {
+
+	/** result of check(): the pattern has no backward extension */
+	static final int NO_BACKWARD_EXTENSION = 0;
+	/** result of check(): the pattern has a backward extension, so it is not closed */
+	static final int BACKWARD_EXTENSION = 1;
+	/** result of check(): an item appears in a semi-maximum period of each sequence,
+	 * so that the pattern and the patterns starting with it can be pruned */
+	static final int BACKSCAN_PRUNED = 2;
+
+	// the items of the pattern and the position following the last item of each itemset
+	private int[] items = new int[16];
+	private int[] itemsetEnds = new int[16];
+	// the number of itemsets of the pattern
+	private int itemsetCount;
+
+	// for each itemset of the pattern, the index of its itemset in the first and the last
+	// instance of the pattern in the current sequence
+	private int[] firstInstance = new int[16];
+	private int[] lastInstance = new int[16];
+
+	// the sorted candidates of each period: periods 0 to m-1 are the periods for a new
+	// itemset before each itemset, and m to 2m-1 the periods for an item added to each
+	// itemset (m = number of itemsets of the pattern)
+	private int[][] candidates = new int[32][];
+	// the number of candidates of each period
+	private int[] candidateCounts = new int[32];
+	// for each candidate of each period, true if it is a candidate of the semi-maximum period
+	private boolean[][] semiCandidates = new boolean[32][];
+	// the number of candidates of the semi-maximum period of each period
+	private int[] semiCandidateCounts = new int[32];
+	// for each candidate of the current period, true if it appears in the maximum or the 
+	// semi-maximum period of the current sequence
+	private boolean[] found = new boolean[16];
+	private boolean[] foundSemi = new boolean[16];
+
+	// for hasFrequentBackwardExtension(): the first and the last instance of the pattern
+	// in each sequence, and the number of itemsets of each sequence
+	private int[] instances = new int[64];
+	private int[] sequenceLengths = new int[16];
+	// the number of sequences where each item appears in the current period, and the last 
+	// of these sequences (the items that are too large for the arrays are counted in a map)
+	private int[] itemCounts = new int[0];
+	private int[] lastSequences = new int[0];
+	private final Map<Integer, int[]> sparseCounts = new HashMap<Integer, int[]>();
+	// the items counted in the current period (to clear the arrays)
+	private int[] countedItems = new int[16];
+	private int countedItemCount = 0;
+
+	// the view used to read the sequences
+	private final SequenceView view = new SequenceView();
+
+	/**
+	 * Check the backward extensions of a pattern and the BackScan pruning.
+	 * @param pattern the pattern
+	 * @param pair the pair of the last item of the pattern, with the groups where it appears
+	 * @param database the projected database of the pattern without its last item
+	 *    (the groups of the pair are groups of this database)
+	 * @return BACKSCAN_PRUNED, BACKWARD_EXTENSION or NO_BACKWARD_EXTENSION
+	 */
+	int check(PatternNode pattern, Pair pair, ProjectedDatabase database) {
+		setPattern(pattern);
+		int m = itemsetCount;
+		if(candidates.length < 2 * m){
+			candidates = new int[2 * m][];
+			candidateCounts = new int[2 * m];
+			semiCandidates = new boolean[2 * m][];
+			semiCandidateCounts = new int[2 * m];
+		}
+		SequenceStore sequences = database.getDatabase();
+
+		// for each sequence containing the pattern
+		for(int g = 0; g < pair.getGroupCount(); g++){
+			sequences.readSequence(database.getSequence(pair.getGroup(g)), view);
+			findInstances();
+			boolean first = g == 0;
+			boolean remaining = false;
+			for(int j = 0; j < m; j++){
+				int start = j == 0 ? 0 : firstInstance[j - 1] + 1;
+				// a new itemset before the itemset j
+				remaining |= updatePeriod(j, first, start, lastInstance[j], firstInstance[j], -1);
+				// an item added to the itemset j (not checked for the BackScan pruning if it is the last itemset)
+				int end = j + 1 < m ? lastInstance[j + 1] : view.getItemsetCount();
+				remaining |= updatePeriod(m + j, first, start, end, j + 1 < m ? firstInstance[j] + 1 : start, j);
+			}
+			if(!remaining){
+				// no item appears in the maximum periods of all the sequences read until now
+				return NO_BACKWARD_EXTENSION;
+			}
+		}
+		for(int i = 0; i < 2 * m; i++){
+			if(semiCandidateCounts[i] != 0){
+				return BACKSCAN_PRUNED;
+			}
+		}
+		return BACKWARD_EXTENSION;
+	}
+
+	/**
+	 * Check if a pattern has a frequent backward extension: an item that can be added to 
+	 * the pattern before its last item so that the new pattern has a support of at least minsup.
+	 * The items are counted in the maximum periods of the sequences containing the pattern, one
+	 * period after the other, and the check stops at the first frequent item.
+	 * @param pattern the pattern
+	 * @param pair the pair of the last item of the pattern, with the groups where it appears
+	 * @param database the projected database of the pattern without its last item
+	 * @param minsup the absolute minimum support
+	 * @return true if the pattern has a frequent backward extension
+	 */
+	boolean hasFrequentBackwardExtension(PatternNode pattern, Pair pair, ProjectedDatabase database, int minsup) {
+		setPattern(pattern);
+		int m = itemsetCount;
+		int sequenceCount = pair.getGroupCount();
+		if(sequenceCount < minsup){
+			return false;
+		}
+		if(instances.length < 2 * m * sequenceCount){
+			instances = new int[Math.max(2 * m * sequenceCount, instances.length * 2)];
+		}
+		if(sequenceLengths.length < sequenceCount){
+			sequenceLengths = new int[Math.max(sequenceCount, sequenceLengths.length * 2)];
+		}
+		SequenceStore sequences = database.getDatabase();
+		// find the first and the last instance of the pattern in each sequence
+		for(int g = 0; g < sequenceCount; g++){
+			sequences.readSequence(database.getSequence(pair.getGroup(g)), view);
+			findInstances();
+			System.arraycopy(firstInstance, 0, instances, 2 * m * g, m);
+			System.arraycopy(lastInstance, 0, instances, 2 * m * g + m, m);
+			sequenceLengths[g] = view.getItemsetCount();
+		}
+
+		// periods 0 to m-1: a new itemset before each itemset, m to 2m-1: an item added to each itemset
+		for(int period = 0; period < 2 * m; period++){
+			int j = period < m ? period : period - m;
+			int maxCount = 0;
+			for(int g = 0; g < sequenceCount && maxCount + sequenceCount - g >= minsup; g++){
+				int offset = 2 * m * g;
+				int start = j == 0 ? 0 : instances[offset + j - 1] + 1;
+				int end;
+				if(period < m){
+					end = instances[offset + m + j];
+				}else{
+					end = j + 1 < m ? instances[offset + m + j + 1] : sequenceLengths[g];
+				}
+				if(start >= end){
+					continue;
+				}
+				sequences.readSequence(database.getSequence(pair.getGroup(g)), view);
+				for(int itemset = start; itemset < end; itemset++){
+					if(period >= m && !containsItemset(itemset, j)){
+						continue;
+					}
+					for(int p = view.getFirstItem(itemset); p < view.getLastItem(itemset); p++){
+						int item = view.getItem(p);
+						if(period >= m && isInItemset(item, j)){
+							continue;
+						}
+						int count = countItem(item, g);
+						if(count >= minsup){
+							clearCounts();
+							return true;
+						}
+						maxCount = Math.max(maxCount, count);
+					}
+				}
+			}
+			clearCounts();
+		}
+		return false;
+	}
+
+	/**
+	 * Count an item in a sequence of the current period, if it was not already counted in it.
+	 * @param item the item
+	 * @param sequence the index of the sequence
+	 * @return the number of sequences where the item appears in the period until now
+	 */
+	private int countItem(int item, int sequence) {
+		if(item < 0 || item > SupportCounter.MAX_DENSE_ITEM){
+			int[] count = sparseCounts.get(item);
+			if(count == null){
+				count = new int[]{0, -1};
+				sparseCounts.put(item, count);
+			}
+			if(count[1] != sequence){
+				count[1] = sequence;
+				count[0]++;
+			}
+			return count[0];
+		}
+		if(item >= itemCounts.length){
+			int oldLength = itemCounts.length;
+			int length = Math.min(SupportCounter.MAX_DENSE_ITEM + 1, Math.max(item + 1, oldLength * 2));
+			itemCounts = Arrays.copyOf(itemCounts, length);
+			lastSequences = Arrays.copyOf(lastSequences, length);
+			Arrays.fill(lastSequences, oldLength, length, -1);
+		}
+		if(lastSequences[item] != sequence){
+			if(lastSequences[item] == -1){
+				if(countedItemCount == countedItems.length){
+					countedItems = Arrays.copyOf(countedItems, countedItemCount * 2);
+				}
+				countedItems[countedItemCount++] = item;
+			}
+			lastSequences[item] = sequence;
+			itemCounts[item]++;
+		}
+		return itemCounts[item];
+	}
+
+	/**
+	 * Clear the counts of the items of the current period.
+	 */
+	private void clearCounts() {
+		for(int i = 0; i < countedItemCount; i++){
+			itemCounts[countedItems[i]] = 0;
+			lastSequences[countedItems[i]] = -1;
+		}
+		countedItemCount = 0;
+		sparseCounts.clear();
+	}
+
+	/**
+	 * Copy the items and the itemsets of the pattern.
+	 * @param pattern the pattern
+	 */
+	private void setPattern(PatternNode pattern) {
+		if(items.length < pattern.getLength()){
+			items = new int[Math.max(pattern.getLength(), items.length * 2)];
+		}
+		itemsetCount = pattern.getItemsetCount();
+		if(itemsetEnds.length < itemsetCount){
+			int capacity = Math.max(itemsetCount, itemsetEnds.length * 2);
+			itemsetEnds = new int[capacity];
+			firstInstance = new int[capacity];
+			lastInstance = new int[capacity];
+		}
+		pattern.getItems(null, items, itemsetEnds);
+	}
+
+	/**
+	 * Find the first and the last instance of the pattern in the sequence of the view.
+	 * The instances are found greedily, from the start and from the end of the sequence.
+	 */
+	private void findInstances() {
+		int itemset = 0;
+		for(int j = 0; j < itemsetCount; j++){
+			while(!containsItemset(itemset, j)){
+				itemset++;
+			}
+			firstInstance[j] = itemset++;
+		}
+		itemset = view.getItemsetCount() - 1;
+		for(int j = itemsetCount - 1; j >= 0; j--){
+			while(!containsItemset(itemset, j)){
+				itemset--;
+			}
+			lastInstance[j] = itemset--;
+		}
+	}
+
+	/**
+	 * Check if an itemset of the sequence contains an itemset of the pattern
+	 * (the items of both itemsets are sorted).
+	 * @param itemset the index of the itemset in the sequence
+	 * @param j the index of the itemset of the pattern
+	 * @return true if it contains it
+	 */
+	private boolean containsItemset(int itemset, int j) {
+		int p = view.getFirstItem(itemset);
+		int last = view.getLastItem(itemset);
+		int end = itemsetEnds[j];
+		for(int i = j == 0 ? 0 : itemsetEnds[j - 1]; i < end; i++){
+			while(p < last && view.getItem(p) < items[i]){
+				p++;
+			}
+			if(p == last || view.getItem(p) != items[i]){
+				return false;
+			}
+			p++;
+		}
+		return true;
+	}
+
+	/**
+	 * Update the candidates of a period with the items appearing in this period of the
+	 * sequence of the view: the items become the candidates if it is the first sequence,
+	 * and the candidates that do not appear are removed otherwise. The candidates of the
+	 * semi-maximum period are updated in the same way.
+	 * @param period the index of the period
+	 * @param first true if it is the first sequence
+	 * @param start the index of the first itemset of the period
+	 * @param end the index following the last itemset of the maximum period
+	 * @param semiEnd the index following the last itemset of the semi-maximum period
+	 * @param j the index of the itemset of the pattern to which the items would be added
+	 *   (only the itemsets containing it are read, and its items are ignored), or -1
+	 *   if the items would form a new itemset
+	 * @return true if some candidates of the maximum period remain
+	 */
+	private boolean updatePeriod(int period, boolean first, int start, int end, int semiEnd, int j) {
+		if(first){
+			return initializePeriod(period, start, end, semiEnd, j);
+		}
+		int count = candidateCounts[period];
+		if(count == 0){
+			return false;
+		}
+		int[] periodItems = candidates[period];
+		boolean[] semi = semiCandidates[period];
+		if(found.length < count){
+			found = new boolean[Math.max(count, found.length * 2)];
+			foundSemi = new boolean[found.length];
+		}
+		Arrays.fill(found, 0, count, false);
+		Arrays.fill(foundSemi, 0, count, false);
+		for(int itemset = start; itemset < end; itemset++){
+			if(j >= 0 && !containsItemset(itemset, j)){
+				continue;
+			}
+			boolean inSemiPeriod = itemset < semiEnd;
+			for(int p = view.getFirstItem(itemset); p < view.getLastItem(itemset); p++){
+				int index = Arrays.binarySearch(periodItems, 0, count, view.getItem(p));
+				if(index >= 0){
+					found[index] = true;
+					foundSemi[index] |= inSemiPeriod;
+				}
+			}
+		}
+		// keep the candidates that were found
+		int remaining = 0;
+		int remainingSemi = 0;
+		for(int i = 0; i < count; i++){
+			if(found[i]){
+				semi[remaining] = semi[i] && foundSemi[i];
+				if(semi[remaining]){
+					remainingSemi++;
+				}
+				periodItems[remaining++] = periodItems[i];
+			}
+		}
+		candidateCounts[period] = remaining;
+		semiCandidateCounts[period] = remainingSemi;
+		return remaining != 0;
+	}
+
+	/**
+	 * Set the candidates of a period to the items appearing in this period of the first sequence.
+	 * @param period the index of the period
+	 * @param start the index of the first itemset of the period
+	 * @param end the index following the last itemset of the maximum period
+	 * @param semiEnd the index following the last itemset of the semi-maximum period
+	 * @param j the index of the itemset of the pattern to which the items would be added, or -1
+	 * @return true if the maximum period has some candidates
+	 */
+	private boolean initializePeriod(int period, int start, int end, int semiEnd, int j) {
+		int count = 0;
+		int[] periodItems = candidates[period];
+		if(periodItems == null){
+			periodItems = new int[16];
+		}
+		for(int itemset = start; itemset < end; itemset++){
+			if(j >= 0 && !containsItemset(itemset, j)){
+				continue;
+			}
+			for(int p = view.getFirstItem(itemset); p < view.getLastItem(itemset); p++){
+				int item = view.getItem(p);
+				if(j >= 0 && isInItemset(item, j)){
+					continue;
+				}
+				if(count == periodItems.length){
+					periodItems = Arrays.copyOf(periodItems, count * 2);
+				}
+				periodItems[count++] = item;
+			}
+		}
+		// sort the items and remove the duplicates
+		Arrays.sort(periodItems, 0, count);
+		int distinct = 0;
+		for(int i = 0; i < count; i++){
+			if(distinct == 0 || periodItems[distinct - 1] != periodItems[i]){
+				periodItems[distinct++] = periodItems[i];
+			}
+		}
+		candidates[period] = periodItems;
+		candidateCounts[period] = distinct;
+
+		// flag the candidates appearing in the semi-maximum period
+		boolean[] semi = semiCandidates[period];
+		if(semi == null || semi.length < periodItems.length){
+			semi = new boolean[periodItems.length];
+			semiCandidates[period] = semi;
+		}
+		Arrays.fill(semi, 0, distinct, false);
+		int semiCount = 0;
+		for(int itemset = start; itemset < Math.min(end, semiEnd); itemset++){
+			if(j >= 0 && !containsItemset(itemset, j)){
+				continue;
+			}
+			for(int p = view.getFirstItem(itemset); p < view.getLastItem(itemset); p++){
+				int index = Arrays.binarySearch(periodItems, 0, distinct, view.getItem(p));
+				if(index >= 0 && !semi[index]){
+					semi[index] = true;
+					semiCount++;
+				}
+			}
+		}
+		semiCandidateCounts[period] = semiCount;
+		return distinct != 0;
+	}
+
+	/**
+	 * Check if an item is in an itemset of the pattern.
+	 * @param item the item
+	 * @param j the index of the itemset of the pattern
+	 * @return true if it is in the itemset
+	 */
+	private boolean isInItemset(int item, int j) {
+		for(int i = j == 0 ? 0 : itemsetEnds[j - 1]; i < itemsetEnds[j]; i++){
+			if(items[i] == item){
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,206 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+
+/**
+ * This class converts a file of sequential patterns between the text format of SPMF
+ * (see FilePatternSink) and the binary format (see BinaryPatternSink).
+ * A text file is read twice: once to build the item dictionary, and once to convert the patterns.
+ * The patterns are never all kept into memory.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see BinaryPatternSink
+ * @see BinaryPatternReader
+ * @see FilePatternSink
+ */
+public class BinaryPatternConverter {
+
+	/**
+	 * Convert a text file of patterns to a binary file.
+	 * @param input the path of the text file
+	 * @param output the path of the binary file (it is replaced)
+	 * @throws IOException exception if an error while reading or writing the files, or if a line is invalid
+	 */
+	public static void textToBinary(String input, String output) throws IOException {
+		// first pass: find the items and check if the sequence IDs are present
+		int[] items = new int[64];
+		int itemCount = 0;
+		boolean sequenceIdentifiers = false;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.US_ASCII));
+		try{
+			String line;
+			int lineNumber = 0;
+			while((line = reader.readLine()) != null){
+				lineNumber++;
+				SequentialPattern pattern = parsePattern(line, input, lineNumber);
+				if(pattern == null){
+					continue;
+				}
+				for(Itemset itemset : pattern.getItemsets()){
+					for(int i = 0; i < itemset.size(); i++){
+						if(itemCount == items.length){
+							// remove the duplicates before growing the array
+							itemCount = sortDistinct(items, itemCount);
+							if(itemCount > items.length / 2){
+								items = Arrays.copyOf(items, items.length * 2);
+							}
+						}
+						items[itemCount++] = itemset.get(i);
+					}
+				}
+				sequenceIdentifiers |= pattern.getSequenceIDs() != null;
+			}
+		}finally{
+			reader.close();
+		}
+		int[] dictionary = Arrays.copyOf(items, sortDistinct(items, itemCount));
+
+		// second pass: write the patterns
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		parameters.put("source", input);
+		BinaryPatternSink sink = new BinaryPatternSink(output, sequenceIdentifiers, dictionary, parameters);
+		reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), StandardCharsets.US_ASCII));
+		try{
+			String line;
+			int lineNumber = 0;
+			while((line = reader.readLine()) != null){
+				lineNumber++;
+				SequentialPattern pattern = parsePattern(line, input, lineNumber);
+				if(pattern != null){
+					sink.savePattern(pattern);
+				}
+			}
+		}finally{
+			reader.close();
+			sink.close();
+		}
+	}
+
+	/**
+	 * Convert a binary file of patterns to a text file.
+	 * @param input the path of the binary file
+	 * @param output the path of the text file (it is replaced)
+	 * @throws IOException exception if an error while reading or writing the files
+	 */
+	public static void binaryToText(String input, String output) throws IOException {
+		BinaryPatternReader reader = new BinaryPatternReader(input);
+		try{
+			FilePatternSink sink = new FilePatternSink(output, reader.hasSequenceIdentifiers());
+			try{
+				for(SequentialPattern pattern = reader.next(); pattern != null; pattern = reader.next()){
+					sink.savePattern(pattern);
+				}
+			}finally{
+				sink.close();
+			}
+		}finally{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Sort the beginning of an array and remove the duplicates.
+	 * @param array the array
+	 * @param length the number of elements to sort
+	 * @return the number of distinct elements (they are at the beginning of the array)
+	 */
+	private static int sortDistinct(int[] array, int length) {
+		Arrays.sort(array, 0, length);
+		int distinct = 0;
+		for(int i = 0; i < length; i++){
+			if(distinct == 0 || array[i] != array[distinct - 1]){
+				array[distinct++] = array[i];
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * Parse a line of a text file of patterns, such as "1 2 -1 3 -1 #SUP: 42 #SID: 0 3".
+	 * @param line the line
+	 * @param path the path of the file (for the error messages)
+	 * @param lineNumber the number of the line (for the error messages)
+	 * @return the pattern, or null if the line is empty
+	 * @throws IOException exception if the line is not a valid pattern
+	 */
+	static SequentialPattern parsePattern(String line, String path, int lineNumber) throws IOException {
+		String[] tokens = line.trim().split(" +");
+		if(tokens.length == 1 && tokens[0].isEmpty()){
+			return null;
+		}
+		try{
+			SequentialPattern pattern = new SequentialPattern();
+			Itemset itemset = new Itemset();
+			int i = 0;
+			// the itemsets
+			for(; i < tokens.length && !tokens[i].equals("#SUP:"); i++){
+				int item = Integer.parseInt(tokens[i]);
+				if(item == -1){
+					pattern.addItemset(itemset);
+					itemset = new Itemset();
+				}else{
+					itemset.addItem(item);
+				}
+			}
+			if(itemset.size() != 0 || pattern.size() == 0 || i + 1 >= tokens.length){
+				throw invalidPattern(line, path, lineNumber, null);
+			}
+			// the support
+			int support = Integer.parseInt(tokens[i + 1]);
+			i += 2;
+			// the sequence IDs
+			if(i < tokens.length){
+				if(!tokens[i].equals("#SID:")){
+					throw invalidPattern(line, path, lineNumber, null);
+				}
+				SidSet sequenceIDs = new SidSet(tokens.length - i - 1);
+				for(i++; i < tokens.length; i++){
+					sequenceIDs.add(Integer.parseInt(tokens[i]));
+				}
+				pattern.setSequenceIDs(sequenceIDs);
+			}else{
+				pattern.setAbsoluteSupport(support);
+			}
+			return pattern;
+		}catch(NumberFormatException e){
+			throw invalidPattern(line, path, lineNumber, e);
+		}
+	}
+
+	/**
+	 * Create the exception thrown for an invalid line.
+	 * @param line the line
+	 * @param path the path of the file
+	 * @param lineNumber the number of the line
+	 * @param cause the cause (or null)
+	 * @return the exception
+	 */
+	private static IOException invalidPattern(String line, String path, int lineNumber, Exception cause) {
+		return new IOException("Invalid pattern at line " + lineNumber + " of " + path + ": " + line, cause);
+	}
+}
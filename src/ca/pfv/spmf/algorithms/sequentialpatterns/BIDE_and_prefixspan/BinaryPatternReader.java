@@ -0,0 +1,191 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+
+/**
+ * This class reads a file written by BinaryPatternSink, one pattern at a time,
+ * so that the patterns do not need to fit into memory.
+ * <br/><br/>
+ * Example:
+ * <pre>
+ * BinaryPatternReader reader = new BinaryPatternReader("output.bin");
+ * for(SequentialPattern pattern = reader.next(); pattern != null; pattern = reader.next()){
+ *     ...
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see BinaryPatternSink
+ */
+public class BinaryPatternReader implements Closeable {
+
+	// the path of the file
+	private final String path;
+	// the input stream
+	private final DataInputStream in;
+	// true if the sequence IDs of the patterns are in the file
+	private final boolean sequenceIdentifiers;
+	// the parameters of the run that wrote the file
+	private final Map<String, String> parameters = new LinkedHashMap<String, String>();
+	// the items of the dictionary, sorted
+	private final int[] dictionary;
+	// true if the end of the file was read
+	private boolean finished = false;
+
+	/**
+	 * Open a binary pattern file and read its header.
+	 * @param path the path of the file
+	 * @throws IOException exception if an error while reading the file or if it is not a binary pattern file
+	 */
+	public BinaryPatternReader(String path) throws IOException {
+		this.path = path;
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16));
+		try{
+			if(in.readInt() != BinaryPatternSink.MAGIC){
+				throw new IOException("Not a binary pattern file: " + path);
+			}
+			int version = in.readInt();
+			if(version != BinaryPatternSink.VERSION){
+				throw new IOException("Unsupported version " + version + " of binary pattern file: " + path);
+			}
+			sequenceIdentifiers = (in.readByte() & BinaryPatternSink.FLAG_SEQUENCE_IDS) != 0;
+			int parameterCount = VarInts.readVarInt(in);
+			for(int i = 0; i < parameterCount; i++){
+				String name = in.readUTF();
+				parameters.put(name, in.readUTF());
+			}
+			dictionary = new int[readCount()];
+			for(int i = 0; i < dictionary.length; i++){
+				if(i == 0){
+					dictionary[0] = VarInts.unzigzag(VarInts.readVarLong(in));
+				}else{
+					dictionary[i] = (int) (dictionary[i - 1] + VarInts.readVarLong(in));
+				}
+			}
+		}catch(EOFException e){
+			in.close();
+			throw new IOException("Truncated binary pattern file: " + path, e);
+		}catch(IOException e){
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the next pattern.
+	 * @return the pattern (with its sequence IDs if they are in the file), or null if there are no more patterns
+	 * @throws IOException exception if an error while reading the file or if the file is truncated
+	 */
+	public SequentialPattern next() throws IOException {
+		if(finished){
+			return null;
+		}
+		try{
+			int itemsetCount = readCount();
+			if(itemsetCount == 0){
+				finished = true;
+				return null;
+			}
+			SequentialPattern pattern = new SequentialPattern();
+			for(int i = 0; i < itemsetCount; i++){
+				int size = readCount();
+				Itemset itemset = new Itemset();
+				int code = 0;
+				for(int j = 0; j < size; j++){
+					code = j == 0 ? VarInts.readVarInt(in) : code + VarInts.unzigzag(VarInts.readVarLong(in));
+					if(code < 0 || code >= dictionary.length){
+						throw new IOException("Invalid item code " + code + " in binary pattern file: " + path);
+					}
+					itemset.addItem(dictionary[code]);
+				}
+				pattern.addItemset(itemset);
+			}
+			int support = VarInts.readVarInt(in);
+			int sidCount = sequenceIdentifiers ? readCount() : 0;
+			if(sidCount == 0){
+				pattern.setAbsoluteSupport(support);
+			}else{
+				SidSet sequenceIDs = new SidSet(sidCount);
+				int sid = 0;
+				for(int i = 0; i < sidCount; i++){
+					sid += VarInts.readVarInt(in);
+					sequenceIDs.add(sid);
+				}
+				sequenceIDs.compact();
+				pattern.setSequenceIDs(sequenceIDs);
+			}
+			return pattern;
+		}catch(EOFException e){
+			throw new IOException("Truncated binary pattern file: " + path, e);
+		}
+	}
+
+	/**
+	 * Read a number of elements.
+	 * @return the number
+	 * @throws IOException exception if an error while reading the file or if the number is invalid
+	 */
+	private int readCount() throws IOException {
+		int count = VarInts.readVarInt(in);
+		if(count < 0){
+			throw new IOException("Invalid binary pattern file: " + path);
+		}
+		return count;
+	}
+
+	/**
+	 * Check if the sequence IDs of the patterns are in the file.
+	 * @return true if they are
+	 */
+	public boolean hasSequenceIdentifiers() {
+		return sequenceIdentifiers;
+	}
+
+	/**
+	 * Get the parameters of the run that wrote the file.
+	 * @return a map with key = name of the parameter, value = its value
+	 */
+	public Map<String, String> getParameters() {
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * Get the item dictionary of the file.
+	 * @return the items that can appear in the patterns, sorted
+	 */
+	public int[] getDictionary() {
+		return dictionary.clone();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,254 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+
+/**
+ * A sink that writes the sequential patterns to a file in a compact binary format,
+ * which is smaller and faster to read than the text format (see BinaryPatternReader).
+ * <br/><br/>
+ * All integers are variable-length integers (7 bits per byte). The file contains:
+ * <ul>
+ * <li>a header: the magic number "SPBP" and the version (two 4-byte integers), a byte of flags
+ *   (1 = the sequence IDs are written), the parameters of the run (a number of pairs of
+ *   strings written by DataOutputStream.writeUTF()), and the item dictionary: the number of
+ *   items, then the items sorted by increasing value (the first one with the zigzag 
+ *   encoding, and then the difference with the previous item),</li>
+ * <li>the patterns: the number of itemsets, then for each itemset its number of items and 
+ *   the codes of its items (the code of an item is its position in the dictionary: the first 
+ *   code, then the zigzag encoding of the difference with the previous code), then the support,
+ *   and if the sequence IDs are written, their number (0 if they were not kept) followed
+ *   by the first ID and the differences between consecutive IDs,</li>
+ * <li>a 0 (an empty pattern) marking the end of the file.</li>
+ * </ul>
+ * When the sink is given to AlgoPrefixSpan, the dictionary contains the frequent items
+ * and the parameters describe the run (minimum support, number of sequences, ...).
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see BinaryPatternReader
+ * @see BinaryPatternConverter
+ */
+public class BinaryPatternSink extends NodePatternSink {
+
+	// the first bytes of a binary pattern file ("SPBP")
+	static final int MAGIC = 0x53504250;
+	// the version of the file format
+	static final int VERSION = 1;
+	// the flag indicating that the sequence IDs are written
+	static final int FLAG_SEQUENCE_IDS = 1;
+
+	// the output stream
+	private final DataOutputStream out;
+	// if true, sequence identifiers of each pattern are written
+	private final boolean showSequenceIdentifiers;
+	// if true, the patterns are appended to a file that already has a header
+	private final boolean append;
+	// the items of the dictionary, sorted (null until the header is written)
+	private int[] dictionary = null;
+
+	// the items and itemset ends of the pattern being written (reused for all patterns)
+	private int[] items = new int[16];
+	private int[] itemsetEnds = new int[16];
+
+	/**
+	 * Create a sink writing to a file (the file is replaced). The header is written 
+	 * when the sink is given to AlgoPrefixSpan, before the first pattern.
+	 * @param outputFilePath the path of the output file
+	 * @param showSequenceIdentifiers if true, the sequence identifiers of each pattern are written
+	 *   (the algorithm must keep them, see AlgoPrefixSpan.setShowSequenceIdentifiers())
+	 * @throws IOException exception if an error while opening the file
+	 */
+	public BinaryPatternSink(String outputFilePath, boolean showSequenceIdentifiers) throws IOException {
+		this(outputFilePath, showSequenceIdentifiers, false);
+	}
+
+	/**
+	 * Create a sink writing to a file (the file is replaced), and write its header.
+	 * @param outputFilePath the path of the output file
+	 * @param showSequenceIdentifiers if true, the sequence identifiers of each pattern are written
+	 * @param dictionary the items that can appear in the patterns
+	 * @param parameters the parameters to write in the header (name and value)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	public BinaryPatternSink(String outputFilePath, boolean showSequenceIdentifiers, int[] dictionary,
+			Map<String, String> parameters) throws IOException {
+		this(outputFilePath, showSequenceIdentifiers, false);
+		start(dictionary, parameters);
+	}
+
+	/**
+	 * Create a sink writing to a file.
+	 * @param outputFilePath the path of the output file
+	 * @param showSequenceIdentifiers if true, the sequence identifiers of each pattern are written
+	 * @param append if true, the patterns are appended to the file (that already has a header)
+	 * @throws IOException exception if an error while opening the file
+	 */
+	BinaryPatternSink(String outputFilePath, boolean showSequenceIdentifiers, boolean append) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFilePath, append), 1 << 16));
+		this.showSequenceIdentifiers = showSequenceIdentifiers;
+		this.append = append;
+	}
+
+	@Override
+	synchronized void start(int[] frequentItems, Map<String, String> parameters) throws IOException {
+		if(dictionary != null){
+			// the header was given when the sink was created
+			return;
+		}
+		dictionary = frequentItems.clone();
+		Arrays.sort(dictionary);
+		if(append){
+			return;
+		}
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(showSequenceIdentifiers ? FLAG_SEQUENCE_IDS : 0);
+		if(parameters == null){
+			parameters = new LinkedHashMap<String, String>();
+		}
+		VarInts.writeVarInt(out, parameters.size());
+		for(Entry<String, String> parameter : parameters.entrySet()){
+			out.writeUTF(parameter.getKey());
+			out.writeUTF(parameter.getValue());
+		}
+		VarInts.writeVarInt(out, dictionary.length);
+		for(int i = 0; i < dictionary.length; i++){
+			if(i == 0){
+				VarInts.writeVarLong(out, VarInts.zigzag(dictionary[0]));
+			}else{
+				VarInts.writeVarLong(out, (long) dictionary[i] - dictionary[i - 1]);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void savePattern(SequentialPattern pattern) throws IOException {
+		int length = pattern.getItemOccurencesTotalCount();
+		ensureCapacity(length, pattern.size());
+		int position = 0;
+		for(int i = 0; i < pattern.size(); i++){
+			Itemset itemset = pattern.get(i);
+			for(int j = 0; j < itemset.size(); j++){
+				items[position++] = itemset.get(j);
+			}
+			itemsetEnds[i] = position;
+		}
+		writePattern(pattern.size(), pattern.getAbsoluteSupport(), pattern.getSequenceIDs());
+	}
+
+	@Override
+	synchronized void savePattern(PatternNode pattern, ItemRecoding recoding) throws IOException {
+		ensureCapacity(pattern.getLength(), pattern.getItemsetCount());
+		// the itemsets (with the original items if the items were recoded)
+		pattern.getItems(recoding, items, itemsetEnds);
+		writePattern(pattern.getItemsetCount(), pattern.getAbsoluteSupport(), pattern.getSequenceIDs());
+	}
+
+	/**
+	 * Make sure that the arrays of the pattern being written are large enough.
+	 * @param length the number of items of the pattern
+	 * @param itemsetCount the number of itemsets of the pattern
+	 */
+	private void ensureCapacity(int length, int itemsetCount) {
+		if(length > items.length){
+			items = new int[Math.max(length, items.length * 2)];
+		}
+		if(itemsetCount > itemsetEnds.length){
+			itemsetEnds = new int[Math.max(itemsetCount, itemsetEnds.length * 2)];
+		}
+	}
+
+	/**
+	 * Write the pattern stored in the arrays items and itemsetEnds.
+	 * @param itemsetCount the number of itemsets
+	 * @param support the support of the pattern
+	 * @param sequenceIDs the sequence IDs of the pattern, or null if they were not kept
+	 * @throws IOException exception if an error while writing the file
+	 */
+	private void writePattern(int itemsetCount, int support, SidSet sequenceIDs) throws IOException {
+		if(dictionary == null){
+			throw new IllegalStateException("The header of the binary pattern file was not written");
+		}
+		if(itemsetCount == 0){
+			// an empty pattern would mark the end of the file
+			throw new IllegalArgumentException("A pattern must contain at least one itemset");
+		}
+		VarInts.writeVarInt(out, itemsetCount);
+		int start = 0;
+		for(int itemset = 0; itemset < itemsetCount; itemset++){
+			int end = itemsetEnds[itemset];
+			VarInts.writeVarInt(out, end - start);
+			int previousCode = 0;
+			for(int i = start; i < end; i++){
+				int code = Arrays.binarySearch(dictionary, items[i]);
+				if(code < 0){
+					throw new IllegalArgumentException("The item " + items[i] + " is not in the dictionary");
+				}
+				if(i == start){
+					VarInts.writeVarInt(out, code);
+				}else{
+					VarInts.writeVarLong(out, VarInts.zigzag(code - previousCode));
+				}
+				previousCode = code;
+			}
+			start = end;
+		}
+		VarInts.writeVarInt(out, support);
+		if(showSequenceIdentifiers){
+			if(sequenceIDs == null){
+				VarInts.writeVarInt(out, 0);
+			}else{
+				VarInts.writeVarInt(out, sequenceIDs.size());
+				int previous = 0;
+				for(int sid = sequenceIDs.nextSid(0); sid != -1; sid = sequenceIDs.nextSid(sid + 1)){
+					VarInts.writeVarInt(out, sid - previous);
+					previous = sid;
+				}
+			}
+		}
+	}
+
+	@Override
+	synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try{
+			if(dictionary == null){
+				// no search was run: the file only contains an empty dictionary
+				start(new int[0], null);
+			}
+			// the end of the file
+			VarInts.writeVarInt(out, 0);
+		}finally{
+			out.close();
+		}
+	}
+}
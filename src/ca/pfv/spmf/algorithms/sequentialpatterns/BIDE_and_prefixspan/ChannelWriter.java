@@ -0,0 +1,255 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class writes buffers of encoded patterns to a channel, either directly
+ * by the thread that filled the buffer (synchronous mode), or by a dedicated writer thread
+ * (asynchronous mode). In the asynchronous mode, the full buffers are put in a bounded
+ * queue that the writer thread drains in order, and the buffers that were written are
+ * reused. A thread that submits a buffer while the queue is full waits until the writer thread
+ * has written a buffer (back-pressure), so that the memory used by the output is bounded.
+ * <br/><br/>
+ * An error of the writer thread is thrown by the next call to write(), flush() or close().
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see FilePatternSink
+ */
+class ChannelWriter {
+
+	// the buffer put in the queue to stop the writer thread
+	private static final ByteBuffer END_OF_OUTPUT = ByteBuffer.allocate(0);
+
+	// the channel
+	private final WritableByteChannel channel;
+	// the size of the buffers
+	private final int bufferSize;
+
+	// the full buffers to be written (null in synchronous mode)
+	private final BlockingQueue<ByteBuffer> fullBuffers;
+	// the buffers that were written and can be reused (null in synchronous mode)
+	private final BlockingQueue<ByteBuffer> freeBuffers;
+	// the writer thread (null in synchronous mode)
+	private final Thread writerThread;
+
+	// the number of buffers submitted and written (to wait until all buffers are written)
+	private long submittedCount = 0;
+	private long writtenCount = 0;
+	// the error of the writer thread (null if there is none)
+	private volatile IOException error = null;
+
+	/**
+	 * Constructor
+	 * @param channel the channel
+	 * @param bufferSize the size of the buffers
+	 * @param queueSize the number of full buffers that can wait to be written
+	 *   (0 for the synchronous mode)
+	 */
+	ChannelWriter(WritableByteChannel channel, int bufferSize, int queueSize) {
+		this.channel = channel;
+		this.bufferSize = bufferSize;
+		if(queueSize <= 0){
+			fullBuffers = null;
+			freeBuffers = null;
+			writerThread = null;
+			return;
+		}
+		fullBuffers = new ArrayBlockingQueue<ByteBuffer>(queueSize);
+		freeBuffers = new ArrayBlockingQueue<ByteBuffer>(queueSize);
+		writerThread = new Thread("PrefixSpan output writer"){
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Get an empty buffer.
+	 * @return a buffer that was written, or a new direct buffer
+	 */
+	ByteBuffer newBuffer() {
+		ByteBuffer buffer = freeBuffers == null ? null : freeBuffers.poll();
+		return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Write the content of a buffer (from its start to its position).
+	 * @param buffer the buffer
+	 * @return an empty buffer to encode the next bytes (the same buffer in synchronous mode)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	ByteBuffer write(ByteBuffer buffer) throws IOException {
+		return submit(buffer) ? newBuffer() : buffer;
+	}
+
+	/**
+	 * Write the content of a buffer that is not used anymore after this call (such as a
+	 * buffer larger than the normal size), without getting another buffer.
+	 * @param buffer the buffer
+	 * @throws IOException exception if an error while writing the file
+	 */
+	void writeLast(ByteBuffer buffer) throws IOException {
+		submit(buffer);
+	}
+
+	/**
+	 * Write the content of a buffer (from its start to its position), or give it to the writer thread.
+	 * @param buffer the buffer
+	 * @return true if the buffer was given to the writer thread, false if it can be reused
+	 *   (it was empty or it was written and cleared)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	private boolean submit(ByteBuffer buffer) throws IOException {
+		checkError();
+		if(buffer.position() == 0){
+			return false;
+		}
+		buffer.flip();
+		if(writerThread == null){
+			writeFully(buffer);
+			buffer.clear();
+			return false;
+		}
+		synchronized (this) {
+			submittedCount++;
+		}
+		try{
+			// wait if the queue is full
+			fullBuffers.put(buffer);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the output writer");
+		}
+		return true;
+	}
+
+	/**
+	 * Wait until all the submitted buffers are written.
+	 * @throws IOException exception if an error while writing the file
+	 */
+	void flush() throws IOException {
+		if(writerThread != null){
+			synchronized (this) {
+				while(writtenCount < submittedCount && error == null){
+					try{
+						wait();
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("interrupted while waiting for the output writer");
+					}
+				}
+			}
+		}
+		checkError();
+	}
+
+	/**
+	 * Write the submitted buffers, stop the writer thread and close the channel.
+	 * @throws IOException exception if an error while writing the file
+	 */
+	void close() throws IOException {
+		try{
+			if(writerThread != null){
+				try{
+					fullBuffers.put(END_OF_OUTPUT);
+					writerThread.join();
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("interrupted while waiting for the output writer");
+				}
+			}
+		}finally{
+			channel.close();
+		}
+		checkError();
+	}
+
+	/**
+	 * The loop of the writer thread: write the full buffers in order until the end of the output.
+	 * After an error (or if the writer thread is interrupted), the buffers are discarded until the
+	 * end of the output, so that the other threads are not blocked.
+	 */
+	private void drain() {
+		while(true){
+			ByteBuffer buffer;
+			try{
+				buffer = fullBuffers.take();
+			}catch(InterruptedException e){
+				synchronized (this) {
+					if(error == null){
+						error = new InterruptedIOException("the output writer was interrupted");
+					}
+					// wake up flush(), which stops waiting after an error
+					notifyAll();
+				}
+				continue;
+			}
+			if(buffer == END_OF_OUTPUT){
+				return;
+			}
+			if(error == null){
+				try{
+					writeFully(buffer);
+				}catch(IOException e){
+					error = e;
+				}
+			}
+			buffer.clear();
+			// only the buffers of the normal size are reused
+			if(buffer.capacity() == bufferSize && buffer.isDirect()){
+				freeBuffers.offer(buffer);
+			}
+			synchronized (this) {
+				writtenCount++;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Write all the remaining bytes of a buffer to the channel.
+	 * @param buffer the buffer
+	 * @throws IOException exception if an error while writing the file
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Throw the error of the writer thread if there is one.
+	 * @throws IOException the error
+	 */
+	private void checkError() throws IOException {
+		if(error != null){
+			throw new IOException("Error while writing the output file", error);
+		}
+	}
+}
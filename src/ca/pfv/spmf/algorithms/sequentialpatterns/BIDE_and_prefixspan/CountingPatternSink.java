@@ -0,0 +1,75 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.Arrays;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+
+/**
+ * A sink that only counts the sequential patterns, in total and by length
+ * (number of items). The patterns are not converted nor kept.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see PatternSink
+ */
+public class CountingPatternSink extends NodePatternSink {
+
+	// the number of patterns received
+	private long patternCount = 0;
+	// the number of patterns received for each length (index 0 is not used)
+	private long[] countsByLength = new long[16];
+
+	@Override
+	public void savePattern(SequentialPattern pattern) {
+		count(pattern.getItemOccurencesTotalCount());
+	}
+
+	@Override
+	void savePattern(PatternNode pattern, ItemRecoding recoding) {
+		count(pattern.getLength());
+	}
+
+	/**
+	 * Count a pattern.
+	 * @param length the number of items of the pattern
+	 */
+	private void count(int length) {
+		patternCount++;
+		if(length >= countsByLength.length){
+			countsByLength = Arrays.copyOf(countsByLength, Math.max(length + 1, countsByLength.length * 2));
+		}
+		countsByLength[length]++;
+	}
+
+	/**
+	 * Get the number of patterns received.
+	 * @return the number of patterns
+	 */
+	public long getPatternCount() {
+		return patternCount;
+	}
+
+	/**
+	 * Get the number of patterns received having a given length.
+	 * @param length the number of items
+	 * @return the number of patterns
+	 */
+	public long getPatternCount(int length) {
+		return length >= 0 && length < countsByLength.length ? countsByLength[length] : 0;
+	}
+}
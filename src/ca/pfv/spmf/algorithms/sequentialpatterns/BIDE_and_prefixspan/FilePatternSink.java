@@ -0,0 +1,475 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.tools.ParallelGzipOutputStream;
+
+/**
+ * A sink that writes the sequential patterns to a file in the SPMF format:
+ * one pattern per line, each item followed by a space, each itemset followed by "-1 ",
+ * then "#SUP: " and the support, and optionally " #SID: " and the sequence IDs.
+ * <br/><br/>
+ * The patterns are not formatted as Strings: the items, separators, supports and
+ * sequence IDs are encoded directly as ASCII bytes into a reusable direct ByteBuffer,
+ * which is written to a FileChannel when it is full. The file is identical to the file
+ * written by a BufferedWriter (the lines end with the line separator of the system).
+ * In the parallel mode, each thread encodes its batches of patterns into its own buffer.
+ * <br/><br/>
+ * Two options can be set before the first pattern is received:
+ * <ul>
+ * <li>the asynchronous output: the full buffers are given to a dedicated writer thread through
+ *   a bounded queue, so that mining does not wait for the disk unless the queue is full,</li>
+ * <li>the segment files: in the parallel mode, each worker thread writes its batches of
+ *   patterns to its own file (the output file path followed by ".segment" and a number),
+ *   and the segment files are optionally appended to the output file when the sink is closed,</li>
+ * <li>the compressed output: the file is a multi-member gzip file, whose members are
+ *   compressed in parallel (see ParallelGzipOutputStream). The segment files are also 
+ *   compressed, so that they can be concatenated.</li>
+ * </ul>
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see PatternSink
+ */
+public class FilePatternSink extends NodePatternSink {
+
+	// the line separator used by BufferedWriter.newLine()
+	private static final byte[] NEW_LINE = System.getProperty("line.separator").getBytes(StandardCharsets.US_ASCII);
+	// the separators of the format
+	private static final byte[] END_OF_ITEMSET = "-1 ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SUPPORT = "#SUP: ".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] SEQUENCE_IDS = " #SID: ".getBytes(StandardCharsets.US_ASCII);
+	// the largest number of bytes written by the encoder without checking the space left
+	// (a separator or a number with its sign and the following space)
+	private static final int MAX_TOKEN_SIZE = 16;
+	// the size of the buffers
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// the path of the output file
+	private final String outputFilePath;
+	// the channel of the output file
+	private final FileChannel channel;
+	// if true, sequence identifiers of each pattern are written
+	private final boolean showSequenceIdentifiers;
+	// the number of full buffers that can wait to be written by a writer thread (0 = synchronous output)
+	private int queueSize = 0;
+	// if true, each thread writes its batches of patterns to its own segment file
+	private boolean segmentFiles = false;
+	// if true, the segment files are appended to the output file when the sink is closed
+	private boolean concatenateSegments = true;
+	// the number of threads compressing the output (0 = the output is not compressed)
+	private int compressionThreads = 0;
+	// the threads compressing the output file and the segment files (null if not compressed)
+	private ExecutorService compressionExecutor = null;
+	// the compressed stream of the output file (null if not compressed)
+	private ParallelGzipOutputStream compressedOutput = null;
+
+	// the encoder used by the sequential mode (only used while holding the lock of this sink,
+	// and created when the first pattern is received)
+	private Encoder encoder = null;
+	// the encoders used to encode the batches of patterns of the parallel mode (one per thread)
+	private final ThreadLocal<Encoder> batchEncoders = new ThreadLocal<Encoder>();
+	// the paths of the segment files and their encoders (in the order where they were created)
+	private final List<String> segmentPaths = new ArrayList<String>();
+	private final List<Encoder> segmentEncoders = new ArrayList<Encoder>();
+
+	/**
+	 * Create a sink writing to a file (the file is replaced).
+	 * @param outputFilePath the path of the output file
+	 * @param showSequenceIdentifiers if true, the sequence identifiers of each pattern are written
+	 *   (the algorithm must keep them, see AlgoPrefixSpan.setShowSequenceIdentifiers())
+	 * @throws IOException exception if an error while opening the file
+	 */
+	public FilePatternSink(String outputFilePath, boolean showSequenceIdentifiers) throws IOException {
+		this(outputFilePath, showSequenceIdentifiers, false);
+	}
+
+	/**
+	 * Create a sink writing to a file.
+	 * @param outputFilePath the path of the output file
+	 * @param showSequenceIdentifiers if true, the sequence identifiers of each pattern are written
+	 * @param append if true, the patterns are appended to the file
+	 * @throws IOException exception if an error while opening the file
+	 */
+	FilePatternSink(String outputFilePath, boolean showSequenceIdentifiers, boolean append) throws IOException {
+		this.outputFilePath = outputFilePath;
+		this.channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+		this.showSequenceIdentifiers = showSequenceIdentifiers;
+	}
+
+	/**
+	 * Set the asynchronous output. This must be called before the first pattern is received.
+	 * @param queueSize the number of full buffers (of 64 KB) that can wait to be written by the
+	 *   writer thread before the mining threads wait, or 0 for the synchronous output (the default)
+	 */
+	public synchronized void setAsynchronousOutput(int queueSize) {
+		checkNotStarted();
+		this.queueSize = Math.max(0, queueSize);
+	}
+
+	/**
+	 * Set if each thread of the parallel mode writes its batches of patterns to its own
+	 * segment file. This must be called before the first pattern is received.
+	 * @param segmentFiles true to use segment files
+	 * @param concatenateSegments true to append the segment files to the output file
+	 *   (and delete them) when the sink is closed
+	 */
+	public synchronized void setSegmentFiles(boolean segmentFiles, boolean concatenateSegments) {
+		checkNotStarted();
+		this.segmentFiles = segmentFiles;
+		this.concatenateSegments = concatenateSegments;
+	}
+
+	/**
+	 * Set the compressed output (gzip). This must be called before the first pattern is received.
+	 * @param compressionThreads the number of threads compressing the output, or 0 for
+	 *   an output that is not compressed (the default)
+	 */
+	public synchronized void setCompressedOutput(int compressionThreads) {
+		checkNotStarted();
+		this.compressionThreads = Math.max(0, compressionThreads);
+	}
+
+	/**
+	 * Get the paths of the segment files that were created.
+	 * @return the paths (in the order where the segment files are concatenated)
+	 */
+	public synchronized List<String> getSegmentPaths() {
+		return Collections.unmodifiableList(new ArrayList<String>(segmentPaths));
+	}
+
+	/**
+	 * Check that the options can still be changed.
+	 */
+	private void checkNotStarted() {
+		if(encoder != null || !segmentPaths.isEmpty()){
+			throw new IllegalStateException("The output options must be set before the first pattern");
+		}
+	}
+
+	/**
+	 * Get the encoder of the sequential mode (it is created the first time).
+	 * The lock of this sink must be held.
+	 * @return the encoder
+	 */
+	private Encoder getEncoder() {
+		if(encoder == null){
+			ParallelGzipOutputStream compressed = compress(channel);
+			compressedOutput = compressed;
+			encoder = new Encoder(new ChannelWriter(compressed == null ? channel : Channels.newChannel(compressed),
+					BUFFER_SIZE, queueSize), false);
+		}
+		return encoder;
+	}
+
+	/**
+	 * Create the stream compressing the data written to a file, if the output is compressed.
+	 * The lock of this sink must be held.
+	 * @param fileChannel the channel of the file
+	 * @return the stream, or null if the output is not compressed
+	 */
+	private ParallelGzipOutputStream compress(FileChannel fileChannel) {
+		if(compressionThreads == 0){
+			return null;
+		}
+		if(compressionExecutor == null){
+			compressionExecutor = ParallelGzipOutputStream.createExecutor(compressionThreads);
+		}
+		return new ParallelGzipOutputStream(Channels.newOutputStream(fileChannel), compressionExecutor,
+				compressionThreads, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Get the encoder of the batches of patterns of the current thread (it is created the first time).
+	 * @return the encoder
+	 * @throws IOException exception if an error while creating a segment file
+	 */
+	private Encoder getBatchEncoder() throws IOException {
+		Encoder batchEncoder = batchEncoders.get();
+		if(batchEncoder == null){
+			synchronized (this) {
+				if(segmentFiles){
+					// the thread writes to its own file
+					String path = outputFilePath + ".segment" + segmentPaths.size();
+					FileChannel segmentChannel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, 
+							StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					ParallelGzipOutputStream compressed = compress(segmentChannel);
+					WritableByteChannel output = compressed == null ? segmentChannel : Channels.newChannel(compressed);
+					batchEncoder = new Encoder(new ChannelWriter(output, BUFFER_SIZE, queueSize), false);
+					segmentPaths.add(path);
+					segmentEncoders.add(batchEncoder);
+				}else{
+					// the thread shares the output of the sequential mode
+					batchEncoder = new Encoder(getEncoder().output, true);
+				}
+			}
+			batchEncoders.set(batchEncoder);
+		}
+		return batchEncoder;
+	}
+
+	@Override
+	public void savePattern(SequentialPattern pattern) throws IOException {
+		PatternNode node = PatternNode.fromSequentialPattern(pattern);
+		if(node != null){
+			savePattern(node, null);
+		}
+	}
+
+	@Override
+	synchronized void savePattern(PatternNode pattern, ItemRecoding recoding) throws IOException {
+		getEncoder().encode(pattern, recoding);
+	}
+
+	@Override
+	void savePatterns(List<PatternNode> patterns, ItemRecoding recoding) throws IOException {
+		// encode the patterns without holding the lock (if the output is shared, a pattern is
+		// never split between two writes, since the patterns of other threads may be written between them)
+		Encoder batchEncoder = getBatchEncoder();
+		for(PatternNode pattern : patterns){
+			batchEncoder.encode(pattern, recoding);
+			if(batchEncoder.size() >= BUFFER_SIZE - MAX_TOKEN_SIZE){
+				batchEncoder.write();
+			}
+		}
+		batchEncoder.write();
+	}
+
+	@Override
+	synchronized void flush() throws IOException {
+		Encoder mainEncoder = getEncoder();
+		mainEncoder.buffer = mainEncoder.output.write(mainEncoder.buffer);
+		mainEncoder.output.flush();
+		if(compressedOutput != null){
+			// end the current gzip member, so that the file is a valid gzip file
+			compressedOutput.flush();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		Encoder mainEncoder = getEncoder();
+		try{
+			mainEncoder.buffer = mainEncoder.output.write(mainEncoder.buffer);
+			mainEncoder.output.close();
+			// the batches of the segment files were written at the end of each batch
+			for(Encoder segmentEncoder : segmentEncoders){
+				segmentEncoder.output.close();
+			}
+		}finally{
+			if(compressionExecutor != null){
+				compressionExecutor.shutdownNow();
+			}
+		}
+		if(concatenateSegments && !segmentPaths.isEmpty()){
+			concatenateSegments();
+		}
+	}
+
+	/**
+	 * Append the segment files to the output file, and delete them.
+	 * @throws IOException exception if an error while copying the files
+	 */
+	private void concatenateSegments() throws IOException {
+		FileChannel output = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		try{
+			for(String path : segmentPaths){
+				FileChannel segment = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+				try{
+					long size = segment.size();
+					for(long position = 0; position < size; ){
+						position += segment.transferTo(position, size - position, output);
+					}
+				}finally{
+					segment.close();
+				}
+				Files.delete(Paths.get(path));
+			}
+			segmentPaths.clear();
+		}finally{
+			output.close();
+		}
+	}
+
+	/**
+	 * This class encodes patterns as ASCII bytes into a buffer.
+	 */
+	private final class Encoder {
+		// the buffer
+		ByteBuffer buffer;
+		// the output where the buffer is written
+		final ChannelWriter output;
+		// if true, this encoder encodes batches of patterns for an output shared with other threads:
+		// the buffer is only written between two patterns and it grows when a pattern does not fit
+		private final boolean sharedOutput;
+		// the items of the pattern being encoded
+		private int[] items = new int[16];
+		// the end of each itemset of the pattern being encoded
+		private int[] itemsetEnds = new int[16];
+		// the digits of the number being encoded
+		private final byte[] digits = new byte[11];
+		// the buffer when it grew (null if the buffer is used)
+		private ByteBuffer largeBuffer = null;
+
+		/**
+		 * Constructor
+		 * @param output the output where the buffer is written
+		 * @param sharedOutput if true, the output is shared with the encoders of other threads
+		 */
+		Encoder(ChannelWriter output, boolean sharedOutput) {
+			this.output = output;
+			this.sharedOutput = sharedOutput;
+			this.buffer = output.newBuffer();
+		}
+
+		/**
+		 * Encode a pattern, followed by the line separator.
+		 * @param pattern the pattern
+		 * @param recoding the recoding of the items, or null if they were not recoded
+		 * @throws IOException exception if an error while writing the file
+		 */
+		void encode(PatternNode pattern, ItemRecoding recoding) throws IOException {
+			if(pattern.getLength() > items.length){
+				items = new int[Math.max(pattern.getLength(), items.length * 2)];
+			}
+			if(pattern.getItemsetCount() > itemsetEnds.length){
+				itemsetEnds = new int[Math.max(pattern.getItemsetCount(), itemsetEnds.length * 2)];
+			}
+			// the itemsets (with the original items if the items were recoded)
+			pattern.getItems(recoding, items, itemsetEnds);
+			int start = 0;
+			for(int itemset = 0; itemset < pattern.getItemsetCount(); itemset++){
+				for(int i = start; i < itemsetEnds[itemset]; i++){
+					putInt(items[i]);
+					current().put((byte) ' ');
+				}
+				start = itemsetEnds[itemset];
+				reserve().put(END_OF_ITEMSET);
+			}
+			// the support
+			reserve().put(SUPPORT);
+			putInt(pattern.getAbsoluteSupport());
+			SidSet sequenceIDs = pattern.getSequenceIDs();
+			if(showSequenceIdentifiers && sequenceIDs != null){
+				reserve().put(SEQUENCE_IDS);
+				for(int sid = sequenceIDs.nextSid(0); sid != -1; sid = sequenceIDs.nextSid(sid + 1)){
+					putInt(sid);
+					current().put((byte) ' ');
+				}
+			}
+			reserve().put(NEW_LINE);
+		}
+
+		/**
+		 * Encode an integer in decimal.
+		 * @param value the integer
+		 * @throws IOException exception if an error while writing the file
+		 */
+		private void putInt(int value) throws IOException {
+			ByteBuffer output = reserve();
+			long remaining = value;
+			if(remaining < 0){
+				output.put((byte) '-');
+				remaining = -remaining;
+			}
+			int i = digits.length;
+			do{
+				digits[--i] = (byte) ('0' + remaining % 10);
+				remaining /= 10;
+			}while(remaining != 0);
+			output.put(digits, i, digits.length - i);
+		}
+
+		/**
+		 * Get the buffer where the bytes are currently encoded.
+		 * @return the buffer
+		 */
+		private ByteBuffer current() {
+			return largeBuffer != null ? largeBuffer : buffer;
+		}
+
+		/**
+		 * Make sure that the current buffer has space for a token (MAX_TOKEN_SIZE bytes),
+		 * by writing the buffer to the file or by growing it.
+		 * @return the buffer where the token must be encoded
+		 * @throws IOException exception if an error while writing the file
+		 */
+		private ByteBuffer reserve() throws IOException {
+			ByteBuffer output = current();
+			if(output.remaining() >= MAX_TOKEN_SIZE){
+				return output;
+			}
+			if(!sharedOutput){
+				// the output is not shared (or the lock of the sink is held), so that the pattern can be split
+				buffer = this.output.write(buffer);
+				return buffer;
+			}
+			// a pattern must be kept in a single buffer
+			ByteBuffer larger = ByteBuffer.allocate(output.capacity() * 2);
+			output.flip();
+			larger.put(output);
+			buffer.clear();
+			largeBuffer = larger;
+			return larger;
+		}
+
+		/**
+		 * Get the number of bytes encoded and not written yet.
+		 * @return the number of bytes
+		 */
+		int size() {
+			return current().position();
+		}
+
+		/**
+		 * Write the patterns encoded by this encoder. If the output is shared, they are
+		 * written after the patterns encoded by the sequential mode.
+		 * @throws IOException exception if an error while writing the file
+		 */
+		void write() throws IOException {
+			if(!sharedOutput){
+				buffer = output.write(buffer);
+				return;
+			}
+			synchronized (FilePatternSink.this) {
+				encoder.buffer = output.write(encoder.buffer);
+				if(largeBuffer != null){
+					// the large buffer is not reused
+					output.writeLast(largeBuffer);
+					largeBuffer = null;
+				}else{
+					buffer = output.write(buffer);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+
+/**
+ * A sink that keeps the sequential patterns into memory, in a SequentialPatterns object
+ * where the patterns are grouped by number of itemsets.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see PatternSink
+ */
+public class MemoryPatternSink extends NodePatternSink {
+
+	// the patterns received
+	private final SequentialPatterns patterns;
+
+	/**
+	 * Create a sink keeping the patterns into memory.
+	 * @param name the name of the SequentialPatterns object
+	 */
+	public MemoryPatternSink(String name) {
+		patterns = new SequentialPatterns(name);
+	}
+
+	@Override
+	public void savePattern(SequentialPattern pattern) {
+		patterns.addSequence(pattern, pattern.size());
+	}
+
+	@Override
+	void savePattern(PatternNode pattern, ItemRecoding recoding) {
+		savePattern(pattern.toSequentialPattern(recoding));
+	}
+
+	/**
+	 * Get the patterns received.
+	 * @return the patterns
+	 */
+	public SequentialPatterns getPatterns() {
+		return patterns;
+	}
+}
@@ -0,0 +1,104 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+
+/**
+ * This is the base class of the sinks used internally by PrefixSpan. Such a sink
+ * receives the patterns as nodes of the prefix tree (see PatternNode), so that a sink
+ * that does not keep the patterns (e.g. a file) does not need to convert them to SequentialPattern.
+ * A PatternSink provided by the user is adapted by calling of().
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see PatternSink
+ */
+abstract class NodePatternSink implements PatternSink {
+
+	/**
+	 * Get a sink as a NodePatternSink.
+	 * @param sink the sink
+	 * @return the sink itself if it is a NodePatternSink, otherwise a sink that converts
+	 *   the patterns to SequentialPattern for that sink
+	 */
+	static NodePatternSink of(final PatternSink sink) {
+		if(sink instanceof NodePatternSink){
+			return (NodePatternSink) sink;
+		}
+		return new NodePatternSink() {
+			@Override
+			void savePattern(PatternNode pattern, ItemRecoding recoding) throws IOException {
+				sink.savePattern(pattern.toSequentialPattern(recoding));
+			}
+
+			@Override
+			public void savePattern(SequentialPattern pattern) throws IOException {
+				sink.savePattern(pattern);
+			}
+
+			@Override
+			public void close() throws IOException {
+				sink.close();
+			}
+		};
+	}
+
+	/**
+	 * Receive the description of the search, before the first pattern.
+	 * @param frequentItems the frequent items (the items that can appear in the patterns)
+	 * @param parameters the parameters of the search (name and value)
+	 * @throws IOException exception if an error while saving the description
+	 */
+	void start(int[] frequentItems, Map<String, String> parameters) throws IOException {
+	}
+
+	/**
+	 * Receive a pattern found by the algorithm.
+	 * @param pattern the pattern
+	 * @param recoding the recoding of the items, or null if they were not recoded
+	 * @throws IOException exception if an error while saving the pattern
+	 */
+	abstract void savePattern(PatternNode pattern, ItemRecoding recoding) throws IOException;
+
+	/**
+	 * Receive a list of patterns found by the algorithm, without another thread
+	 * saving patterns at the same time.
+	 * @param patterns the patterns
+	 * @param recoding the recoding of the items, or null if they were not recoded
+	 * @throws IOException exception if an error while saving the patterns
+	 */
+	void savePatterns(List<PatternNode> patterns, ItemRecoding recoding) throws IOException {
+		synchronized (this) {
+			for(PatternNode pattern : patterns){
+				savePattern(pattern, recoding);
+			}
+		}
+	}
+
+	/**
+	 * Make sure that the patterns received until now are saved (e.g. written to the disk).
+	 * @throws IOException exception if an error while saving the patterns
+	 */
+	void flush() throws IOException {
+	}
+}
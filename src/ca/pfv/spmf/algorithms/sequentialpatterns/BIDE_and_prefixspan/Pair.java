@@ -1,7 +1,6 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * This class represents
@@ -38,8 +37,15 @@ class Pair{
 	// in an itemset that is cut at the left or not
 	protected final boolean postfix; 
 	
-	// List of the sequence IDs that contains this item .
-	private Set<Integer> sequencesID = new HashSet<Integer>();
+	// List of the sequence IDs that contains this item 
+	// (null if they are not kept, in count-only mode).
+	private SidSet sequencesID;
+	
+	// the groups of the projected database that contain this item
+	// (the position of the first pseudo-sequence of each group)
+	private int[] groups;
+	// the number of groups
+	private int groupCount = 0;
 
 	/**
 	 * Constructor
@@ -50,6 +56,23 @@ class Pair{
 	Pair(boolean postfix, Integer item){
 		this.postfix = postfix;
 		this.item = item;
+		this.sequencesID = new SidSet();
+		this.groups = new int[4];
+	}
+	
+	/**
+	 * Constructor for a pair whose support is already known
+	 * @param postfix indicate if this is the case of an item appearing
+	 *  in an itemset that is cut at the left because of a projection
+	 * @param item the item
+	 * @param support the number of sequences that will be added to this pair
+	 * @param keepSequenceIDs if false, only the groups are recorded (and their number is the support)
+	 */
+	Pair(boolean postfix, Integer item, int support, boolean keepSequenceIDs){
+		this.postfix = postfix;
+		this.item = item;
+		this.sequencesID = keepSequenceIDs ? new SidSet(support) : null;
+		this.groups = new int[support];
 	}
 	
 	/**
@@ -69,13 +92,9 @@ class Pair{
 	 * Method to calculate an hashcode (because pairs are stored in a map).
 	 */
 	public int hashCode()
-	{// Ex: 127333,P,X,1  127333,N,Z,2
-		// transform it into a string
-		StringBuilder r = new StringBuilder();
-		r.append((postfix ? 'P' : 'N')); // the letters here have no meanings. they are just used for the hashcode
-		r.append(item);
-		// then use the hashcode method from the string class
-		return r.toString().hashCode();
+	{
+		// combine the item and the postfix flag without creating any object
+		return (item.intValue() * 31) + (postfix ? 1 : 0);
 	}
 	
 	/**
@@ -96,18 +115,55 @@ class Pair{
 
 	/**
 	 * Get the support of this item (the number of sequences 
-	 * containing it).
+	 * containing it). If the sequence IDs are not kept, it is the
+	 * number of groups, since a group contains the pseudo-sequences of one sequence.
 	 * @return the support (an integer)
 	 */
 	public int getCount() {
-		return sequencesID.size();
+		return sequencesID != null ? sequencesID.size() : groupCount;
 	}		
 
 	/**
 	 * Get the list of sequence IDs associated with this item.
-	 * @return  the list of sequence IDs.
+	 * @return  the list of sequence IDs (null if they are not kept).
 	 */
-	public Set<Integer> getSequenceIDs() {
+	public SidSet getSequenceIDs() {
 		return sequencesID;
 	}
+	
+	/**
+	 * Record a sequence containing this item, with its group in the projected database.
+	 * Nothing is done if it is the last group recorded.
+	 * @param sid the sequence ID (ignored if the sequence IDs are not kept)
+	 * @param group the position of the first pseudo-sequence of the group
+	 */
+	void addSequence(int sid, int group) {
+		if(groupCount != 0 && groups[groupCount - 1] == group){
+			return;
+		}
+		if(sequencesID != null){
+			sequencesID.add(sid);
+		}
+		if(groupCount == groups.length){
+			groups = Arrays.copyOf(groups, Math.max(4, groupCount * 2));
+		}
+		groups[groupCount++] = group;
+	}
+	
+	/**
+	 * Get the number of groups of the projected database containing this item.
+	 * @return the number of groups
+	 */
+	int getGroupCount() {
+		return groupCount;
+	}
+	
+	/**
+	 * Get a group of the projected database containing this item.
+	 * @param i the position of the group in the list of groups of this pair (ordered by position)
+	 * @return the position of the first pseudo-sequence of the group in the projected database
+	 */
+	int getGroup(int i) {
+		return groups[i];
+	}
 }
\ No newline at end of file
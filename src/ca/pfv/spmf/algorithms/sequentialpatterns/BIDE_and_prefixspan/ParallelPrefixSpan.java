@@ -0,0 +1,416 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.AbstractPrefixSpan.SearchFrame;
+import ca.pfv.spmf.tools.MemoryLogger;
+
+/**
+ * This is the parallel mode of the PrefixSpan algorithm (see AlgoPrefixSpan).
+ * The projected database of each frequent item is mined by a fork-join task.
+ * While growing a prefix, a task mines a large projected database in a separate
+ * subtask if the other workers are running out of work, so that a single dominant
+ * item does not leave the other threads idle. Each task reuses its own projected
+ * databases for each depth, and a subtask receives a copy of its projected database.
+ * As in the sequential mode, a task grows its prefixes with an explicit stack instead of
+ * recursive calls, so that very long patterns do not cause a StackOverflowError.
+ * <br/><br/>
+ * Each task collects the patterns that it finds into its own segment, so that
+ * the workers never share a lock for each pattern. The segments are either given
+ * to the sink (e.g. the output file) by batches as soon as they are full, or kept and
+ * output in the order of the sequential mode when all tasks are finished
+ * (deterministic output).
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ */
+class ParallelPrefixSpan {
+
+	// number of patterns that a segment accumulates before being given to the sink
+	private static final int BATCH_SIZE = 1024;
+
+	// a subtask is only forked if the current worker has less than this number
+	// of queued tasks that were not stolen by other workers
+	private static final int MAX_SURPLUS_TASKS = 2;
+
+	// the algorithm that provides the projection methods
+	private final AlgoPrefixSpan algo;
+	// absolute minimum support
+	private final int minsuppAbsolute;
+	// maximum pattern length in terms of item count
+	private final int maximumPatternLength;
+	// minimum size of a projected database to be mined by a subtask
+	private final int splitThreshold;
+	// if true, patterns are output in the order of the sequential mode
+	private final boolean deterministicOutput;
+
+	// the sink receiving the patterns
+	private final NodePatternSink sink;
+	// the recoding of the items (null if they were not recoded)
+	private final ItemRecoding itemRecoding;
+
+	// the number of patterns found by all the tasks
+	private final AtomicInteger patternCount = new AtomicInteger();
+	// the number of tasks that are not finished, and a latch opened when it becomes 0
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+	private final CountDownLatch finished = new CountDownLatch(1);
+	// the first error thrown by a task (null if there is none)
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * Constructor
+	 * @param algo the algorithm providing the output and the projection methods
+	 * @param minsuppAbsolute the absolute minimum support
+	 * @param splitThreshold minimum size of a projected database to be mined by a subtask
+	 * @param deterministicOutput if true, the patterns are output in the order of the sequential mode
+	 */
+	ParallelPrefixSpan(AlgoPrefixSpan algo, int minsuppAbsolute, int splitThreshold,
+			boolean deterministicOutput) {
+		this.algo = algo;
+		this.minsuppAbsolute = minsuppAbsolute;
+		this.maximumPatternLength = algo.getMaximumPatternLength();
+		this.splitThreshold = splitThreshold;
+		this.deterministicOutput = deterministicOutput;
+		this.sink = algo.sink;
+		this.itemRecoding = algo.getItemRecoding();
+	}
+
+	/**
+	 * Mine the projected databases of all frequent items in parallel.
+	 * @param initialDatabase the initial projected database (without infrequent items)
+	 * @param threadCount the number of threads
+	 * @return the number of patterns found
+	 * @throws IOException exception if error while writing the output file
+	 */
+	int run(ProjectedDatabase initialDatabase, int threadCount) throws IOException {
+		// create a task for each frequent item (in the order of the sequential mode)
+		final List<SubtreeTask> tasks = new ArrayList<SubtreeTask>();
+		for(Pair pair : algo.findAllFrequentPairs(initialDatabase, minsuppAbsolute)){
+			if(pair.getCount() >= minsuppAbsolute){
+				PatternNode prefix = new PatternNode(null, pair.getItem(), false);
+				algo.setSupport(prefix, pair);
+				tasks.add(new SubtreeTask(prefix, pair, initialDatabase));
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		pendingTasks.set(tasks.size());
+		try{
+			try{
+				pool.invoke(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+					@Override
+					protected void compute() {
+						invokeAll(tasks);
+					}
+				});
+			}finally{
+				// the subtasks are not joined by the tasks that forked them, since a join may run
+				// the subtask on the stack of the joining thread (a long chain of subtasks would
+				// overflow it): wait until the last task is finished
+				if(!tasks.isEmpty()){
+					awaitTasks();
+				}
+			}
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}finally{
+			pool.shutdown();
+		}
+		// throw the error of a subtask, which was not reported by a join
+		Throwable error = failure.get();
+		if(error instanceof IOException){
+			throw (IOException) error;
+		}else if(error instanceof RuntimeException){
+			throw (RuntimeException) error;
+		}else if(error instanceof Error){
+			throw (Error) error;
+		}
+
+		// output what was not saved by the tasks
+		for(SubtreeTask task : tasks){
+			task.segment.drain();
+		}
+		return patternCount.get();
+	}
+
+	/**
+	 * Wait until all the tasks and their subtasks are finished.
+	 * @throws IOException exception if the thread is interrupted while waiting
+	 */
+	private void awaitTasks() throws IOException {
+		try{
+			finished.await();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the parallel search");
+		}
+	}
+
+	/**
+	 * The patterns found by a task. It is a list of parts, where a part is either
+	 * a list of patterns or the segment of a subtask that was forked at that point.
+	 */
+	private class Segment {
+		// the parts of this segment
+		private final List<Object> parts = new ArrayList<Object>();
+		// the list of patterns that is currently filled
+		private List<PatternNode> current = new ArrayList<PatternNode>();
+		// the position of the next part to be saved by drain()
+		private int next = 0;
+
+		/**
+		 * Add a pattern to this segment.
+		 * @param pattern the pattern
+		 * @throws IOException exception if error while writing the output file
+		 */
+		void add(PatternNode pattern) throws IOException {
+			current.add(pattern);
+			// if the order does not matter, a full list is saved immediately
+			if(!deterministicOutput && current.size() >= BATCH_SIZE){
+				sink.savePatterns(current, itemRecoding);
+				current.clear();
+			}
+		}
+
+		/**
+		 * Add the segment of a subtask at the current position of this segment.
+		 * @param segment the segment of the subtask
+		 */
+		void addSegment(Segment segment) {
+			if(!deterministicOutput){
+				// the subtask saves its own patterns
+				return;
+			}
+			parts.add(current);
+			parts.add(segment);
+			current = new ArrayList<PatternNode>();
+		}
+
+		/**
+		 * Called when the task is finished.
+		 * @throws IOException exception if error while writing the output file
+		 */
+		void close() throws IOException {
+			if(!deterministicOutput){
+				sink.savePatterns(current, itemRecoding);
+				current.clear();
+			}else{
+				parts.add(current);
+			}
+			current = null;
+		}
+
+		/**
+		 * Save the patterns of this segment and its subtask segments in order,
+		 * once all the tasks are finished. The segments of the subtasks are saved with
+		 * an explicit stack, since a chain of subtasks can be as long as a pattern.
+		 * @throws IOException exception if error while writing the output file
+		 */
+		@SuppressWarnings("unchecked")
+		void drain() throws IOException {
+			Deque<Segment> stack = new ArrayDeque<Segment>();
+			stack.push(this);
+			while(!stack.isEmpty()){
+				Segment segment = stack.peek();
+				if(segment.next == segment.parts.size()){
+					segment.parts.clear();
+					stack.pop();
+					continue;
+				}
+				// the part is released once it is saved
+				Object part = segment.parts.set(segment.next++, null);
+				if(part instanceof Segment){
+					stack.push((Segment) part);
+				}else{
+					sink.savePatterns((List<PatternNode>) part, itemRecoding);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A task that grows a prefix. A task is created for each frequent item
+	 * and for each large projected database that is split from the tree of its parent task.
+	 */
+	private class SubtreeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// the prefix to be grown
+		private final PatternNode prefix;
+		// the item of an item task, with the groups where it appears (null for a subtask)
+		private final Pair pair;
+		// the projected database of the prefix (or the initial database for an item task)
+		private final ProjectedDatabase database;
+		// the prefix length in terms of items (0 for an item task)
+		private final int k;
+		// the projected databases reused at each depth by this task
+		private final ProjectedDatabaseArena arena = new ProjectedDatabaseArena();
+
+		// the patterns found by this task
+		final Segment segment = new Segment();
+		// the number of patterns found by this task
+		private int count = 0;
+
+		/**
+		 * Create a task for a frequent item.
+		 * @param prefix the pattern containing the item
+		 * @param pair the item with the groups where it appears
+		 * @param initialDatabase the initial database
+		 */
+		SubtreeTask(PatternNode prefix, Pair pair, ProjectedDatabase initialDatabase) {
+			this.prefix = prefix;
+			this.pair = pair;
+			this.database = initialDatabase;
+			this.k = 0;
+		}
+
+		/**
+		 * Create a task to grow a prefix.
+		 * @param prefix the prefix
+		 * @param database the projected database of the prefix (not shared with another task)
+		 * @param k the prefix length in terms of items
+		 */
+		SubtreeTask(PatternNode prefix, ProjectedDatabase database, int k) {
+			this.prefix = prefix;
+			this.pair = null;
+			this.database = database;
+			this.k = k;
+		}
+
+		@Override
+		protected void compute() {
+			try{
+				if(k == 0){
+					// an item task saves its item and builds the projected database for that item
+					save(prefix);
+					if(maximumPatternLength >1){
+						ProjectedDatabase projectedContext = algo.buildProjectedDatabase(
+								pair, database, arena.get(1, database.getDatabase()));
+						grow(prefix, projectedContext, 2);
+					}
+				}else{
+					grow(prefix, database, k);
+				}
+				// the segment is closed without waiting for the subtasks, whose
+				// segments were added to it (they are saved when all the tasks are finished)
+				segment.close();
+				patternCount.addAndGet(count);
+			}catch(IOException e){
+				failure.compareAndSet(null, e);
+				throw new UncheckedIOException(e);
+			}catch(RuntimeException e){
+				failure.compareAndSet(null, e);
+				throw e;
+			}catch(Error e){
+				failure.compareAndSet(null, e);
+				throw e;
+			}finally{
+				// the last task to finish wakes up run()
+				if(pendingTasks.decrementAndGet() == 0){
+					finished.countDown();
+				}
+			}
+		}
+
+		/**
+		 * Save a pattern in the segment of this task
+		 * @param pattern the pattern
+		 * @throws IOException exception if error while writing the output file
+		 */
+		private void save(PatternNode pattern) throws IOException {
+			count++;
+			segment.add(pattern);
+		}
+
+		/**
+		 * Grow a given sequential pattern with a depth-first search (same as 
+		 * AlgoPrefixSpan.depthFirstSearch() except that a large projected database may be mined
+		 * by a subtask). The search uses an explicit stack of frames, so that its depth is not
+		 * limited by the size of the thread stack of the worker.
+		 * @param prefix  the current sequential pattern that we want to try to grow
+		 * @param database the current projected sequence database
+		 * @param k  the prefix length in terms of items
+		 * @throws IOException exception if there is an error writing to the output file
+		 */
+		private void grow(PatternNode prefix, ProjectedDatabase database, int k) throws IOException {
+			Deque<SearchFrame> stack = new ArrayDeque<SearchFrame>();
+			stack.push(algo.createFrame(prefix, database, k));
+
+			while(!stack.isEmpty()){
+				SearchFrame frame = stack.peek();
+				// if all the extensions of the prefix were explored, return to the previous prefix
+				if(frame.next == frame.pairs.size()){
+					stack.pop();
+					// check the current memory usage
+					MemoryLogger.getInstance().checkMemory();
+					continue;
+				}
+				Pair pair = frame.pairs.get(frame.next++);
+				// create the new postfix by appending this item to the prefix
+				PatternNode newPrefix = new PatternNode(frame.prefix, pair.getItem(), pair.isPostfix());
+				algo.setSupport(newPrefix, pair);
+
+				// save the pattern
+				save(newPrefix);
+				if(frame.k < maximumPatternLength){
+					// build the projected database with this item (the database of depth k
+					// is reused for all the prefixes of length k)
+					ProjectedDatabase projectedDatabase = algo.buildProjectedDatabase(
+							pair, frame.database, arena.get(frame.k, frame.database.getDatabase()));
+					if(shouldSplit(projectedDatabase)){
+						// mine a copy of the projected database in a subtask
+						SubtreeTask subtask = new SubtreeTask(newPrefix, projectedDatabase.copy(), frame.k + 1);
+						segment.addSegment(subtask.segment);
+						pendingTasks.incrementAndGet();
+						subtask.fork();
+					}else{
+						// grow the new prefix before the next extensions of the prefix
+						stack.push(algo.createFrame(newPrefix, projectedDatabase, frame.k + 1));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Check if a projected database should be mined by a subtask.
+		 * It is the case if it is large and if the current worker does not
+		 * already have many tasks waiting to be stolen by the other workers.
+		 * @param projectedDatabase the projected database
+		 * @return true if a subtask should be created
+		 */
+		private boolean shouldSplit(ProjectedDatabase projectedDatabase) {
+			return projectedDatabase.size() >= splitThreshold
+					&& ForkJoinTask.getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS;
+		}
+	}
+}
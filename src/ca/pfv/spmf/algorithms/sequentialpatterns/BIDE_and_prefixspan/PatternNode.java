@@ -0,0 +1,223 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.Arrays;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
+
+/**
+ * This class represents a sequential pattern while it is grown by PrefixSpan.
+ * A pattern is a node of a prefix tree: it points to the pattern that it extends
+ * (its parent) and only stores the item that was appended, and if the item was
+ * added to the last itemset of the parent (an itemset extension) or as a new itemset.
+ * Thus, extending a pattern takes a constant time and memory, instead of copying
+ * all its itemsets.
+ * <br/><br/>
+ * A node is converted to a SequentialPattern only when it is kept into memory,
+ * and is written to a file without being converted (see FilePatternSink).
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see SequentialPattern
+ */
+class PatternNode {
+
+	// the pattern extended by this pattern (null for a pattern containing a single item)
+	private final PatternNode parent;
+	// the item appended to the parent
+	private final int item;
+	// true if the item was added to the last itemset of the parent
+	private final boolean itemsetExtension;
+	// the number of items of this pattern
+	private final int length;
+	// the number of itemsets of this pattern
+	private final int itemsetCount;
+
+	// IDs of sequences containing this pattern (null in count-only mode)
+	private SidSet sequenceIDs = null;
+	// the support of this pattern if the IDs of sequences are not kept
+	private int absoluteSupport = 0;
+
+	/**
+	 * Create a pattern by extending another pattern.
+	 * @param parent the pattern that is extended (null to create a pattern containing a single item)
+	 * @param item the item appended to the parent
+	 * @param itemsetExtension true if the item is added to the last itemset of the parent,
+	 *   false if it is added as a new itemset.
+	 */
+	PatternNode(PatternNode parent, int item, boolean itemsetExtension) {
+		this.parent = parent;
+		this.item = item;
+		this.itemsetExtension = parent != null && itemsetExtension;
+		this.length = parent == null ? 1 : parent.length + 1;
+		int parentItemsetCount = parent == null ? 0 : parent.itemsetCount;
+		this.itemsetCount = this.itemsetExtension ? parentItemsetCount : parentItemsetCount + 1;
+	}
+
+	/**
+	 * Create the chain of nodes representing a sequential pattern.
+	 * @param pattern the pattern (containing at least one item)
+	 * @return the node of its last item
+	 */
+	static PatternNode fromSequentialPattern(SequentialPattern pattern) {
+		PatternNode node = null;
+		for(Itemset itemset : pattern.getItemsets()){
+			for(int i = 0; i < itemset.size(); i++){
+				node = new PatternNode(node, itemset.get(i), i != 0);
+			}
+		}
+		if(node != null && pattern.getSequenceIDs() != null){
+			node.setSequenceIDs(pattern.getSequenceIDs());
+		}else if(node != null){
+			node.setAbsoluteSupport(pattern.getAbsoluteSupport());
+		}
+		return node;
+	}
+
+	/**
+	 * Set the IDs of sequences containing this pattern
+	 * @param sequenceIDs the sequence IDs
+	 */
+	void setSequenceIDs(SidSet sequenceIDs) {
+		this.sequenceIDs = sequenceIDs;
+	}
+
+	/**
+	 * Set the support of this pattern without keeping the IDs of sequences containing it
+	 * @param absoluteSupport the support
+	 */
+	void setAbsoluteSupport(int absoluteSupport) {
+		this.sequenceIDs = null;
+		this.absoluteSupport = absoluteSupport;
+	}
+
+	/**
+	 * Get the IDs of sequences containing this pattern
+	 * @return the sequence IDs or null if they are not kept
+	 */
+	SidSet getSequenceIDs() {
+		return sequenceIDs;
+	}
+
+	/**
+	 * Get the absolute support of this pattern.
+	 * @return the support
+	 */
+	int getAbsoluteSupport() {
+		return sequenceIDs != null ? sequenceIDs.size() : absoluteSupport;
+	}
+
+	/**
+	 * Get the pattern extended by this pattern
+	 * @return the parent or null if this pattern contains a single item
+	 */
+	PatternNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * Get the item appended to the parent
+	 * @return the item
+	 */
+	int getItem() {
+		return item;
+	}
+
+	/**
+	 * Check if the item was added to the last itemset of the parent
+	 * @return true if it is an itemset extension, false if the item starts a new itemset
+	 */
+	boolean isItemsetExtension() {
+		return itemsetExtension;
+	}
+
+	/**
+	 * Get the number of items of this pattern
+	 * @return the number of items
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Get the number of itemsets of this pattern
+	 * @return the number of itemsets
+	 */
+	int getItemsetCount() {
+		return itemsetCount;
+	}
+
+	/**
+	 * Get the items of this pattern, from the first one to the last one.
+	 * If the items were recoded, the original items are returned and the items
+	 * of each itemset are sorted again.
+	 * @param recoding the recoding of the items, or null if they were not recoded
+	 * @param items an array of size at least getLength() where the items are stored
+	 * @param itemsetEnds an array of size at least getItemsetCount() where the position following
+	 *   the last item of each itemset is stored
+	 */
+	void getItems(ItemRecoding recoding, int[] items, int[] itemsetEnds) {
+		int itemset = itemsetCount - 1;
+		itemsetEnds[itemset] = length;
+		int position = length - 1;
+		// follow the parents from the last item
+		for(PatternNode node = this; node != null; node = node.parent, position--){
+			items[position] = recoding == null ? node.item : recoding.getOriginalItem(node.item);
+			if(!node.itemsetExtension && itemset > 0){
+				// the item starts an itemset
+				itemsetEnds[--itemset] = position;
+			}
+		}
+		if(recoding != null){
+			int start = 0;
+			for(int i = 0; i < itemsetCount; i++){
+				Arrays.sort(items, start, itemsetEnds[i]);
+				start = itemsetEnds[i];
+			}
+		}
+	}
+
+	/**
+	 * Convert this pattern to a SequentialPattern (with the same sequence IDs or support).
+	 * @param recoding the recoding of the items, or null if they were not recoded
+	 * @return the sequential pattern
+	 */
+	SequentialPattern toSequentialPattern(ItemRecoding recoding) {
+		int[] items = new int[length];
+		int[] itemsetEnds = new int[itemsetCount];
+		getItems(recoding, items, itemsetEnds);
+		SequentialPattern pattern = new SequentialPattern();
+		int start = 0;
+		for(int end : itemsetEnds){
+			Itemset itemset = new Itemset();
+			for(int i = start; i < end; i++){
+				itemset.addItem(items[i]);
+			}
+			pattern.addItemset(itemset);
+			start = end;
+		}
+		if(sequenceIDs != null){
+			pattern.setSequenceIDs(sequenceIDs);
+		}else{
+			pattern.setAbsoluteSupport(absoluteSupport);
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,55 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+
+/**
+ * This interface represents the destination of the sequential patterns found by
+ * PrefixSpan. Each pattern is given to the sink as soon as it is saved by the algorithm,
+ * so that the patterns can be consumed without keeping them into memory or writing them to
+ * a text file. The method close() is called once after the last pattern.
+ * <br/><br/>
+ * The built-in sinks are FilePatternSink (the SPMF text format), MemoryPatternSink
+ * (a SequentialPatterns object) and CountingPatternSink (only the number of patterns).
+ * Since this interface has a single abstract method, any other use can be implemented by
+ * a callback (an anonymous class or a lambda expression).
+ * <br/><br/>
+ * The methods of a sink are never called concurrently, even if the algorithm uses several
+ * threads. In the parallel mode, the patterns are received in the order of the sequential
+ * mode only if the deterministic output is used.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ */
+public interface PatternSink {
+
+	/**
+	 * Receive a sequential pattern found by the algorithm.
+	 * @param pattern the pattern (with the original items, and its sequence IDs or
+	 *    only its support in count-only mode)
+	 * @throws IOException exception if an error while saving the pattern
+	 */
+	void savePattern(SequentialPattern pattern) throws IOException;
+
+	/**
+	 * Called after the last pattern was received.
+	 * @throws IOException exception if an error while closing the sink
+	 */
+	default void close() throws IOException {
+	}
+}
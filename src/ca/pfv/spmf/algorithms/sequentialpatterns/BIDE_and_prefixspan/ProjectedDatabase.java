@@ -0,0 +1,273 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceView;
+
+/**
+ * This represents a projected database (as based in PrefixSpan) as parallel arrays
+ * of integers instead of a list of PseudoSequence objects. The pseudo-sequence at
+ * position i starts in the sequence sequences[i] of a sequence store, at the
+ * itemset itemsets[i] of that sequence and at the item items[i] of that itemset
+ * (the same positions as in PseudoSequence). It is a postfix if items[i] is not 0.
+ * <br/><br/>
+ * The pseudo-sequences of a same sequence are consecutive and ordered by position.
+ * They form a group that is identified by the position of its first pseudo-sequence.
+ * <br/><br/>
+ * A projected database can be cleared and filled again, so that the same arrays
+ * are reused for all the projected databases of a given depth (see ProjectedDatabaseArena).
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see PseudoSequence
+ */
+class ProjectedDatabase {
+
+	// the database containing the original sequences
+	private SequenceStore database;
+
+	// the index of the original sequence of each pseudo-sequence
+	private int[] sequences;
+	// the first itemset of each pseudo-sequence in the original sequence
+	private int[] itemsets;
+	// the first item of each pseudo-sequence in its first itemset
+	private int[] items;
+	// the number of pseudo-sequences
+	private int size = 0;
+
+	// the view used to read the sequences while this projected database is built
+	private final SequenceView view = new SequenceView();
+
+	/**
+	 * Create an empty projected database.
+	 * @param database the database containing the original sequences
+	 * @param capacity the initial number of pseudo-sequences that can be stored
+	 */
+	ProjectedDatabase(SequenceStore database, int capacity) {
+		this.database = database;
+		capacity = Math.max(capacity, 4);
+		sequences = new int[capacity];
+		itemsets = new int[capacity];
+		items = new int[capacity];
+	}
+
+	/**
+	 * Create the initial projected database of a sequence store, containing
+	 * one pseudo-sequence for each sequence.
+	 * @param database the sequence store
+	 * @return the projected database
+	 */
+	static ProjectedDatabase createInitialDatabase(SequenceStore database) {
+		ProjectedDatabase projectedDatabase = new ProjectedDatabase(database, database.size());
+		for(int i = 0; i < database.size(); i++){
+			projectedDatabase.add(i, 0, 0);
+		}
+		return projectedDatabase;
+	}
+
+	/**
+	 * Create a projected database from a list of pseudo-sequences.
+	 * If the pseudo-sequences refer to several compact databases, their original
+	 * sequences are copied into a new compact database.
+	 * @param pseudoSequences the pseudo-sequences
+	 * @return the projected database
+	 */
+	static ProjectedDatabase fromPseudoSequences(List<PseudoSequence> pseudoSequences) {
+		// number the databases by order of appearance
+		final Map<CompactSequenceDatabase, Integer> databaseNumbers = new IdentityHashMap<CompactSequenceDatabase, Integer>();
+		for(PseudoSequence sequence : pseudoSequences){
+			if(!databaseNumbers.containsKey(sequence.database)){
+				databaseNumbers.put(sequence.database, databaseNumbers.size());
+			}
+		}
+		// sort the pseudo-sequences by database, sequence and position
+		List<PseudoSequence> sorted = new ArrayList<PseudoSequence>(pseudoSequences);
+		Collections.sort(sorted, new Comparator<PseudoSequence>() {
+			@Override
+			public int compare(PseudoSequence a, PseudoSequence b) {
+				if(a.database != b.database){
+					return databaseNumbers.get(a.database) - databaseNumbers.get(b.database);
+				}
+				if(a.index != b.index){
+					return a.index - b.index;
+				}
+				if(a.firstItemset != b.firstItemset){
+					return a.firstItemset - b.firstItemset;
+				}
+				return a.firstItem - b.firstItem;
+			}
+		});
+
+		// if the pseudo-sequences refer to several databases, a new database is created
+		boolean sameDatabase = databaseNumbers.size() <= 1;
+		CompactSequenceDatabase database = sameDatabase && !sorted.isEmpty() ? 
+				sorted.get(0).database : new CompactSequenceDatabase();
+		ProjectedDatabase projectedDatabase = new ProjectedDatabase(database, sorted.size());
+		PseudoSequence previous = null;
+		for(PseudoSequence sequence : sorted){
+			int index = sequence.index;
+			if(!sameDatabase){
+				// copy the original sequence the first time that it is seen
+				if(previous == null || previous.database != sequence.database || previous.index != sequence.index){
+					database.addSequence(sequence.getOriginalSequence());
+				}
+				index = database.size() - 1;
+			}
+			projectedDatabase.add(index, sequence.firstItemset, sequence.firstItem);
+			previous = sequence;
+		}
+		return projectedDatabase;
+	}
+
+	/**
+	 * Remove all the pseudo-sequences (the arrays are kept to be reused).
+	 * @param database the database containing the original sequences of the pseudo-sequences to be added.
+	 */
+	void clear(SequenceStore database) {
+		this.database = database;
+		size = 0;
+	}
+
+	/**
+	 * Add a pseudo-sequence at the end of this projected database.
+	 * @param sequence the index of the original sequence
+	 * @param itemset the first itemset of the pseudo-sequence in the original sequence
+	 * @param item the first item of the pseudo-sequence in its first itemset
+	 */
+	void add(int sequence, int itemset, int item) {
+		if(size == sequences.length){
+			int capacity = size * 2;
+			sequences = Arrays.copyOf(sequences, capacity);
+			itemsets = Arrays.copyOf(itemsets, capacity);
+			items = Arrays.copyOf(items, capacity);
+		}
+		sequences[size] = sequence;
+		itemsets[size] = itemset;
+		items[size] = item;
+		size++;
+	}
+
+	/**
+	 * Check if the last pseudo-sequence of this projected database is a given one.
+	 * @param sequence the index of the original sequence
+	 * @param itemset the first itemset of the pseudo-sequence in the original sequence
+	 * @param item the first item of the pseudo-sequence in its first itemset
+	 * @return true if it is the last one
+	 */
+	boolean isLast(int sequence, int itemset, int item) {
+		return size != 0 && sequences[size - 1] == sequence && itemsets[size - 1] == itemset
+				&& items[size - 1] == item;
+	}
+
+	/**
+	 * Make a copy of this projected database that does not share its arrays.
+	 * @return the copy
+	 */
+	ProjectedDatabase copy() {
+		ProjectedDatabase copy = new ProjectedDatabase(database, size);
+		System.arraycopy(sequences, 0, copy.sequences, 0, size);
+		System.arraycopy(itemsets, 0, copy.itemsets, 0, size);
+		System.arraycopy(items, 0, copy.items, 0, size);
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Get the database containing the original sequences.
+	 * @return the sequence store
+	 */
+	SequenceStore getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Get the view used to read the original sequences while this projected database is
+	 * built (it belongs to the thread that builds it).
+	 * @return the view
+	 */
+	SequenceView getSequenceView() {
+		return view;
+	}
+
+	/**
+	 * Get the number of pseudo-sequences.
+	 * @return the size
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Get the index of the original sequence of a pseudo-sequence
+	 * @param i the position of the pseudo-sequence
+	 * @return the index of the sequence in the compact database
+	 */
+	int getSequence(int i) {
+		return sequences[i];
+	}
+
+	/**
+	 * Get the first itemset of a pseudo-sequence in its original sequence
+	 * @param i the position of the pseudo-sequence
+	 * @return the position of the itemset in the sequence
+	 */
+	int getItemset(int i) {
+		return itemsets[i];
+	}
+
+	/**
+	 * Get the first item of a pseudo-sequence in its first itemset
+	 * @param i the position of the pseudo-sequence
+	 * @return the position of the item in the itemset
+	 */
+	int getItem(int i) {
+		return items[i];
+	}
+
+	/**
+	 * Return true if the first itemset of a pseudo-sequence is cut at left (a postfix).
+	 * @param i the position of the pseudo-sequence
+	 * @return true if it is cut at left.
+	 */
+	boolean isPostfix(int i) {
+		return items[i] != 0;
+	}
+
+	/**
+	 * Get the end of the group of pseudo-sequences starting at a given position.
+	 * @param group the position of the first pseudo-sequence of the group
+	 * @return the position following the last pseudo-sequence of the group
+	 */
+	int getGroupEnd(int group) {
+		int end = group + 1;
+		while(end < size && sequences[end] == sequences[group]){
+			end++;
+		}
+		return end;
+	}
+}
@@ -0,0 +1,60 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+
+/**
+ * This class provides one projected database for each depth of the recursion of PrefixSpan.
+ * When a prefix of length k is grown, its projected databases are created one after the other,
+ * and the projected database of an extension is not needed anymore after the extension has been
+ * grown. Thus, the arrays of the projected database of depth k + 1 are reused for all the extensions.
+ * <br/><br/>
+ * An arena is not thread-safe. Each thread (or task) of the parallel mode uses its own arena.
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see ProjectedDatabase
+ */
+class ProjectedDatabaseArena {
+
+	// the projected database of each depth
+	private final List<ProjectedDatabase> levels = new ArrayList<ProjectedDatabase>();
+
+	/**
+	 * Get the projected database of a given depth, after removing its pseudo-sequences.
+	 * @param depth the depth (the length of the prefix in terms of items)
+	 * @param database the database containing the original sequences
+	 * @return an empty projected database
+	 */
+	ProjectedDatabase get(int depth, SequenceStore database) {
+		while(levels.size() <= depth){
+			levels.add(null);
+		}
+		ProjectedDatabase projectedDatabase = levels.get(depth);
+		if(projectedDatabase == null){
+			projectedDatabase = new ProjectedDatabase(database, 64);
+			levels.set(depth, projectedDatabase);
+		}
+		projectedDatabase.clear(database);
+		return projectedDatabase;
+	}
+}
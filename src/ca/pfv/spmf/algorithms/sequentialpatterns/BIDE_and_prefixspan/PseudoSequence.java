@@ -1,7 +1,9 @@
 package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
 import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
 /**
  * This represents a sequence from a projected database (as based in PrefixSpan).
@@ -29,8 +31,10 @@ import ca.pfv.spmf.input.sequence_database_list_integers.Sequence;
  */
 public class PseudoSequence {
 
-	// the corresponding sequence in the original database
-	protected Sequence sequence;
+	// the database containing the original sequence
+	protected CompactSequenceDatabase database;
+	// the index of the original sequence in the database
+	protected int index;
 
 	// the first itemset of this pseudo-sequence  in the original sequence
 	protected int firstItemset;
@@ -46,10 +50,10 @@ public class PseudoSequence {
 	
 	/**
 	 * Get the original sequence corresponding to this projected sequence.
-	 * @return the original sequence
+	 * @return a copy of the original sequence
 	 */
 	public Sequence getOriginalSequence() {
-		return sequence;
+		return database.getSequence(index);
 	}
 
 
@@ -61,7 +65,8 @@ public class PseudoSequence {
 	 */
 	protected PseudoSequence(PseudoSequence sequence, int indexItemset, int indexItem){
 		// remember the original sequence
-		this.sequence = sequence.sequence;
+		this.database = sequence.database;
+		this.index = sequence.index;
 		// record the position of where the pseudo-sequence starts
 		// in terms of the original pseudo-sequence
 		this.firstItemset = indexItemset + sequence.firstItemset;
@@ -73,19 +78,36 @@ public class PseudoSequence {
 	}
 	
 	/**
-	 * Create a pseudo-sequence from a sequence that is an original sequence.
-	 * @param sequence the original sequence.
+	 * Create a pseudo-sequence from a sequence of a compact database.
+	 * @param database the database containing the original sequence.
+	 * @param index the index of the original sequence in the database.
 	 * @param indexItemset the itemset where the pseudo-sequence should start in terms of the original sequence.
 	 * @param indexItem the item where the pseudo-sequence should start in terms of the original sequence.
 	 */
-	protected  PseudoSequence(Sequence sequence, int indexItemset, int indexItem){
+	protected PseudoSequence(CompactSequenceDatabase database, int index, int indexItemset, int indexItem){
 		// remember the original sequence
-		this.sequence = sequence;
+		this.database = database;
+		this.index = index;
 		// remember the starting position of this pseudo-sequence in terms
 		// of the original sequence.
 		this.firstItemset = indexItemset;
 		this.firstItem = indexItem;
 	}
+	
+	/**
+	 * Create a pseudo-sequence from a sequence that is an original sequence.
+	 * The sequence is copied into a compact database containing only this sequence.
+	 * @param sequence the original sequence.
+	 * @param indexItemset the itemset where the pseudo-sequence should start in terms of the original sequence.
+	 * @param indexItem the item where the pseudo-sequence should start in terms of the original sequence.
+	 */
+	protected  PseudoSequence(Sequence sequence, int indexItemset, int indexItem){
+		this.database = new CompactSequenceDatabase();
+		this.database.addSequence(sequence);
+		this.index = 0;
+		this.firstItemset = indexItemset;
+		this.firstItem = indexItem;
+	}
 
 	/**
 	 * Return the size of this pseudo-sequence in terms of itemsets.
@@ -94,9 +116,10 @@ public class PseudoSequence {
 	protected int size() {
 		// the size is the size of the original sequence minus
 		// the itemset where this pseudo-sequence start
-		int size = sequence.size() - firstItemset;
+		int first = database.getFirstItemset(index) + firstItemset;
+		int size = database.getLastItemset(index) - first;
 		// if the size is 1 and it the only itemset is empty, return 0
-		if(size == 1 && sequence.getItemsets().get(firstItemset).size() == 0){
+		if(size == 1 && database.getFirstItem(first) == database.getLastItem(first)){
 			return 0;
 		}
 		// return the size
@@ -113,7 +136,8 @@ public class PseudoSequence {
 		// We obtain the size of the itemset by looking at the original
 		// sequence. To obtain the position of the itemset we do
 		//   index + firstItemset.
-		int size = sequence.getItemsets().get(index + firstItemset).size();
+		int itemset = database.getFirstItemset(this.index) + index + firstItemset;
+		int size = database.getLastItem(itemset) - database.getFirstItem(itemset);
 		// if it is the first itemset of the pseudo-sequence
 		if(isFirstItemset(index)){
 			// we remove some items if this itemset is cut at left.
@@ -148,7 +172,7 @@ public class PseudoSequence {
 	 * @return true if it is the last one.
 	 */
 	protected boolean isLastItemset(int index) {
-		return (index + firstItemset) == sequence.getItemsets().size() -1;
+		return database.getFirstItemset(this.index) + index + firstItemset == database.getLastItemset(this.index) -1;
 	}
 
 	/**
@@ -157,24 +181,30 @@ public class PseudoSequence {
 	 * @param indexItemset the position of the itemset
 	 * @return the item.
 	 */
-	public Integer getItemAtInItemsetAt(int indexItem, int indexItemset) {
+	public int getItemAtInItemsetAt(int indexItem, int indexItemset) {
+		int itemset = database.getFirstItemset(index) + indexItemset + firstItemset;
 		// if it is in the first itemset
 		if(isFirstItemset(indexItemset)){
 			// we need to consider if the itemset was cut at the left
 			// by adding "firstItem"
-			return getItemset(indexItemset).get(indexItem + firstItem);
+			return database.getItem(database.getFirstItem(itemset) + indexItem + firstItem);
 		}else{// otherwise
-			return getItemset(indexItemset).get(indexItem);
+			return database.getItem(database.getFirstItem(itemset) + indexItem);
 		}
 	}
 
 	/**
 	 * Get the itemset at a given position
 	 * @param index the position of the itemset
-	 * @return the itemset
+	 * @return a copy of the itemset
 	 */
 	public List<Integer> getItemset(int index) {
-		return sequence.get(index+firstItemset);
+		int itemset = database.getFirstItemset(this.index) + index + firstItemset;
+		List<Integer> items = new ArrayList<Integer>();
+		for(int p = database.getFirstItem(itemset); p < database.getLastItem(itemset); p++){
+			items.add(database.getItem(p));
+		}
+		return items;
 	}
 
 	/**
@@ -182,7 +212,7 @@ public class PseudoSequence {
 	 * @return a sequence ID (integer)
 	 */
 	protected int getId() {
-		return sequence.getId();
+		return database.getSequenceId(index);
 	}
 
 	/**
@@ -202,7 +232,7 @@ public class PseudoSequence {
 			// for each item
 			for(int j=0; j < getSizeOfItemsetAt(i); j++){
 				// append the item
-				r.append(getItemAtInItemsetAt(j, i).toString());
+				r.append(getItemAtInItemsetAt(j, i));
 				// if it is in a postfix, we add a "*" symbol beside the item
 				if(isPostfix(i)){
 					r.append('*');
@@ -0,0 +1,194 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a checkpoint of the depth-first search of PrefixSpan.
+ * It contains the frontier of the search: the patterns that were found but not
+ * saved yet (in the order where they would be saved), with their sequence IDs
+ * (or their support in count-only mode). The search can be resumed by saving each of
+ * these patterns and by growing them. The projected database of a pattern is not stored:
+ * it is built again from the sequences containing the pattern.
+ * <br/><br/>
+ * The checkpoint also contains the length of the output file and the number
+ * of patterns saved when it was written, so that the patterns written after the
+ * checkpoint can be removed from the output file before resuming.
+ * <br/><br/>
+ * The file is a binary file where the integers are stored as variable-length
+ * integers (7 bits per byte) and the sequence IDs of a pattern are stored as
+ * the differences between consecutive IDs. It is written to a temporary file that
+ * then replaces the previous checkpoint, so that a checkpoint is never partially written.
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ */
+class SearchCheckpoint {
+
+	// the first bytes of a checkpoint file ("SPCK")
+	private static final int MAGIC = 0x5350434B;
+	// the version of the file format
+	private static final int VERSION = 1;
+
+	// the absolute minimum support of the search
+	int minsup;
+	// the maximum pattern length of the search
+	int maximumPatternLength;
+	// the number of sequences of the database (without the infrequent items)
+	int sequenceCount;
+	// the length of the output file when the checkpoint was written
+	long outputLength;
+	// the number of patterns saved when the checkpoint was written
+	int patternCount;
+	// the patterns found but not saved, in the order where they must be saved
+	List<PatternNode> pendingPatterns = new ArrayList<PatternNode>();
+
+	/**
+	 * Write this checkpoint to a file. The file is replaced only once the
+	 * checkpoint is completely written.
+	 * @param path the path of the file
+	 * @throws IOException exception if an error while writing the file
+	 */
+	void write(String path) throws IOException {
+		File file = new File(path);
+		File temporaryFile = new File(path + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+		try{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			VarInts.writeVarInt(out, minsup);
+			VarInts.writeVarInt(out, maximumPatternLength);
+			VarInts.writeVarInt(out, sequenceCount);
+			out.writeLong(outputLength);
+			VarInts.writeVarInt(out, patternCount);
+			VarInts.writeVarInt(out, pendingPatterns.size());
+			for(PatternNode pattern : pendingPatterns){
+				writePattern(out, pattern);
+			}
+		}finally{
+			out.close();
+		}
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Write a pattern: its items from the first one to the last one, then its sequence IDs or its support.
+	 * @param out the output stream
+	 * @param pattern the pattern
+	 * @throws IOException exception if an error while writing the file
+	 */
+	private static void writePattern(DataOutputStream out, PatternNode pattern) throws IOException {
+		PatternNode[] nodes = new PatternNode[pattern.getLength()];
+		int i = nodes.length;
+		for(PatternNode node = pattern; node != null; node = node.getParent()){
+			nodes[--i] = node;
+		}
+		VarInts.writeVarInt(out, nodes.length);
+		for(PatternNode node : nodes){
+			// the item (the sign is moved to the lowest bit) followed by the kind of extension
+			VarInts.writeVarLong(out, VarInts.zigzag(node.getItem()) << 1 | (node.isItemsetExtension() ? 1 : 0));
+		}
+		SidSet sequenceIDs = pattern.getSequenceIDs();
+		if(sequenceIDs == null){
+			out.writeByte(0);
+			VarInts.writeVarInt(out, pattern.getAbsoluteSupport());
+		}else{
+			out.writeByte(1);
+			VarInts.writeVarInt(out, sequenceIDs.size());
+			int previous = 0;
+			for(int sid = sequenceIDs.nextSid(0); sid != -1; sid = sequenceIDs.nextSid(sid + 1)){
+				VarInts.writeVarInt(out, sid - previous);
+				previous = sid;
+			}
+		}
+	}
+
+	/**
+	 * Read a checkpoint from a file.
+	 * @param path the path of the file
+	 * @return the checkpoint
+	 * @throws IOException exception if an error while reading the file or if it is not a checkpoint
+	 */
+	static SearchCheckpoint read(String path) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+		try{
+			if(in.readInt() != MAGIC || in.readInt() != VERSION){
+				throw new IOException("Not a PrefixSpan checkpoint file: " + path);
+			}
+			SearchCheckpoint checkpoint = new SearchCheckpoint();
+			checkpoint.minsup = VarInts.readVarInt(in);
+			checkpoint.maximumPatternLength = VarInts.readVarInt(in);
+			checkpoint.sequenceCount = VarInts.readVarInt(in);
+			checkpoint.outputLength = in.readLong();
+			checkpoint.patternCount = VarInts.readVarInt(in);
+			int count = VarInts.readVarInt(in);
+			for(int i = 0; i < count; i++){
+				checkpoint.pendingPatterns.add(readPattern(in));
+			}
+			return checkpoint;
+		}finally{
+			in.close();
+		}
+	}
+
+	/**
+	 * Read a pattern written by writePattern().
+	 * @param in the input stream
+	 * @return the pattern
+	 * @throws IOException exception if an error while reading the file
+	 */
+	private static PatternNode readPattern(DataInputStream in) throws IOException {
+		int length = VarInts.readVarInt(in);
+		if(length <= 0){
+			throw new IOException("Invalid pattern length in checkpoint: " + length);
+		}
+		PatternNode pattern = null;
+		for(int i = 0; i < length; i++){
+			long value = VarInts.readVarLong(in);
+			pattern = new PatternNode(pattern, VarInts.unzigzag(value >>> 1), (value & 1) != 0);
+		}
+		if(in.readByte() == 0){
+			pattern.setAbsoluteSupport(VarInts.readVarInt(in));
+		}else{
+			int size = VarInts.readVarInt(in);
+			SidSet sequenceIDs = new SidSet(size);
+			int sid = 0;
+			for(int i = 0; i < size; i++){
+				sid += VarInts.readVarInt(in);
+				sequenceIDs.add(sid);
+			}
+			sequenceIDs.compact();
+			pattern.setSequenceIDs(sequenceIDs);
+		}
+		return pattern;
+	}
+}
@@ -0,0 +1,279 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.Arrays;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+
+/**
+ * This class represents the vertical bitmap of an item or of a pattern in a sequence
+ * database: for each sequence, the bit of an itemset is set if the pattern has an occurrence
+ * ending in this itemset. The bits of a sequence are stored in words of 64 bits, and only the
+ * sequences having at least one bit set are stored (by increasing index, with their words
+ * contiguous), so that the bitmap of a pattern with a low support is small. The support of
+ * the pattern is the number of sequences stored.
+ * <br/><br/>
+ * The bitmaps of the extensions of a pattern are computed with word-level operations:
+ * an I-step (the item is added to the last itemset) is the AND of the bitmap of the pattern
+ * with the bitmap of the item, and an S-step (the item is added as a new itemset) is the AND
+ * of the S-step mask of the pattern (the itemsets after the first occurrence, see
+ * createSStepMask()) with the bitmap of the item.
+ * It is not thread-safe.
+ *
+ * This class is used by AlgoSPAM.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoSPAM
+ */
+class SequenceBitmap {
+
+	// the number of positions checked one by one before searching for a sequence
+	private static final int LINEAR_SEARCH_LENGTH = 8;
+
+	// the indices of the sequences having at least one bit set, by increasing index
+	private int[] sequences;
+	// the position of the first word of each sequence in words (and the end of the last one)
+	private int[] starts;
+	// the words of the sequences
+	private long[] words;
+	// the number of sequences stored
+	private int size = 0;
+	// the position of each sequence of the database in sequences, or -1 if it is not stored
+	// (null if the bitmap is not indexed)
+	private int[] index = null;
+
+	/**
+	 * Create an empty bitmap.
+	 * @param sequenceCapacity the number of sequences that can be stored without growing the arrays
+	 * @param wordCapacity the number of words that can be stored without growing the arrays
+	 */
+	SequenceBitmap(int sequenceCapacity, int wordCapacity) {
+		sequences = new int[Math.max(1, sequenceCapacity)];
+		starts = new int[sequences.length + 1];
+		words = new long[Math.max(1, wordCapacity)];
+	}
+
+	/**
+	 * Set the bit of an itemset. The sequences must be given by increasing index.
+	 * @param sequence the index of the sequence in the database
+	 * @param wordCount the number of words of the sequence (one bit per itemset)
+	 * @param itemset the index of the itemset in the sequence
+	 */
+	void setBit(int sequence, int wordCount, int itemset) {
+		if(size == 0 || sequences[size - 1] != sequence){
+			ensureCapacity(size + 1, starts[size] + wordCount);
+			sequences[size++] = sequence;
+			starts[size] = starts[size - 1] + wordCount;
+		}
+		words[starts[size - 1] + (itemset >>> 6)] |= 1L << itemset;
+	}
+
+	/**
+	 * Grow the arrays so that they can store a number of sequences and of words.
+	 * @param sequenceCount the number of sequences
+	 * @param wordCount the number of words
+	 */
+	private void ensureCapacity(int sequenceCount, int wordCount) {
+		if(sequenceCount > sequences.length){
+			int length = Math.max(sequenceCount, sequences.length * 2);
+			sequences = Arrays.copyOf(sequences, length);
+			starts = Arrays.copyOf(starts, length + 1);
+		}
+		if(wordCount > words.length){
+			words = Arrays.copyOf(words, Math.max(wordCount, words.length * 2));
+		}
+	}
+
+	/**
+	 * Index the sequences of this bitmap, so that the position of a sequence is found without
+	 * a search when another bitmap is joined with it. This is worth it for a bitmap containing
+	 * many of the sequences of the database (such as the bitmap of a frequent item of a dense database).
+	 * @param sequenceCount the number of sequences of the database
+	 */
+	void createIndex(int sequenceCount) {
+		index = new int[sequenceCount];
+		Arrays.fill(index, -1);
+		for(int i = 0; i < size; i++){
+			index[sequences[i]] = i;
+		}
+	}
+
+	/**
+	 * Get the support of the pattern of this bitmap.
+	 * @return the number of sequences having at least one bit set
+	 */
+	int getSupport() {
+		return size;
+	}
+
+	/**
+	 * Get the words of this bitmap.
+	 * @return the words (the array may be longer than the words stored)
+	 */
+	long[] getWords() {
+		return words;
+	}
+
+	/**
+	 * Create the S-step mask of this bitmap: for each sequence, the bits of the itemsets after
+	 * the first itemset whose bit is set (the itemsets where the pattern can be extended with a
+	 * new itemset). The mask has the same layout as the words of this bitmap, and its bits after
+	 * the last itemset of a sequence are also set.
+	 * @return the words of the mask
+	 */
+	long[] createSStepMask() {
+		long[] mask = new long[starts[size]];
+		for(int i = 0; i < size; i++){
+			int position = starts[i];
+			while(words[position] == 0){
+				position++;
+			}
+			// the bits after the lowest bit set (no bit if it is the last bit of the word)
+			mask[position] = -1L << Long.numberOfTrailingZeros(words[position]) << 1;
+			Arrays.fill(mask, position + 1, starts[i + 1], -1L);
+		}
+		return mask;
+	}
+
+	/**
+	 * Compute the bitmap of an extension of the pattern of this bitmap: the AND of some words
+	 * having the layout of this bitmap (its own words for an I-step, or its S-step mask for an
+	 * S-step) with the bitmap of an item. The join stops as soon as the support of the extension
+	 * cannot reach the minimum support. If the bitmap of the item is indexed, its sequences are
+	 * found with the index, and otherwise by merging the sequences of the two bitmaps.
+	 * @param prefixWords the words of this bitmap or its S-step mask
+	 * @param item the bitmap of the item
+	 * @param minsup the minimum support
+	 * @param result the bitmap receiving the extension (it is cleared first)
+	 * @return true if the support of the extension is at least the minimum support
+	 */
+	boolean join(long[] prefixWords, SequenceBitmap item, int minsup, SequenceBitmap result) {
+		result.size = 0;
+		result.ensureCapacity(Math.min(size, item.size), starts[size]);
+		int[] resultSequences = result.sequences;
+		int[] resultStarts = result.starts;
+		long[] resultWords = result.words;
+		int count = 0;
+		int j = 0;
+		for(int i = 0; i < size; i++){
+			// stop if the remaining sequences of the pattern or of the item are not enough
+			if(count + Math.min(size - i, item.size - j) < minsup){
+				return false;
+			}
+			int sequence = sequences[i];
+			if(item.index != null){
+				// the position of the sequence in the item is known
+				j = item.index[sequence];
+				if(j < 0){
+					continue;
+				}
+			}else if(item.sequences[j] < sequence){
+				j = item.advance(j, sequence);
+				if(j == item.size){
+					break;
+				}
+			}
+			if(item.sequences[j] != sequence){
+				continue;
+			}
+			// AND the words of the sequence
+			int start = starts[i];
+			int wordCount = starts[i + 1] - start;
+			int itemStart = item.starts[j] - start;
+			int resultStart = resultStarts[count] - start;
+			long any = 0;
+			for(int position = start; position < start + wordCount; position++){
+				long word = prefixWords[position] & item.words[itemStart + position];
+				resultWords[resultStart + position] = word;
+				any |= word;
+			}
+			if(any != 0){
+				resultSequences[count] = sequence;
+				resultStarts[count + 1] = resultStarts[count] + wordCount;
+				count++;
+			}
+			j++;
+			if(j == item.size){
+				break;
+			}
+		}
+		result.size = count;
+		return count >= minsup;
+	}
+
+	/**
+	 * Find the first sequence stored whose index is not lower than a given index. The next
+	 * positions are checked first (the case of a dense bitmap), and then an exponential search
+	 * followed by a binary search is done (so that a small bitmap is joined quickly with a large one).
+	 * @param from the position from which the search starts
+	 * @param sequence the index of the sequence
+	 * @return the position of the sequence, or size if all the sequences are lower
+	 */
+	private int advance(int from, int sequence) {
+		int end = Math.min(size, from + LINEAR_SEARCH_LENGTH);
+		for(int position = from + 1; position < end; position++){
+			if(sequences[position] >= sequence){
+				return position;
+			}
+		}
+		if(end == size){
+			return size;
+		}
+		int low = end - 1;
+		from = low;
+		int step = 1;
+		int high = from + step;
+		while(high < size && sequences[high] < sequence){
+			low = high;
+			step <<= 1;
+			high = from + step;
+		}
+		high = Math.min(high, size);
+		// the sequence is in (low, high]
+		int position = Arrays.binarySearch(sequences, low + 1, high, sequence);
+		return position >= 0 ? position : -position - 1;
+	}
+
+	/**
+	 * Get a copy of this bitmap, with arrays of the exact size.
+	 * @return the copy
+	 */
+	SequenceBitmap copy() {
+		SequenceBitmap copy = new SequenceBitmap(0, 0);
+		copy.sequences = Arrays.copyOf(sequences, size);
+		copy.starts = Arrays.copyOf(starts, size + 1);
+		copy.words = Arrays.copyOf(words, starts[size]);
+		copy.size = size;
+		copy.index = index;
+		return copy;
+	}
+
+	/**
+	 * Get the IDs of the sequences having at least one bit set.
+	 * @param database the database of the sequences
+	 * @return the sequence IDs
+	 */
+	SidSet toSidSet(SequenceStore database) {
+		SidSet sequenceIDs = new SidSet(size);
+		for(int i = 0; i < size; i++){
+			sequenceIDs.add(database.getSequenceId(sequences[i]));
+		}
+		sequenceIDs.compact();
+		return sequenceIDs;
+	}
+}
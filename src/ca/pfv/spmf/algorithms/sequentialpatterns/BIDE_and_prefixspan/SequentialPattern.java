@@ -36,16 +36,28 @@ public class SequentialPattern implements Comparable<SequentialPattern>{
 //	private int id; 
 	
 	// IDs of sequences containing this pattern
-	private Set<Integer> sequencesIds;
+	private SidSet sequencesIds;
+	// the support of this pattern if the IDs of sequences are not kept
+	private int absoluteSupport = 0;
 	
 	private int itemCount = -1;
 	
 	/**
 	 * Set the set of IDs of sequence containing this prefix
-	 * @param a set of integer containing sequence IDs
+	 * @param a set of integer containing sequence IDs (copied into a SidSet if it is not one)
 	 */
 	public void setSequenceIDs(Set<Integer> sequencesIds) {
-		this.sequencesIds = sequencesIds;
+		this.sequencesIds = SidSet.valueOf(sequencesIds);
+	}
+	
+	/**
+	 * Set the support of this prefix without keeping the IDs of the sequences containing it
+	 * (getSequenceIDs() then returns null).
+	 * @param absoluteSupport the number of sequences containing this prefix
+	 */
+	public void setAbsoluteSupport(int absoluteSupport) {
+		this.sequencesIds = null;
+		this.absoluteSupport = absoluteSupport;
 	}
 
 	/**
@@ -58,12 +70,12 @@ public class SequentialPattern implements Comparable<SequentialPattern>{
 	public SequentialPattern(Itemset itemset, Set<Integer> sequencesIds){
 		itemsets = new ArrayList<Itemset>();
 		this.itemsets.add(itemset);
-		this.sequencesIds = sequencesIds;
+		this.sequencesIds = SidSet.valueOf(sequencesIds);
 	}
 	
 	public SequentialPattern(List<Itemset> itemsets, Set<Integer> sequencesIds){
 		this.itemsets = itemsets;
-		this.sequencesIds = sequencesIds;
+		this.sequencesIds = SidSet.valueOf(sequencesIds);
 	}
 	
 	/**
@@ -72,7 +84,7 @@ public class SequentialPattern implements Comparable<SequentialPattern>{
 	 * @return the support as a string
 	 */
 	public String getRelativeSupportFormated(int sequencecount) {
-		double relSupport = ((double)sequencesIds.size()) / ((double) sequencecount);
+		double relSupport = ((double)getAbsoluteSupport()) / ((double) sequencecount);
 		// pretty formating :
 		DecimalFormat format = new DecimalFormat();
 		format.setMinimumFractionDigits(0); 
@@ -85,7 +97,7 @@ public class SequentialPattern implements Comparable<SequentialPattern>{
 	 * @return the support (an integer >= 1)
 	 */
 	public int getAbsoluteSupport(){
-		return sequencesIds.size();
+		return sequencesIds != null ? sequencesIds.size() : absoluteSupport;
 	}
 
 	/**
@@ -228,7 +240,7 @@ public class SequentialPattern implements Comparable<SequentialPattern>{
 		return itemCount; // return the total size.
 	}
 
-	public Set<Integer> getSequenceIDs() {
+	public SidSet getSequenceIDs() {
 		return sequencesIds;
 	}
 
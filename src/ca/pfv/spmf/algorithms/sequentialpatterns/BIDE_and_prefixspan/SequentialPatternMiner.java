@@ -0,0 +1,144 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.IOException;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.ItemRecoding;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceDatabase;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+
+/**
+ * This interface represents an algorithm finding the frequent sequential patterns of a
+ * sequence database, so that the code running it does not depend on the way the patterns
+ * are found. It is implemented by AlgoPrefixSpan (pseudo-projections, best for sparse databases
+ * and long sequences) and by AlgoSPAM (vertical bitmaps, best for dense databases and
+ * short sequences). Both find the same patterns, with the same supports.
+ * <br/><br/>
+ * The patterns are saved to a file in the SPMF text format, kept into memory in a
+ * SequentialPatterns object, or given to a PatternSink, as soon as they are found. The
+ * order of the patterns depends on the algorithm.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ * @see AlgoSPAM
+ */
+public interface SequentialPatternMiner {
+
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	SequentialPatterns runAlgorithm(SequenceDatabase database, double minsupRelative, String outputFilePath) throws IOException;
+
+	/**
+	 * Run the algorithm
+	 * @param database : a sequence database
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @param minsup  :  the minimum support as an integer
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	SequentialPatterns runAlgorithm(SequenceDatabase database, String outputFilePath, int minsup) throws IOException;
+
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsupRelative  :  the minimum support as a percentage (e.g. 50%) as a value in [0,1]
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	SequentialPatterns runAlgorithm(SequenceStore database, double minsupRelative, String outputFilePath) throws IOException;
+
+	/**
+	 * Run the algorithm on a sequence store
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param outputFilePath : the path of the output file to save the result
+	 *                         or null if you want the result to be saved into memory
+	 * @param minsup  :  the minimum support as an integer
+	 * @return return the result, if saved into memory, otherwise null
+	 * @throws IOException  exception if error while writing the file
+	 */
+	SequentialPatterns runAlgorithm(SequenceStore database, String outputFilePath, int minsup) throws IOException;
+
+	/**
+	 * Run the algorithm and give each pattern found to a sink, as soon as it is found.
+	 * The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence database
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	void runAlgorithm(SequenceDatabase database, int minsup, PatternSink sink) throws IOException;
+
+	/**
+	 * Run the algorithm on a sequence store and give each pattern found to
+	 * a sink, as soon as it is found. The method close() of the sink is called after the last pattern.
+	 * @param database : a sequence store (such as a compact database or a memory-mapped snapshot)
+	 * @param minsup  :  the minimum support as an integer
+	 * @param sink : the sink receiving the patterns
+	 * @throws IOException  exception if error while saving the patterns
+	 */
+	void runAlgorithm(SequenceStore database, int minsup, PatternSink sink) throws IOException;
+
+	/**
+	 * Get the maximum length of patterns to be found (in terms of item count)
+	 * @return the maximumPatternLength
+	 */
+	int getMaximumPatternLength();
+
+	/**
+	 * Set the maximum length of patterns to be found (in terms of item count)
+	 * @param maximumPatternLength the maximumPatternLength to set
+	 */
+	void setMaximumPatternLength(int maximumPatternLength);
+
+	/**
+	 * Set that the sequence identifiers should be shown (true) or not (false) for each
+	 * pattern found
+	 * @param showSequenceIdentifiers true or false
+	 */
+	void setShowSequenceIdentifiers(boolean showSequenceIdentifiers);
+
+	/**
+	 * Set the count-only mode. In this mode, the patterns only keep their support
+	 * instead of the set of sequence identifiers, unless the sequence identifiers are shown.
+	 * @param countOnly true to use the count-only mode
+	 */
+	void setCountOnly(boolean countOnly);
+
+	/**
+	 * Set the recoding of the items of the database (see SequenceDatabase.recodeItems()),
+	 * so that the patterns are output with the original items.
+	 * @param itemRecoding the recoding, or null if the items were not recoded
+	 */
+	void setItemRecoding(ItemRecoding itemRecoding);
+
+	/**
+	 * Print statistics about the last execution of the algorithm to System.out.
+	 * @param size  the size of the database
+	 */
+	void printStatistics(int size);
+}
@@ -86,7 +86,7 @@ public class SequentialPatterns {
 				r.append('/');
 				r.append(nbObject);
 				r.append(")" );
-				if(showSequenceIdentifiers) {
+				if(showSequenceIdentifiers && sequence.getSequenceIDs() != null) {
 		        	r.append(" sequence ids: ");
 		        	for (Integer sid: sequence.getSequenceIDs()) {
 		        		r.append(sid);
@@ -0,0 +1,436 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class represents a set of sequence IDs without Integer objects.
+ * A small set is stored as a sorted array of ints, and a set that is large
+ * compared to its largest sequence ID is stored as a bitmap (one bit per sequence ID),
+ * whichever takes less memory. Adding the sequence IDs by increasing order
+ * (the order in which a database is scanned) is the fastest case.
+ * The sequence IDs cannot be negative.
+ * <br/><br/>
+ * This class is also a Set&lt;Integer&gt; so that it can be used by the code expecting
+ * a set of sequence IDs. The iteration is by increasing sequence ID.
+ * It is not thread-safe.
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see SequentialPattern
+ */
+public class SidSet extends AbstractSet<Integer> {
+
+	// the sorted sequence IDs (if the set is not a bitmap)
+	private int[] sids;
+	// the bitmap (null if the set is a sorted array)
+	private long[] bits = null;
+	// the number of sequence IDs
+	private int size = 0;
+	// the number of changes (to detect a modification during an iteration)
+	private int modCount = 0;
+
+	/**
+	 * Create an empty set.
+	 */
+	public SidSet() {
+		this(4);
+	}
+
+	/**
+	 * Create an empty set.
+	 * @param capacity the number of sequence IDs that can be stored without growing
+	 */
+	public SidSet(int capacity) {
+		sids = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Get a set of sequence IDs as a SidSet.
+	 * @param set the set
+	 * @return the set itself if it is a SidSet, otherwise a copy
+	 */
+	public static SidSet valueOf(Set<Integer> set) {
+		if(set == null || set instanceof SidSet){
+			return (SidSet) set;
+		}
+		SidSet sidSet = new SidSet(set.size());
+		for(Integer sid : set){
+			sidSet.add(sid.intValue());
+		}
+		return sidSet;
+	}
+
+	/**
+	 * Add a sequence ID to this set.
+	 * @param sid the sequence ID
+	 * @return true if it was not already in this set
+	 */
+	public boolean add(int sid) {
+		if(sid < 0){
+			throw new IllegalArgumentException("negative sequence ID: " + sid);
+		}
+		if(bits != null){
+			return addToBitmap(sid);
+		}
+		// the usual case: a sequence ID larger than the other ones
+		int position = size;
+		if(size != 0 && sids[size - 1] >= sid){
+			position = Arrays.binarySearch(sids, 0, size, sid);
+			if(position >= 0){
+				return false;
+			}
+			position = -position - 1;
+		}
+		if(size == sids.length){
+			// choose the smallest representation before growing the array
+			int max = Math.max(sid, sids[size - 1]);
+			if(bitmapLength(max) < size){
+				toBitmap(max);
+				return addToBitmap(sid);
+			}
+			sids = Arrays.copyOf(sids, size * 2);
+		}
+		System.arraycopy(sids, position, sids, position + 1, size - position);
+		sids[position] = sid;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean add(Integer sid) {
+		return add(sid.intValue());
+	}
+
+	/**
+	 * Add a sequence ID to the bitmap.
+	 * @param sid the sequence ID
+	 * @return true if it was not already in this set
+	 */
+	private boolean addToBitmap(int sid) {
+		int word = sid >>> 6;
+		if(word >= bits.length){
+			bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+		}
+		long mask = 1L << sid;
+		if((bits[word] & mask) != 0){
+			return false;
+		}
+		bits[word] |= mask;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Check if a sequence ID is in this set.
+	 * @param sid the sequence ID
+	 * @return true if it is in this set
+	 */
+	public boolean contains(int sid) {
+		if(bits != null){
+			return sid >= 0 && (sid >>> 6) < bits.length && (bits[sid >>> 6] & (1L << sid)) != 0;
+		}
+		return Arrays.binarySearch(sids, 0, size, sid) >= 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer) o).intValue());
+	}
+
+	/**
+	 * Remove a sequence ID from this set.
+	 * @param sid the sequence ID
+	 * @return true if it was in this set
+	 */
+	public boolean remove(int sid) {
+		if(!contains(sid)){
+			return false;
+		}
+		if(bits != null){
+			bits[sid >>> 6] &= ~(1L << sid);
+		}else{
+			int position = Arrays.binarySearch(sids, 0, size, sid);
+			System.arraycopy(sids, position + 1, sids, position, size - position - 1);
+		}
+		size--;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return o instanceof Integer && remove(((Integer) o).intValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		bits = null;
+		sids = new int[4];
+		modCount++;
+	}
+
+	/**
+	 * Get the smallest sequence ID of this set that is not smaller than a given one.
+	 * This allows to iterate over the sequence IDs without creating Integer objects:
+	 * <pre>
+	 * for(int sid = set.nextSid(0); sid != -1; sid = set.nextSid(sid + 1)){ ... }
+	 * </pre>
+	 * @param from the given sequence ID
+	 * @return the sequence ID or -1 if there is none
+	 */
+	public int nextSid(int from) {
+		if(bits != null){
+			int word = from >>> 6;
+			if(word >= bits.length){
+				return -1;
+			}
+			long current = bits[word] & (-1L << from);
+			while(current == 0){
+				if(++word == bits.length){
+					return -1;
+				}
+				current = bits[word];
+			}
+			return (word << 6) + Long.numberOfTrailingZeros(current);
+		}
+		int position = Arrays.binarySearch(sids, 0, size, from);
+		if(position < 0){
+			position = -position - 1;
+		}
+		return position < size ? sids[position] : -1;
+	}
+
+	/**
+	 * Get the sequence IDs of this set as a sorted array.
+	 * @return a new array
+	 */
+	public int[] toIntArray() {
+		if(bits == null){
+			return Arrays.copyOf(sids, size);
+		}
+		int[] array = new int[size];
+		int i = 0;
+		for(int word = 0; word < bits.length; word++){
+			for(long current = bits[word]; current != 0; current &= current - 1){
+				array[i++] = (word << 6) + Long.numberOfTrailingZeros(current);
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Create the intersection of this set and another set.
+	 * The result is stored with the representation that takes less memory.
+	 * @param other the other set
+	 * @return a new set
+	 */
+	public SidSet intersect(SidSet other) {
+		SidSet result;
+		if(bits != null && other.bits != null){
+			// intersect the words of the bitmaps
+			long[] resultBits = new long[Math.min(bits.length, other.bits.length)];
+			int count = 0;
+			for(int word = 0; word < resultBits.length; word++){
+				resultBits[word] = bits[word] & other.bits[word];
+				count += Long.bitCount(resultBits[word]);
+			}
+			result = new SidSet(1);
+			result.bits = resultBits;
+			result.size = count;
+			result.compact();
+			return result;
+		}
+		// iterate over the smallest set, or the set that is a sorted array
+		SidSet small = this;
+		SidSet large = other;
+		if(small.bits != null || (large.bits == null && large.size < small.size)){
+			small = other;
+			large = this;
+		}
+		result = new SidSet(Math.min(small.size, large.size));
+		for(int i = 0; i < small.size; i++){
+			if(large.contains(small.sids[i])){
+				result.sids[result.size++] = small.sids[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Count the sequence IDs that are in both this set and another set,
+	 * without creating the intersection.
+	 * @param other the other set
+	 * @return the size of the intersection
+	 */
+	public int intersectionSize(SidSet other) {
+		int count = 0;
+		if(bits != null && other.bits != null){
+			for(int word = 0; word < Math.min(bits.length, other.bits.length); word++){
+				count += Long.bitCount(bits[word] & other.bits[word]);
+			}
+			return count;
+		}
+		SidSet small = bits == null ? this : other;
+		SidSet large = small == this ? other : this;
+		for(int i = 0; i < small.size; i++){
+			if(large.contains(small.sids[i])){
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		if(c instanceof SidSet){
+			int oldSize = size;
+			SidSet intersection = intersect((SidSet) c);
+			sids = intersection.sids;
+			bits = intersection.bits;
+			size = intersection.size;
+			modCount++;
+			return size != oldSize;
+		}
+		return super.retainAll(c);
+	}
+
+	/**
+	 * Reduce the memory used by this set, by choosing the smallest
+	 * representation and removing the unused capacity.
+	 */
+	public void compact() {
+		if(bits != null){
+			// remove the empty words at the end
+			int length = bits.length;
+			while(length > 0 && bits[length - 1] == 0){
+				length--;
+			}
+			if(length * 2 <= size){
+				bits = Arrays.copyOf(bits, length);
+				return;
+			}
+			toArray(size);
+		}else if(size != 0 && bitmapLength(sids[size - 1]) * 2 < size){
+			toBitmap(sids[size - 1]);
+		}else if(sids.length != size){
+			sids = Arrays.copyOf(sids, Math.max(size, 1));
+		}
+	}
+
+	/**
+	 * Get the number of longs of a bitmap that can store a given sequence ID.
+	 * @param max the sequence ID
+	 * @return the number of longs
+	 */
+	private static int bitmapLength(int max) {
+		return (max >>> 6) + 1;
+	}
+
+	/**
+	 * Convert the sorted array to a bitmap.
+	 * @param max the largest sequence ID that will be stored
+	 */
+	private void toBitmap(int max) {
+		bits = new long[bitmapLength(max)];
+		for(int i = 0; i < size; i++){
+			bits[sids[i] >>> 6] |= 1L << sids[i];
+		}
+		sids = null;
+	}
+
+	/**
+	 * Convert the bitmap to a sorted array.
+	 * @param capacity the capacity of the array
+	 */
+	private void toArray(int capacity) {
+		int[] array = toIntArray();
+		sids = Arrays.copyOf(array, Math.max(capacity, 1));
+		bits = null;
+	}
+
+	@Override
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			// the position of the next sequence ID in the sorted array,
+			// or the next sequence ID of the bitmap (-1 if there is none)
+			private int next = bits != null ? nextSid(0) : 0;
+			// the last sequence ID returned
+			private int last;
+			// true if the last sequence ID returned can be removed
+			private boolean canRemove = false;
+			// the number of changes that are expected
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return bits != null ? next != -1 : next < size;
+			}
+
+			@Override
+			public Integer next() {
+				if(expectedModCount != modCount){
+					throw new ConcurrentModificationException();
+				}
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				if(bits != null){
+					last = next;
+					next = last == Integer.MAX_VALUE ? -1 : nextSid(last + 1);
+				}else{
+					last = sids[next++];
+				}
+				canRemove = true;
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if(!canRemove){
+					throw new IllegalStateException();
+				}
+				if(expectedModCount != modCount){
+					throw new ConcurrentModificationException();
+				}
+				SidSet.this.remove(last);
+				if(bits == null){
+					// the following sequence IDs were shifted
+					next--;
+				}
+				expectedModCount = modCount;
+				canRemove = false;
+			}
+		};
+	}
+}
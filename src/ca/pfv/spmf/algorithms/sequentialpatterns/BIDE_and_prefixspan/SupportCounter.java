@@ -0,0 +1,234 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceStore;
+import ca.pfv.spmf.input.sequence_database_list_integers.SequenceView;
+
+/**
+ * This class counts the support of the items of a projected database
+ * by using arrays indexed by item instead of a map of pairs.
+ * For each item, it keeps a counter for the occurrences in a postfix
+ * and a counter for the other occurrences. The last sequence (group of pseudo-sequences)
+ * seen for an item is remembered so that a sequence is counted only once.
+ * Sets of sequence IDs are only created for the pairs that are frequent.
+ * <br/><br/>
+ * An instance is not thread-safe. The arrays grow with the largest item
+ * seen and are cleared after each call, so that an instance can be reused
+ * for all the projected databases mined by a thread.
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see AlgoPrefixSpan
+ */
+class SupportCounter {
+
+	/** the largest item that can be counted with arrays (larger items use the map of pairs)*/
+	static final int MAX_DENSE_ITEM = 1 << 20;
+
+	// value of the "last group" arrays for an item that was not seen
+	private static final int NO_SEQUENCE = -1;
+
+	// support of each item when it appears in a postfix
+	private int[] postfixCounts = new int[0];
+	// support of each item when it does not appear in a postfix
+	private int[] counts = new int[0];
+	// last group where each item was seen in a postfix
+	private int[] lastPostfixSids = new int[0];
+	// last group where each item was seen (not in a postfix)
+	private int[] lastSids = new int[0];
+	// the frequent pairs, indexed by item (used by the second scan)
+	private Pair[] postfixPairs = new Pair[0];
+	private Pair[] pairs = new Pair[0];
+
+	// the view used to read the sequences
+	private final SequenceView view = new SequenceView();
+
+	// the items that were seen during the current call
+	private int[] seenItems = new int[16];
+	// the number of items in seenItems
+	private int seenCount = 0;
+
+	/**
+	 * Find all the frequent items of a projected database.
+	 * <br/><br/>
+	 * In a group of pseudo-sequences, the itemsets that are not cut at left of a
+	 * pseudo-sequence are also itemsets of the first pseudo-sequence of the group. Thus,
+	 * only the first pseudo-sequence is fully scanned, and only the first itemset of 
+	 * the other ones is scanned if it is a postfix.
+	 * @param database the projected database
+	 * @param minsup the absolute minimum support
+	 * @param keepSequenceIDs if false, the pairs only record the groups where they appear (count-only mode)
+	 * @return the frequent pairs ordered by item (a pair appearing in a postfix after the
+	 *    other one), or null if the database contains an item that cannot be counted
+	 *    with arrays (a negative item or an item larger than MAX_DENSE_ITEM).
+	 */
+	List<Pair> findFrequentPairs(ProjectedDatabase database, int minsup, boolean keepSequenceIDs) {
+		SequenceStore sequences = database.getDatabase();
+		// first scan: count the support of each item (a group is identified by its position)
+		for(int group = 0; group < database.size(); ){
+			int end = database.getGroupEnd(group);
+			// the pseudo-sequences of a group are in the same sequence,
+			// and the first one starts at the first itemset that is scanned
+			sequences.readItemsets(database.getSequence(group), database.getItemset(group), Integer.MAX_VALUE, view);
+			for(int i = group; i < end; i++){
+				if(i != group && !database.isPostfix(i)){
+					continue;
+				}
+				int itemset = database.getItemset(i);
+				// scan all itemsets for the first pseudo-sequence and only the first one otherwise
+				int lastItemset = i == group ? view.getItemsetCount() : itemset + 1;
+				int position = view.getFirstItem(itemset) + database.getItem(i);
+				boolean postfix = database.isPostfix(i);
+				for(; itemset < lastItemset; itemset++){
+					for(int end2 = view.getLastItem(itemset); position < end2; position++){
+						int item = view.getItem(position);
+						if(item < 0 || item > MAX_DENSE_ITEM){
+							clear();
+							return null;
+						}
+						if(item >= counts.length){
+							grow(item);
+						}
+						if(counts[item] == 0 && postfixCounts[item] == 0){
+							addSeenItem(item);
+						}
+						if(postfix){
+							if(lastPostfixSids[item] != group){
+								lastPostfixSids[item] = group;
+								postfixCounts[item]++;
+							}
+						}else if(lastSids[item] != group){
+							lastSids[item] = group;
+							counts[item]++;
+						}
+					}
+					postfix = false;
+				}
+			}
+			group = end;
+		}
+
+		// create the frequent pairs, ordered by item
+		Arrays.sort(seenItems, 0, seenCount);
+		List<Pair> frequentPairs = new ArrayList<Pair>();
+		for(int k=0; k < seenCount; k++){
+			int item = seenItems[k];
+			lastSids[item] = NO_SEQUENCE;
+			lastPostfixSids[item] = NO_SEQUENCE;
+			if(counts[item] >= minsup){
+				pairs[item] = new Pair(false, item, counts[item], keepSequenceIDs);
+				frequentPairs.add(pairs[item]);
+			}
+			if(postfixCounts[item] >= minsup){
+				postfixPairs[item] = new Pair(true, item, postfixCounts[item], keepSequenceIDs);
+				frequentPairs.add(postfixPairs[item]);
+			}
+		}
+
+		// second scan: record the groups and the sequence IDs of the frequent pairs
+		if(frequentPairs.isEmpty() == false){
+			for(int group = 0; group < database.size(); ){
+				int end = database.getGroupEnd(group);
+				int sid = sequences.getSequenceId(database.getSequence(group));
+				sequences.readItemsets(database.getSequence(group), database.getItemset(group), Integer.MAX_VALUE, view);
+				for(int i = group; i < end; i++){
+					if(i != group && !database.isPostfix(i)){
+						continue;
+					}
+					int itemset = database.getItemset(i);
+					int lastItemset = i == group ? view.getItemsetCount() : itemset + 1;
+					int position = view.getFirstItem(itemset) + database.getItem(i);
+					boolean postfix = database.isPostfix(i);
+					for(; itemset < lastItemset; itemset++){
+						for(int end2 = view.getLastItem(itemset); position < end2; position++){
+							int item = view.getItem(position);
+							if(postfix){
+								if(postfixPairs[item] != null && lastPostfixSids[item] != group){
+									lastPostfixSids[item] = group;
+									postfixPairs[item].addSequence(sid, group);
+								}
+							}else if(pairs[item] != null && lastSids[item] != group){
+								lastSids[item] = group;
+								pairs[item].addSequence(sid, group);
+							}
+						}
+						postfix = false;
+					}
+				}
+				group = end;
+			}
+			// choose the smallest representation for the sets of sequence IDs
+			if(keepSequenceIDs){
+				for(Pair pair : frequentPairs){
+					pair.getSequenceIDs().compact();
+				}
+			}
+		}
+		clear();
+		return frequentPairs;
+	}
+
+	/**
+	 * Reset the arrays for the items seen during the current call.
+	 */
+	private void clear() {
+		for(int k=0; k < seenCount; k++){
+			int item = seenItems[k];
+			counts[item] = 0;
+			postfixCounts[item] = 0;
+			lastSids[item] = NO_SEQUENCE;
+			lastPostfixSids[item] = NO_SEQUENCE;
+			pairs[item] = null;
+			postfixPairs[item] = null;
+		}
+		seenCount = 0;
+	}
+
+	/**
+	 * Remember that an item was seen during the current call.
+	 * @param item the item
+	 */
+	private void addSeenItem(int item) {
+		if(seenCount == seenItems.length){
+			seenItems = Arrays.copyOf(seenItems, seenCount * 2);
+		}
+		seenItems[seenCount++] = item;
+	}
+
+	/**
+	 * Grow the arrays so that they can store a given item.
+	 * @param item the item
+	 */
+	private void grow(int item) {
+		int oldLength = counts.length;
+		int length = Math.min(MAX_DENSE_ITEM + 1, Math.max(item + 1, oldLength * 2));
+		counts = Arrays.copyOf(counts, length);
+		postfixCounts = Arrays.copyOf(postfixCounts, length);
+		lastSids = Arrays.copyOf(lastSids, length);
+		lastPostfixSids = Arrays.copyOf(lastPostfixSids, length);
+		Arrays.fill(lastSids, oldLength, length, NO_SEQUENCE);
+		Arrays.fill(lastPostfixSids, oldLength, length, NO_SEQUENCE);
+		pairs = Arrays.copyOf(pairs, length);
+		postfixPairs = Arrays.copyOf(postfixPairs, length);
+	}
+}
@@ -0,0 +1,113 @@
+package ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class writes and reads variable-length integers (7 bits per byte), as used by the
+ * binary files of PrefixSpan (the checkpoints and the binary pattern files).
+ * Signed integers are first converted with the zigzag encoding, so that
+ * integers close to 0 take a single byte.
+ *
+ * This class is used by PrefixSpan.
+ *
+ * Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ * @see SearchCheckpoint
+ * @see BinaryPatternSink
+ */
+final class VarInts {
+
+	/**
+	 * This class only has static methods.
+	 */
+	private VarInts() {
+	}
+
+	/**
+	 * Convert a signed integer so that the integers close to 0 are small unsigned integers.
+	 * @param value the integer
+	 * @return the zigzag encoding of the integer (0, -1, 1, -2, ... become 0, 1, 2, 3, ...)
+	 */
+	static long zigzag(int value) {
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Get the signed integer of a zigzag encoding.
+	 * @param zigzag the zigzag encoding returned by zigzag()
+	 * @return the integer
+	 */
+	static int unzigzag(long zigzag) {
+		int value = (int) zigzag;
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Write an integer with 7 bits per byte (the highest bit indicates that another byte follows).
+	 * @param out the output
+	 * @param value the integer (treated as unsigned)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		writeVarLong(out, value & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Write a long with 7 bits per byte (the highest bit indicates that another byte follows).
+	 * @param out the output
+	 * @param value the long (treated as unsigned)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while((value & ~0x7FL) != 0){
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Read an integer written by writeVarInt().
+	 * @param in the input
+	 * @return the integer
+	 * @throws IOException exception if an error while reading the file
+	 */
+	static int readVarInt(DataInput in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	/**
+	 * Read a long written by writeVarLong().
+	 * @param in the input
+	 * @return the long
+	 * @throws IOException exception if an error while reading the file
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7){
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				return value;
+			}
+		}
+		throw new IOException("Invalid variable-length integer");
+	}
+}
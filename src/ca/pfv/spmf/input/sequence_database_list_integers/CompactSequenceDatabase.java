@@ -0,0 +1,349 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.Arrays;
+
+/**
+ * Implementation of a sequence database where all the sequences are stored in
+ * flat arrays of integers (a compressed sparse row layout) instead of lists of lists
+ * of Integer objects:
+ * <ul>
+ * <li>items contains the items of all the itemsets, one after the other,</li>
+ * <li>itemsetStarts[i] is the position in items of the first item of itemset i,
+ * and itemsetStarts[itemsetCount] is the number of items,</li>
+ * <li>sequenceStarts[s] is the index of the first itemset of sequence s,
+ * and sequenceStarts[size()] is the number of itemsets,</li>
+ * <li>sequenceIds[s] is the id of sequence s.</li>
+ * </ul>
+ * Sequences are added one item at a time with addItem(), endItemset() and endSequence(),
+ * copied from a SequenceDatabase, or loaded from a file (see LoadableSequenceStore). The items of sequence s are read as follows:
+ * <pre>
+ * for(int i = db.getFirstItemset(s); i &lt; db.getLastItemset(s); i++){
+ *     for(int p = db.getFirstItem(i); p &lt; db.getLastItem(i); p++){
+ *         int item = db.getItem(p);
+ *     }
+ * }
+ * </pre>
+ * or, to read a whole sequence (see SequenceView):
+ * <pre>
+ * SequenceView view = db.readSequence(s, new SequenceView());
+ * for(int i = 0; i &lt; view.getItemsetCount(); i++){
+ *     for(int p = view.getFirstItem(i); p &lt; view.getLastItem(i); p++){
+ *         int item = view.getItem(p);
+ *     }
+ * }
+ * </pre>
+ * A database can be saved to a binary snapshot with saveSnapshot(), and the snapshot
+ * opened memory-mapped with MappedSequenceDatabase.open(), without parsing it again.
+ *
+ * @see LoadableSequenceStore
+ * @see SequenceDatabase
+ * @see MappedSequenceDatabase
+ * @see CompressedSequenceDatabase
+ */
+public class CompactSequenceDatabase extends LoadableSequenceStore {
+
+	// the items of all itemsets
+	private int[] items = new int[64];
+	// the position of the first item of each itemset (plus the end of the last itemset)
+	private int[] itemsetStarts = new int[16];
+	// the index of the first itemset of each sequence (plus the end of the last sequence)
+	private int[] sequenceStarts = new int[16];
+	// the id of each sequence
+	private int[] sequenceIds = new int[16];
+
+	// the number of items, itemsets and sequences
+	private int itemCount = 0;
+	private int itemsetCount = 0;
+	private int sequenceCount = 0;
+
+	// the largest item
+	private int maxItem = 0;
+
+	/**
+	 * Create an empty database.
+	 */
+	public CompactSequenceDatabase() {
+		// the first itemset and the first sequence start at 0
+		itemsetStarts[0] = 0;
+		sequenceStarts[0] = 0;
+	}
+
+	/**
+	 * Create a compact copy of a sequence database.
+	 * @param database the sequence database
+	 */
+	public CompactSequenceDatabase(SequenceDatabase database) {
+		this();
+		for(Sequence sequence : database.getSequences()){
+			addSequence(sequence);
+		}
+		trimToSize();
+	}
+
+	/**
+	 * Create an empty database storing the sequences as this database (used to make copies).
+	 * @return the database
+	 */
+	CompactSequenceDatabase newDatabase() {
+		return new CompactSequenceDatabase();
+	}
+
+	/**
+	 * Add copies of all the sequences of another database at the end of this database
+	 * (the items added since the end of the last sequence must have been discarded).
+	 * @param database the other database
+	 * @param idOffset the number added to the ids of its sequences
+	 */
+	void append(CompactSequenceDatabase database, int idOffset) {
+		if(itemCount + database.itemCount > items.length){
+			items = Arrays.copyOf(items, Math.max(itemCount + database.itemCount, items.length * 2));
+		}
+		if(itemsetCount + database.itemsetCount + 1 > itemsetStarts.length){
+			itemsetStarts = Arrays.copyOf(itemsetStarts, Math.max(itemsetCount + database.itemsetCount + 1, 
+					itemsetStarts.length * 2));
+		}
+		if(sequenceCount + database.sequenceCount + 1 > sequenceStarts.length){
+			int capacity = Math.max(sequenceCount + database.sequenceCount + 1, sequenceStarts.length * 2);
+			sequenceStarts = Arrays.copyOf(sequenceStarts, capacity);
+			sequenceIds = Arrays.copyOf(sequenceIds, capacity);
+		}
+		System.arraycopy(database.items, 0, items, itemCount, database.itemCount);
+		for(int i = 1; i <= database.itemsetCount; i++){
+			itemsetStarts[itemsetCount + i] = database.itemsetStarts[i] + itemCount;
+		}
+		for(int s = 0; s < database.sequenceCount; s++){
+			sequenceIds[sequenceCount + s] = database.sequenceIds[s] + idOffset;
+			sequenceStarts[sequenceCount + s + 1] = database.sequenceStarts[s + 1] + itemsetCount;
+		}
+		itemCount += database.itemCount;
+		itemsetCount += database.itemsetCount;
+		sequenceCount += database.sequenceCount;
+		maxItem = Math.max(maxItem, database.maxItem);
+	}
+
+	/**
+	 * Add an item to the current itemset of the current sequence.
+	 * @param item the item
+	 */
+	public void addItem(int item) {
+		if(itemCount == items.length){
+			items = Arrays.copyOf(items, Math.max(16, itemCount * 2));
+		}
+		items[itemCount++] = item;
+		if(item > maxItem){
+			maxItem = item;
+		}
+	}
+
+	/**
+	 * End the current itemset. The next items are added to a new itemset.
+	 */
+	public void endItemset() {
+		if(itemsetCount + 1 == itemsetStarts.length){
+			itemsetStarts = Arrays.copyOf(itemsetStarts, Math.max(16, itemsetStarts.length * 2));
+		}
+		itemsetStarts[++itemsetCount] = itemCount;
+	}
+
+	/**
+	 * End the current itemset if it contains at least one item.
+	 */
+	public void endNonEmptyItemset() {
+		if(itemsetStarts[itemsetCount] != itemCount){
+			endItemset();
+		}
+	}
+
+	/**
+	 * End the current sequence. The next itemsets are added to a new sequence.
+	 * Items that were added after the end of the last itemset are discarded.
+	 * @param id the id of the sequence
+	 */
+	public void endSequence(int id) {
+		itemCount = itemsetStarts[itemsetCount];
+		if(sequenceCount + 1 == sequenceStarts.length){
+			sequenceStarts = Arrays.copyOf(sequenceStarts, Math.max(16, sequenceStarts.length * 2));
+		}
+		if(sequenceCount == sequenceIds.length){
+			sequenceIds = Arrays.copyOf(sequenceIds, Math.max(16, sequenceIds.length * 2));
+		}
+		sequenceIds[sequenceCount] = id;
+		sequenceStarts[++sequenceCount] = itemsetCount;
+	}
+
+	/**
+	 * End the current sequence if it contains at least one itemset, and discard it otherwise.
+	 * @param id the id of the sequence
+	 */
+	public void endNonEmptySequence(int id) {
+		if(sequenceStarts[sequenceCount] != itemsetCount){
+			endSequence(id);
+		}else{
+			discardSequence();
+		}
+	}
+
+	/**
+	 * Discard the items and itemsets that were added since the end of the last sequence.
+	 */
+	void discardSequence() {
+		itemsetCount = sequenceStarts[sequenceCount];
+		itemCount = itemsetStarts[itemsetCount];
+	}
+
+	/**
+	 * Reduce the arrays to the size of the data.
+	 */
+	public void trimToSize() {
+		items = Arrays.copyOf(items, itemCount);
+		itemsetStarts = Arrays.copyOf(itemsetStarts, itemsetCount + 1);
+		sequenceStarts = Arrays.copyOf(sequenceStarts, sequenceCount + 1);
+		sequenceIds = Arrays.copyOf(sequenceIds, sequenceCount);
+	}
+
+	/**
+	 * Get the sequence count in this database.
+	 * @return the sequence count.
+	 */
+	public int size() {
+		return sequenceCount;
+	}
+
+	/**
+	 * Get the total number of itemsets in this database.
+	 * @return the itemset count.
+	 */
+	public int getItemsetCount() {
+		return itemsetCount;
+	}
+
+	/**
+	 * Get the total number of items in this database (an item is counted each time it appears).
+	 * @return the item count.
+	 */
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	/**
+	 * Get the largest item of this database.
+	 * @return the largest item (0 if the database is empty)
+	 */
+	public int getMaxItem() {
+		return maxItem;
+	}
+
+	/**
+	 * Get the id of a sequence.
+	 * @param sequence the index of the sequence in this database
+	 * @return the sequence id
+	 */
+	public int getSequenceId(int sequence) {
+		return sequenceIds[sequence];
+	}
+
+	/**
+	 * Get the index of the first itemset of a sequence.
+	 * @param sequence the index of the sequence in this database
+	 * @return the itemset index
+	 */
+	public int getFirstItemset(int sequence) {
+		return sequenceStarts[sequence];
+	}
+
+	/**
+	 * Get the index following the last itemset of a sequence.
+	 * @param sequence the index of the sequence in this database
+	 * @return the itemset index
+	 */
+	public int getLastItemset(int sequence) {
+		return sequenceStarts[sequence + 1];
+	}
+
+	/**
+	 * Get the position of the first item of an itemset.
+	 * @param itemset the index of the itemset in this database
+	 * @return the position of the item
+	 */
+	public int getFirstItem(int itemset) {
+		return itemsetStarts[itemset];
+	}
+
+	/**
+	 * Get the position following the last item of an itemset.
+	 * @param itemset the index of the itemset in this database
+	 * @return the position of the item
+	 */
+	public int getLastItem(int itemset) {
+		return itemsetStarts[itemset + 1];
+	}
+
+	/**
+	 * Get the item at a given position.
+	 * @param position the position
+	 * @return the item
+	 */
+	public int getItem(int position) {
+		return items[position];
+	}
+
+	/**
+	 * Get the array of items. Only the first getItemCount() values are used.
+	 * The array should not be modified.
+	 * @return the array
+	 */
+	public int[] getItems() {
+		return items;
+	}
+
+	/**
+	 * Get the array containing the position of the first item of each itemset.
+	 * The array should not be modified.
+	 * @return the array
+	 */
+	public int[] getItemsetStarts() {
+		return itemsetStarts;
+	}
+
+	/**
+	 * Get the array containing the index of the first itemset of each sequence.
+	 * The array should not be modified.
+	 * @return the array
+	 */
+	public int[] getSequenceStarts() {
+		return sequenceStarts;
+	}
+
+	/**
+	 * Read some consecutive itemsets of a sequence (the other itemsets may not be read).
+	 * If the sequence is not stored in arrays of integers, these itemsets are copied or
+	 * decoded in the arrays of the view.
+	 * @param sequence the index of the sequence in this database
+	 * @param firstItemset the index of the first itemset to read in the sequence
+	 * @param lastItemset the index following the last itemset to read (the itemsets are
+	 *   read until the end of the sequence if it is larger than the number of itemsets)
+	 * @param view the view to be filled
+	 * @return the view
+	 */
+	public SequenceView readItemsets(int sequence, int firstItemset, int lastItemset, SequenceView view) {
+		view.wrap(items, itemsetStarts, sequenceStarts[sequence], sequenceStarts[sequence + 1] - sequenceStarts[sequence]);
+		return view;
+	}
+
+}
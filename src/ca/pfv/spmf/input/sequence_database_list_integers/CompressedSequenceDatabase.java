@@ -0,0 +1,293 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.Arrays;
+
+/**
+ * A sequence database where the itemsets of the sequences are compressed in
+ * a single array of bytes, to use less memory than the arrays of integers. Each itemset is
+ * stored as the difference between each item and the previous item of the itemset (the first 
+ * item is stored as is), preceded by the number of bytes of these differences. Since the items
+ * of an itemset are sorted, the differences are small. The numbers are stored as variable-length
+ * integers (7 bits per byte), and the differences with the zigzag encoding (so that negative 
+ * differences are small too). Only the position of each sequence in the array of bytes, the index
+ * of its first itemset and the position of its first item are stored as integers.
+ * <br/><br/>
+ * A sequence is decoded when it is read with readSequence() or readItemsets() (see SequenceStore),
+ * which is how AlgoPrefixSpan reads the sequences. The itemsets before the first itemset that
+ * is read are skipped without being decoded. Unlike a CompactSequenceDatabase, the items are
+ * not in arrays, so there is no accessor giving an item from its position.
+ * <br/><br/>
+ * The sequences are added as in a CompactSequenceDatabase (with the same methods, or by
+ * loading a file, see LoadableSequenceStore), so that a large database is compressed while it is loaded.
+ *
+ * @see LoadableSequenceStore
+ * @see CompactSequenceDatabase
+ */
+public class CompressedSequenceDatabase extends LoadableSequenceStore {
+
+	// the encoded itemsets of all sequences
+	private byte[] data = new byte[256];
+	// the number of bytes used in data
+	private int dataSize = 0;
+
+	// the position in data of each sequence (plus the end of the last sequence)
+	private int[] sequenceOffsets = new int[16];
+	// the index of the first itemset of each sequence (plus the end of the last sequence)
+	private int[] sequenceStarts = new int[16];
+	// the position of the first item of each sequence (plus the end of the last sequence)
+	private int[] sequenceItemStarts = new int[16];
+	// the id of each sequence
+	private int[] sequenceIds = new int[16];
+
+	// the number of items, itemsets and sequences (the items of the current itemset are not counted)
+	private int itemCount = 0;
+	private int itemsetCount = 0;
+	private int sequenceCount = 0;
+	// the largest item
+	private int maxItem = 0;
+
+	// the items of the current itemset, that are encoded when the itemset ends
+	private int[] currentItems = new int[16];
+	private int currentItemCount = 0;
+	// the encoded differences of the current itemset
+	private byte[] encodedItems = new byte[80];
+
+	/**
+	 * Create an empty database.
+	 */
+	public CompressedSequenceDatabase() {
+		// the first sequence starts at 0
+	}
+
+	/**
+	 * Create a compressed copy of a sequence database.
+	 * @param database the sequence database
+	 */
+	public CompressedSequenceDatabase(SequenceDatabase database) {
+		for(Sequence sequence : database.getSequences()){
+			addSequence(sequence);
+		}
+		trimToSize();
+	}
+
+	/**
+	 * Create a compressed copy of a sequence store (such as a compact sequence database).
+	 * @param database the sequence store
+	 */
+	public CompressedSequenceDatabase(SequenceStore database) {
+		appendSequences(database, 0);
+		int pruningMinsup = database.getPruningMinsup();
+		setPruning(pruningMinsup, database.getSizeBeforePruning(),
+				pruningMinsup == 0 ? null : database.getFrequentItems(pruningMinsup));
+		trimToSize();
+	}
+
+	@Override
+	CompressedSequenceDatabase newDatabase() {
+		return new CompressedSequenceDatabase();
+	}
+
+	@Override
+	void append(CompactSequenceDatabase database, int idOffset) {
+		appendSequences(database, idOffset);
+	}
+
+	/**
+	 * Add copies of all the sequences of a sequence store at the end of this database.
+	 * @param database the sequence store
+	 * @param idOffset the number added to the ids of its sequences
+	 */
+	private void appendSequences(SequenceStore database, int idOffset) {
+		SequenceView view = new SequenceView();
+		for(int s = 0; s < database.size(); s++){
+			database.readSequence(s, view);
+			for(int i = 0; i < view.getItemsetCount(); i++){
+				for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+					addItem(view.getItem(p));
+				}
+				endItemset();
+			}
+			endSequence(database.getSequenceId(s) + idOffset);
+		}
+	}
+
+	@Override
+	public void addItem(int item) {
+		if(currentItemCount == currentItems.length){
+			currentItems = Arrays.copyOf(currentItems, currentItemCount * 2);
+		}
+		currentItems[currentItemCount++] = item;
+		if(item > maxItem){
+			maxItem = item;
+		}
+	}
+
+	@Override
+	public void endItemset() {
+		// at most 5 bytes per number
+		if(5 * currentItemCount > encodedItems.length){
+			encodedItems = new byte[5 * currentItemCount];
+		}
+		int length = 0;
+		int previous = 0;
+		for(int k = 0; k < currentItemCount; k++){
+			int difference = currentItems[k] - previous;
+			length = writeVarInt(encodedItems, length, (difference << 1) ^ (difference >> 31));
+			previous = currentItems[k];
+		}
+		if(dataSize + length + 5 > data.length){
+			data = Arrays.copyOf(data, Math.max(dataSize + length + 5, data.length * 2));
+		}
+		dataSize = writeVarInt(data, dataSize, length);
+		System.arraycopy(encodedItems, 0, data, dataSize, length);
+		dataSize += length;
+		itemCount += currentItemCount;
+		itemsetCount++;
+		currentItemCount = 0;
+	}
+
+	@Override
+	public void endNonEmptyItemset() {
+		if(currentItemCount != 0){
+			endItemset();
+		}
+	}
+
+	@Override
+	public void endSequence(int id) {
+		currentItemCount = 0;
+		if(sequenceCount + 1 == sequenceStarts.length){
+			int capacity = Math.max(16, sequenceStarts.length * 2);
+			sequenceOffsets = Arrays.copyOf(sequenceOffsets, capacity);
+			sequenceStarts = Arrays.copyOf(sequenceStarts, capacity);
+			sequenceItemStarts = Arrays.copyOf(sequenceItemStarts, capacity);
+			sequenceIds = Arrays.copyOf(sequenceIds, capacity);
+		}
+		sequenceIds[sequenceCount] = id;
+		sequenceCount++;
+		sequenceOffsets[sequenceCount] = dataSize;
+		sequenceStarts[sequenceCount] = itemsetCount;
+		sequenceItemStarts[sequenceCount] = itemCount;
+	}
+
+	@Override
+	public void endNonEmptySequence(int id) {
+		if(sequenceStarts[sequenceCount] != itemsetCount){
+			endSequence(id);
+		}else{
+			discardSequence();
+		}
+	}
+
+	@Override
+	void discardSequence() {
+		dataSize = sequenceOffsets[sequenceCount];
+		itemsetCount = sequenceStarts[sequenceCount];
+		itemCount = sequenceItemStarts[sequenceCount];
+		currentItemCount = 0;
+	}
+
+	@Override
+	public void trimToSize() {
+		data = Arrays.copyOf(data, dataSize);
+		sequenceOffsets = Arrays.copyOf(sequenceOffsets, sequenceCount + 1);
+		sequenceStarts = Arrays.copyOf(sequenceStarts, sequenceCount + 1);
+		sequenceItemStarts = Arrays.copyOf(sequenceItemStarts, sequenceCount + 1);
+		sequenceIds = Arrays.copyOf(sequenceIds, sequenceCount + 1);
+	}
+
+	/**
+	 * Write a number as a variable-length integer.
+	 * @param buffer the array where the number is written
+	 * @param offset the position where the number is written
+	 * @param value the number (an unsigned integer)
+	 * @return the position following the number
+	 */
+	private static int writeVarInt(byte[] buffer, int offset, int value) {
+		while((value & ~0x7F) != 0){
+			buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[offset++] = (byte) value;
+		return offset;
+	}
+
+	@Override
+	public SequenceView readItemsets(int sequence, int firstItemset, int lastItemset, SequenceView view) {
+		byte[] data = this.data;
+		int offset = sequenceOffsets[sequence];
+		int count = sequenceStarts[sequence + 1] - sequenceStarts[sequence];
+		view.clear(firstItemset, count);
+		lastItemset = Math.min(lastItemset, count);
+		for(int i = 0; i < lastItemset; i++){
+			// the number of bytes of the itemset
+			int length = 0;
+			for(int shift = 0; ; shift += 7){
+				byte b = data[offset++];
+				length |= (b & 0x7F) << shift;
+				if(b >= 0){
+					break;
+				}
+			}
+			int end = offset + length;
+			if(i < firstItemset){
+				// the itemset is skipped
+				offset = end;
+				continue;
+			}
+			view.decodeItems(data, offset, end);
+			view.endItemset();
+			offset = end;
+		}
+		return view;
+	}
+
+	/**
+	 * Get the number of bytes used to store the itemsets.
+	 * @return the number of bytes
+	 */
+	public int getDataSize() {
+		return dataSize;
+	}
+
+	@Override
+	public int size() {
+		return sequenceCount;
+	}
+
+	@Override
+	public int getItemsetCount() {
+		return itemsetCount;
+	}
+
+	@Override
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	@Override
+	public int getMaxItem() {
+		return maxItem;
+	}
+
+	@Override
+	public int getSequenceId(int sequence) {
+		return sequenceIds[sequence];
+	}
+}
@@ -0,0 +1,840 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import ca.pfv.spmf.tools.GzipDetectingInputStream;
+
+/**
+ * A builder of sequence databases from event logs, where each event is an item that
+ * occurred for an entity (a customer, a user, a machine...) at a given time. The events can be
+ * given in any order. Each entity becomes a sequence, and the items of an entity that occurred
+ * at the same time become an itemset, the itemsets being sorted by time. The sequences are
+ * sorted by entity (in the order of the names of the entities) and get the ids 0, 1, 2...
+ * <br/><br/>
+ * The events are sorted by an external merge sort, so that an event log larger than the memory
+ * can be converted: at most getMaximumEventsInMemory() events are kept in memory, and the other
+ * events are sorted by blocks that are written to temporary files (spill files). The spill files
+ * are merged when the database is built, and deleted by close(). To bound the number of spill
+ * files, they are merged by levels: a spill file written from memory has the level 0, and as soon
+ * as MERGE_FACTOR spill files have the same level, they are merged into one spill file of the next
+ * level. The spill files that are merged have similar sizes, and each event is rewritten once per
+ * level, so a logarithmic number of times.
+ * <br/><br/>
+ * The database can be built as a SequenceDatabase, appended to a CompactSequenceDatabase, or
+ * written as a text file in SPMF format or as a binary snapshot (see MappedSequenceDatabase).
+ * The text file and the snapshot are written while the spill files are merged, without keeping
+ * the sequences in memory. A builder can build several outputs from the same events.
+ * <br/><br/>
+ * Each line of an event log file contains an event as "entity,timestamp,item", possibly between
+ * parentheses, such as "(customer42, 1370000000, 17)". The fields can also be separated by
+ * spaces or tabulations. The timestamp is a long integer and the item a non-negative integer.
+ * As in the SPMF format, the empty lines and the lines starting with '#', '%' or '@' are ignored.
+ *
+ * @see SequenceDatabase
+ * @see CompactSequenceDatabase
+ */
+public class EventLogSequenceBuilder implements Closeable {
+
+	// the default maximum number of events kept in memory
+	public static final int DEFAULT_MAXIMUM_EVENTS_IN_MEMORY = 1 << 20;
+	// the number of spill files of a same level that are merged into a spill file of the next level
+	private static final int MERGE_FACTOR = 16;
+	// the size of the buffers of the spill files (in bytes)
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// the order of the events: by entity, then by timestamp, then by item
+	private static final Comparator<Event> EVENT_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event event1, Event event2) {
+			int comparison = event1.entity.compareTo(event2.entity);
+			if(comparison != 0){
+				return comparison;
+			}
+			if(event1.timestamp != event2.timestamp){
+				return event1.timestamp < event2.timestamp ? -1 : 1;
+			}
+			return Integer.compare(event1.item, event2.item);
+		}
+	};
+
+	// the maximum number of events kept in memory
+	private final int maximumEventsInMemory;
+	// the directory of the spill files
+	private final File temporaryDirectory;
+
+	// the events kept in memory: the index of the entity, the timestamp and the item of each event
+	private int[] eventEntities = new int[16];
+	private long[] eventTimestamps = new long[16];
+	private int[] eventItems = new int[16];
+	private int eventCount = 0;
+	// the indexes of the events kept in memory, in the order of the events (null if they are not sorted)
+	private int[] order = null;
+	// the names of the entities of the events kept in memory, and the index of each name
+	private final List<String> entities = new ArrayList<String>();
+	private final Map<String, Integer> entityIndexes = new HashMap<String, Integer>();
+
+	// the spill files (each file contains sorted events), their number of events and their level
+	// (the levels never increase from the first file to the last one)
+	private final List<File> spillFiles = new ArrayList<File>();
+	private final List<Long> spillSizes = new ArrayList<Long>();
+	private final List<Integer> spillLevels = new ArrayList<Integer>();
+	// the total number of events
+	private long totalEventCount = 0;
+
+	/**
+	 * Create a builder that keeps at most DEFAULT_MAXIMUM_EVENTS_IN_MEMORY events in memory,
+	 * and writes the spill files in the default temporary directory.
+	 */
+	public EventLogSequenceBuilder() {
+		this(DEFAULT_MAXIMUM_EVENTS_IN_MEMORY, null);
+	}
+
+	/**
+	 * Create a builder.
+	 * @param maximumEventsInMemory the maximum number of events kept in memory
+	 * @param temporaryDirectory the directory of the spill files (null for the default temporary directory)
+	 */
+	public EventLogSequenceBuilder(int maximumEventsInMemory, File temporaryDirectory) {
+		if(maximumEventsInMemory < 1){
+			throw new IllegalArgumentException("At least one event must be kept in memory");
+		}
+		this.maximumEventsInMemory = maximumEventsInMemory;
+		this.temporaryDirectory = temporaryDirectory;
+	}
+
+	/**
+	 * Get the maximum number of events kept in memory.
+	 * @return the number of events
+	 */
+	public int getMaximumEventsInMemory() {
+		return maximumEventsInMemory;
+	}
+
+	/**
+	 * Get the number of events added to this builder.
+	 * @return the number of events
+	 */
+	public long getEventCount() {
+		return totalEventCount;
+	}
+
+	/**
+	 * Get the number of spill files currently used by this builder.
+	 * @return the number of files
+	 */
+	public int getSpillFileCount() {
+		return spillFiles.size();
+	}
+
+	/**
+	 * Add an event.
+	 * @param entity the entity of the event (its sequence)
+	 * @param timestamp the time of the event (its itemset)
+	 * @param item the item
+	 * @throws IOException exception if error while writing a spill file
+	 */
+	public void addEvent(String entity, long timestamp, int item) throws IOException {
+		if(item < 0){
+			throw new IllegalArgumentException("The items must not be negative: " + item);
+		}
+		if(eventCount == maximumEventsInMemory){
+			spill();
+		}
+		Integer index = entityIndexes.get(entity);
+		if(index == null){
+			index = entities.size();
+			entities.add(entity);
+			entityIndexes.put(entity, index);
+		}
+		if(eventCount == eventItems.length){
+			int capacity = (int) Math.min(maximumEventsInMemory, 2L * eventCount);
+			eventEntities = Arrays.copyOf(eventEntities, capacity);
+			eventTimestamps = Arrays.copyOf(eventTimestamps, capacity);
+			eventItems = Arrays.copyOf(eventItems, capacity);
+		}
+		eventEntities[eventCount] = index;
+		eventTimestamps[eventCount] = timestamp;
+		eventItems[eventCount] = item;
+		eventCount++;
+		order = null;
+		totalEventCount++;
+	}
+
+	/**
+	 * Method to add the events of an event log file.
+	 * The file may be compressed with gzip (see loadStream()).
+	 * @param path  the input file path.
+	 * @throws IOException exception if error while reading the file, or if the file is invalid.
+	 */
+	public void loadFile(String path) throws IOException {
+		InputStream fin = new FileInputStream(new File(path));
+		try {
+			loadStream(fin);
+		} finally {
+			fin.close();
+		}
+	}
+
+	/**
+	 * Method to add the events of an event log read from a stream. If the data is compressed
+	 * with gzip, it is detected and decompressed. The stream is not closed.
+	 * @param in  the stream.
+	 * @throws IOException exception if error while reading the stream, or if an event is invalid.
+	 */
+	public void loadStream(InputStream in) throws IOException {
+		String thisLine; // variable to read each line.
+		BufferedReader myInput = new BufferedReader(new InputStreamReader(new GzipDetectingInputStream(in)));
+		long lineNumber = 0;
+		// for each line until the end of the file
+		while ((thisLine = myInput.readLine()) != null) {
+			lineNumber++;
+			String line = thisLine.trim();
+			// if the line is not a comment, is not empty or is not other
+			// kind of metadata
+			if (line.isEmpty() == false &&
+					line.charAt(0) != '#' && line.charAt(0) != '%'
+					&& line.charAt(0) != '@') {
+				addEvent(line, lineNumber);
+			}
+		}
+	}
+
+	/**
+	 * Parse a line of an event log and add its event.
+	 * @param line the line (without the spaces at its start and end)
+	 * @param lineNumber the number of the line (for the error messages)
+	 * @throws IOException exception if the event is invalid, or if error while writing a spill file
+	 */
+	private void addEvent(String line, long lineNumber) throws IOException {
+		if(line.charAt(0) == '(' && line.charAt(line.length() - 1) == ')'){
+			line = line.substring(1, line.length() - 1).trim();
+		}
+		String[] fields = line.indexOf(',') >= 0 ? line.split(",") : line.split("\\s+");
+		if(fields.length != 3){
+			throw new IOException("Invalid event at line " + lineNumber + ": expected entity, timestamp and item");
+		}
+		try{
+			addEvent(fields[0].trim(), Long.parseLong(fields[1].trim()), Integer.parseInt(fields[2].trim()));
+		}catch(IllegalArgumentException e){
+			throw new IOException("Invalid event at line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Build a sequence database from the events.
+	 * @return the sequence database
+	 * @throws IOException exception if error while reading the spill files
+	 */
+	public SequenceDatabase toSequenceDatabase() throws IOException {
+		final SequenceDatabase database = new SequenceDatabase();
+		build(new SequenceHandler() {
+			// the sequence being built
+			private Sequence sequence = new Sequence(0);
+
+			@Override
+			void addItemset(int[] items, int count) {
+				List<Integer> itemset = new ArrayList<Integer>(count);
+				for(int k = 0; k < count; k++){
+					itemset.add(items[k]);
+				}
+				sequence.addItemset(itemset);
+			}
+
+			@Override
+			void endSequence() {
+				database.addSequence(sequence);
+				sequence = new Sequence(database.size());
+			}
+		});
+		return database;
+	}
+
+	/**
+	 * Append the sequences built from the events to a compact sequence database (or to a
+	 * CompressedSequenceDatabase). The id of each sequence is its index in the database.
+	 * @param database the database
+	 * @throws IOException exception if error while reading the spill files
+	 */
+	public void appendTo(final LoadableSequenceStore database) throws IOException {
+		build(new SequenceHandler() {
+			@Override
+			void addItemset(int[] items, int count) {
+				for(int k = 0; k < count; k++){
+					database.addItem(items[k]);
+				}
+				database.endItemset();
+			}
+
+			@Override
+			void endSequence() {
+				database.endSequence(database.size());
+			}
+		});
+		database.trimToSize();
+	}
+
+	/**
+	 * Write the sequences built from the events in a text file in SPMF format.
+	 * @param path the path of the file
+	 * @throws IOException exception if error while writing the file or reading the spill files
+	 */
+	public void writeTextFile(String path) throws IOException {
+		final BufferedWriter writer = new BufferedWriter(new FileWriter(path), BUFFER_SIZE);
+		try{
+			build(new SequenceHandler() {
+				@Override
+				void addItemset(int[] items, int count) throws IOException {
+					for(int k = 0; k < count; k++){
+						writer.write(Integer.toString(items[k]));
+						writer.write(' ');
+					}
+					writer.write("-1 ");
+				}
+
+				@Override
+				void endSequence() throws IOException {
+					writer.write("-2");
+					writer.newLine();
+				}
+			});
+		}finally{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Write the sequences built from the events as a binary snapshot, that can be opened
+	 * with MappedSequenceDatabase.open(). The sequences are not kept in memory: the sequence
+	 * starts, the itemset starts and the items are written to temporary column files (in the
+	 * directory of the spill files), that are concatenated after the header (see SnapshotWriter).
+	 * @param path the path of the snapshot
+	 * @throws IOException exception if error while writing the file or reading the spill files
+	 */
+	public void writeSnapshot(String path) throws IOException {
+		final SnapshotWriter writer = new SnapshotWriter(path, temporaryDirectory);
+		try{
+			build(new SequenceHandler() {
+				// the index of the sequence being built
+				private int sequence = 0;
+
+				@Override
+				void addItemset(int[] items, int count) throws IOException {
+					writer.addItemset(items, count);
+				}
+
+				@Override
+				void endSequence() throws IOException {
+					writer.endSequence(sequence++);
+				}
+			});
+			writer.finish();
+		}finally{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Delete the spill files and the events kept in memory.
+	 */
+	@Override
+	public void close() {
+		for(File file : spillFiles){
+			file.delete();
+		}
+		spillFiles.clear();
+		spillSizes.clear();
+		spillLevels.clear();
+		clearEvents();
+		totalEventCount = 0;
+	}
+
+	/**
+	 * Sort the events kept in memory and write them to a new spill file.
+	 * @throws IOException exception if error while writing the file
+	 */
+	private void spill() throws IOException {
+		List<EventSource> sources = new ArrayList<EventSource>(1);
+		sources.add(sortEvents());
+		writeSpillFile(sources, 0);
+		clearEvents();
+		mergeSpillFiles();
+	}
+
+	/**
+	 * Merge the last MERGE_FACTOR spill files into a spill file of the next level, as long as
+	 * they have the same level. Since the levels never increase from the first file to the last
+	 * one, the last files are the only ones that can have the level of the last file.
+	 * @throws IOException exception if error while reading or writing the files
+	 */
+	private void mergeSpillFiles() throws IOException {
+		int count = spillFiles.size();
+		while(count >= MERGE_FACTOR && spillLevels.get(count - MERGE_FACTOR).equals(spillLevels.get(count - 1))){
+			int first = count - MERGE_FACTOR;
+			int level = spillLevels.get(first);
+			List<File> files = new ArrayList<File>(spillFiles.subList(first, count));
+			List<EventSource> sources = openSpillFiles(first, count);
+			try{
+				spillFiles.subList(first, count).clear();
+				spillSizes.subList(first, count).clear();
+				spillLevels.subList(first, count).clear();
+				writeSpillFile(sources, level + 1);
+			}finally{
+				closeSources(sources);
+			}
+			for(File file : files){
+				file.delete();
+			}
+			count = spillFiles.size();
+		}
+	}
+
+	/**
+	 * Delete the events kept in memory (the arrays are kept to store the next events).
+	 */
+	private void clearEvents() {
+		eventCount = 0;
+		order = null;
+		entities.clear();
+		entityIndexes.clear();
+	}
+
+	/**
+	 * Sort the events kept in memory (if they are not already sorted). The events are first
+	 * sorted by entity with a counting sort on the rank of the name of their entity, and then
+	 * the events of each entity are sorted by timestamp and item. The arrays of the events
+	 * are not moved: only their indexes are sorted.
+	 * @return the sorted events
+	 */
+	private EventSource sortEvents() {
+		if(order == null){
+			// the rank of each entity in the order of the names
+			String[] names = entities.toArray(new String[entities.size()]);
+			Arrays.sort(names);
+			int[] ranks = new int[names.length];
+			for(int r = 0; r < names.length; r++){
+				ranks[entityIndexes.get(names[r])] = r;
+			}
+			// the position of the first event of each entity
+			int[] starts = new int[names.length + 1];
+			for(int e = 0; e < eventCount; e++){
+				starts[ranks[eventEntities[e]] + 1]++;
+			}
+			for(int r = 0; r < names.length; r++){
+				starts[r + 1] += starts[r];
+			}
+			int[] positions = Arrays.copyOf(starts, names.length);
+			order = new int[eventCount];
+			for(int e = 0; e < eventCount; e++){
+				order[positions[ranks[eventEntities[e]]]++] = e;
+			}
+			int[] buffer = new int[eventCount];
+			for(int r = 0; r < names.length; r++){
+				sortByTime(order, buffer, starts[r], starts[r + 1]);
+			}
+		}
+		return new MemorySource();
+	}
+
+	/**
+	 * Sort indexes of events by timestamp and item (merge sort).
+	 * @param indexes the indexes of the events
+	 * @param buffer an array of the same length, used to merge the indexes
+	 * @param from the position of the first index that is sorted
+	 * @param to the position following the last index that is sorted
+	 */
+	private void sortByTime(int[] indexes, int[] buffer, int from, int to) {
+		if(to - from <= 16){
+			// insertion sort
+			for(int i = from + 1; i < to; i++){
+				int index = indexes[i];
+				int j = i;
+				while(j > from && compareTime(index, indexes[j - 1]) < 0){
+					indexes[j] = indexes[j - 1];
+					j--;
+				}
+				indexes[j] = index;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sortByTime(indexes, buffer, from, middle);
+		sortByTime(indexes, buffer, middle, to);
+		if(compareTime(indexes[middle - 1], indexes[middle]) <= 0){
+			// already in order
+			return;
+		}
+		System.arraycopy(indexes, from, buffer, from, to - from);
+		int i = from;
+		int j = middle;
+		for(int k = from; k < to; k++){
+			if(j >= to || (i < middle && compareTime(buffer[i], buffer[j]) <= 0)){
+				indexes[k] = buffer[i++];
+			}else{
+				indexes[k] = buffer[j++];
+			}
+		}
+	}
+
+	/**
+	 * Compare two events kept in memory by timestamp, then by item.
+	 * @param event1 the index of the first event
+	 * @param event2 the index of the second event
+	 * @return a negative number, 0 or a positive number if the first event is before, at the same position, or after the second event
+	 */
+	private int compareTime(int event1, int event2) {
+		long timestamp1 = eventTimestamps[event1];
+		long timestamp2 = eventTimestamps[event2];
+		if(timestamp1 != timestamp2){
+			return timestamp1 < timestamp2 ? -1 : 1;
+		}
+		return Integer.compare(eventItems[event1], eventItems[event2]);
+	}
+
+	/**
+	 * Merge sorted events and write them to a new spill file.
+	 * The entity of an event is only written if it differs from the entity of the previous event.
+	 * @param sources the sorted events
+	 * @param level the level of the spill file
+	 * @throws IOException exception if error while reading or writing the files
+	 */
+	private void writeSpillFile(List<EventSource> sources, int level) throws IOException {
+		File file = File.createTempFile("spmf-events", ".spill", temporaryDirectory);
+		file.deleteOnExit();
+		spillFiles.add(file);
+		long count = 0;
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		try{
+			EventMerger merger = new EventMerger(sources);
+			String previousEntity = null;
+			while(merger.next()){
+				Event event = merger.getEvent();
+				if(event.entity.equals(previousEntity)){
+					output.writeBoolean(false);
+				}else{
+					output.writeBoolean(true);
+					output.writeUTF(event.entity);
+					previousEntity = event.entity;
+				}
+				output.writeLong(event.timestamp);
+				output.writeInt(event.item);
+				count++;
+			}
+		}finally{
+			output.close();
+		}
+		spillSizes.add(count);
+		spillLevels.add(level);
+	}
+
+	/**
+	 * Open some consecutive spill files.
+	 * @param from the index of the first spill file
+	 * @param to the index following the last spill file
+	 * @return a source of events for each spill file
+	 * @throws IOException exception if error while opening a file
+	 */
+	private List<EventSource> openSpillFiles(int from, int to) throws IOException {
+		List<EventSource> sources = new ArrayList<EventSource>(to - from + 1);
+		try{
+			for(int i = from; i < to; i++){
+				sources.add(new SpillFileSource(spillFiles.get(i), spillSizes.get(i)));
+			}
+		}catch(IOException e){
+			closeSources(sources);
+			throw e;
+		}
+		return sources;
+	}
+
+	/**
+	 * Close sources of events.
+	 * @param sources the sources
+	 */
+	private static void closeSources(List<EventSource> sources) {
+		for(EventSource source : sources){
+			try{
+				source.close();
+			}catch(IOException e){
+				// the source was only read
+			}
+		}
+	}
+
+	/**
+	 * Merge the spill files and the events kept in memory, and give the sequences to a handler.
+	 * The items of an itemset are sorted, and an item occurring several times at the same time
+	 * for the same entity is kept once.
+	 * @param handler the handler
+	 * @throws IOException exception if error while reading the spill files, or an error of the handler
+	 */
+	private void build(SequenceHandler handler) throws IOException {
+		EventSource memorySource = sortEvents();
+		List<EventSource> sources = openSpillFiles(0, spillFiles.size());
+		try{
+			sources.add(memorySource);
+			EventMerger merger = new EventMerger(sources);
+			// the items of the current itemset
+			int[] items = new int[16];
+			int itemCount = 0;
+			// the entity and the timestamp of the current itemset (null if there is none)
+			String entity = null;
+			long timestamp = 0;
+			while(merger.next()){
+				Event event = merger.getEvent();
+				boolean sameEntity = event.entity.equals(entity);
+				if(sameEntity && event.timestamp == timestamp){
+					// the items are sorted: a duplicate is the previous item
+					if(items[itemCount - 1] == event.item){
+						continue;
+					}
+				}else if(entity != null){
+					handler.addItemset(items, itemCount);
+					itemCount = 0;
+					if(!sameEntity){
+						handler.endSequence();
+					}
+				}
+				if(itemCount == items.length){
+					items = Arrays.copyOf(items, itemCount * 2);
+				}
+				items[itemCount++] = event.item;
+				entity = event.entity;
+				timestamp = event.timestamp;
+			}
+			if(entity != null){
+				handler.addItemset(items, itemCount);
+				handler.endSequence();
+			}
+		}finally{
+			closeSources(sources);
+		}
+	}
+
+	/**
+	 * An event.
+	 */
+	private static final class Event {
+		// the entity (the sequence)
+		String entity;
+		// the time (the itemset)
+		long timestamp;
+		// the item
+		int item;
+	}
+
+	/**
+	 * A receiver of the sequences built from the events, in the order of the entities.
+	 */
+	private static abstract class SequenceHandler {
+		/**
+		 * Add an itemset to the current sequence.
+		 * @param items the sorted items of the itemset (the array may be reused after the call)
+		 * @param count the number of items
+		 * @throws IOException exception if error while writing the itemset
+		 */
+		abstract void addItemset(int[] items, int count) throws IOException;
+
+		/**
+		 * End the current sequence.
+		 * @throws IOException exception if error while writing the sequence
+		 */
+		abstract void endSequence() throws IOException;
+	}
+
+	/**
+	 * A source of sorted events.
+	 */
+	private static abstract class EventSource implements Closeable {
+		/**
+		 * Read the next event.
+		 * @return the event, or null if there are no more events (the event may be reused by the next call)
+		 * @throws IOException exception if error while reading the event
+		 */
+		abstract Event next() throws IOException;
+
+		@Override
+		public void close() throws IOException {
+			// nothing to release
+		}
+	}
+
+	/**
+	 * The sorted events kept in memory.
+	 */
+	private final class MemorySource extends EventSource {
+		// the position of the next event in the order of the events
+		private int position = 0;
+		// the event that is read (reused for each event)
+		private final Event event = new Event();
+
+		@Override
+		Event next() {
+			if(position == eventCount){
+				return null;
+			}
+			int index = order[position++];
+			event.entity = entities.get(eventEntities[index]);
+			event.timestamp = eventTimestamps[index];
+			event.item = eventItems[index];
+			return event;
+		}
+	}
+
+	/**
+	 * The sorted events of a spill file.
+	 */
+	private static final class SpillFileSource extends EventSource {
+		// the content of the file
+		private final DataInputStream input;
+		// the number of events that were not read
+		private long remaining;
+		// the event that is read (reused for each event)
+		private final Event event = new Event();
+
+		/**
+		 * Constructor
+		 * @param file the spill file
+		 * @param eventCount the number of events of the file
+		 * @throws IOException exception if error while opening the file
+		 */
+		SpillFileSource(File file, long eventCount) throws IOException {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+			remaining = eventCount;
+		}
+
+		@Override
+		Event next() throws IOException {
+			if(remaining == 0){
+				return null;
+			}
+			remaining--;
+			if(input.readBoolean()){
+				event.entity = input.readUTF();
+			}
+			event.timestamp = input.readLong();
+			event.item = input.readInt();
+			return event;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+
+	/**
+	 * A k-way merge of sources of sorted events, with a priority queue of the sources
+	 * ordered by their current event.
+	 */
+	private static final class EventMerger {
+		// the sources that have a current event
+		private final PriorityQueue<SourceEvent> queue;
+		// the source of the current event (null before the first event)
+		private SourceEvent current = null;
+
+		/**
+		 * Constructor
+		 * @param sources the sources
+		 * @throws IOException exception if error while reading a source
+		 */
+		EventMerger(List<EventSource> sources) throws IOException {
+			queue = new PriorityQueue<SourceEvent>(Math.max(1, sources.size()), new Comparator<SourceEvent>() {
+				@Override
+				public int compare(SourceEvent source1, SourceEvent source2) {
+					return EVENT_ORDER.compare(source1.event, source2.event);
+				}
+			});
+			for(EventSource source : sources){
+				SourceEvent sourceEvent = new SourceEvent(source);
+				if(sourceEvent.advance()){
+					queue.add(sourceEvent);
+				}
+			}
+		}
+
+		/**
+		 * Go to the next event, in the order of all the sources.
+		 * @return false if there are no more events
+		 * @throws IOException exception if error while reading a source
+		 */
+		boolean next() throws IOException {
+			if(current != null && current.advance()){
+				queue.add(current);
+			}
+			current = queue.poll();
+			return current != null;
+		}
+
+		/**
+		 * Get the current event.
+		 * @return the event (valid until the next call to next())
+		 */
+		Event getEvent() {
+			return current.event;
+		}
+	}
+
+	/**
+	 * A source of events and its current event.
+	 */
+	private static final class SourceEvent {
+		// the source
+		final EventSource source;
+		// the current event of the source
+		Event event;
+
+		/**
+		 * Constructor
+		 * @param source the source
+		 */
+		SourceEvent(EventSource source) {
+			this.source = source;
+		}
+
+		/**
+		 * Read the next event of the source.
+		 * @return false if there are no more events
+		 * @throws IOException exception if error while reading the source
+		 */
+		boolean advance() throws IOException {
+			event = source.next();
+			return event != null;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A recoding of the items of a sequence database into dense ids. The frequent items
+ * are numbered 1, 2, ..., n by decreasing support (ties are broken by increasing
+ * original item), so that the recoded items can index arrays. The ids start at 1
+ * so that a recoded database is still a valid database in SPMF format.
+ * Infrequent items have no id and are removed by the recoding.
+ * <br/><br/>
+ * A recoding is created by SequenceDatabase.recodeItems(). The patterns found
+ * in the recoded database are translated back with getOriginalItem().
+ *
+ * @see SequenceDatabase
+ * @author Philipe-Fournier-Viger
+ */
+public class ItemRecoding {
+
+	// value returned by getDenseItem() for an item that has no id
+	public static final int NO_ITEM = -1;
+
+	// the original item of each dense id (index 0 is not used)
+	private final int[] originalItems;
+	// the support of each dense id (index 0 is not used)
+	private final int[] supports;
+	// the dense id of each frequent original item
+	private final Map<Integer, Integer> denseItems;
+
+	/**
+	 * Create a recoding from the support of each item.
+	 * @param itemSupports a map with key = item, value = the support of the item
+	 * @param minsup the minimum support of the items that are kept (absolute)
+	 */
+	ItemRecoding(Map<Integer, Integer> itemSupports, int minsup) {
+		// keep the frequent items
+		List<Entry<Integer, Integer>> frequentItems = new ArrayList<Entry<Integer, Integer>>();
+		for(Entry<Integer, Integer> entry : itemSupports.entrySet()){
+			if(entry.getValue() >= minsup){
+				frequentItems.add(entry);
+			}
+		}
+		// sort them by decreasing support
+		Collections.sort(frequentItems, new Comparator<Entry<Integer, Integer>>() {
+			@Override
+			public int compare(Entry<Integer, Integer> a, Entry<Integer, Integer> b) {
+				int compare = Integer.compare(b.getValue(), a.getValue());
+				if(compare != 0){
+					return compare;
+				}
+				return Integer.compare(a.getKey(), b.getKey());
+			}
+		});
+		// number them
+		originalItems = new int[frequentItems.size() + 1];
+		supports = new int[frequentItems.size() + 1];
+		denseItems = new HashMap<Integer, Integer>(frequentItems.size() * 2);
+		for(int i = 0; i < frequentItems.size(); i++){
+			Entry<Integer, Integer> entry = frequentItems.get(i);
+			originalItems[i + 1] = entry.getKey();
+			supports[i + 1] = entry.getValue();
+			denseItems.put(entry.getKey(), i + 1);
+		}
+	}
+
+	/**
+	 * Make a copy of a sequence where the items are replaced by their dense ids.
+	 * The infrequent items and the itemsets that become empty are removed, and
+	 * the items of each itemset are sorted by dense id.
+	 * @param sequence the sequence
+	 * @return the recoded sequence (with the same id)
+	 */
+	public Sequence recodeSequence(Sequence sequence) {
+		Sequence newSequence = new Sequence(sequence.getId());
+		int[] buffer = new int[16];
+		for(List<Integer> itemset : sequence.getItemsets()){
+			int size = 0;
+			for(Integer item : itemset){
+				Integer denseItem = denseItems.get(item);
+				if(denseItem != null){
+					if(size == buffer.length){
+						buffer = Arrays.copyOf(buffer, size * 2);
+					}
+					buffer[size++] = denseItem;
+				}
+			}
+			if(size != 0){
+				Arrays.sort(buffer, 0, size);
+				List<Integer> newItemset = new ArrayList<Integer>(size);
+				for(int i = 0; i < size; i++){
+					newItemset.add(buffer[i]);
+				}
+				newSequence.addItemset(newItemset);
+			}
+		}
+		return newSequence;
+	}
+
+	/**
+	 * Get the dense id of an original item.
+	 * @param item the original item
+	 * @return the dense id, or NO_ITEM if the item is infrequent or does not appear in the database
+	 */
+	public int getDenseItem(int item) {
+		Integer denseItem = denseItems.get(item);
+		return denseItem == null ? NO_ITEM : denseItem;
+	}
+
+	/**
+	 * Get the original item of a dense id.
+	 * @param denseItem the dense id (from 1 to size())
+	 * @return the original item
+	 */
+	public int getOriginalItem(int denseItem) {
+		return originalItems[denseItem];
+	}
+
+	/**
+	 * Get the support of an item in the database before it was recoded.
+	 * @param denseItem the dense id of the item (from 1 to size())
+	 * @return the number of sequences containing the item
+	 */
+	public int getSupport(int denseItem) {
+		return supports[denseItem];
+	}
+
+	/**
+	 * Get the number of items that have a dense id (the largest dense id).
+	 * @return the number of frequent items
+	 */
+	public int size() {
+		return originalItems.length - 1;
+	}
+}
@@ -0,0 +1,132 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The supports of items (the number of sequences containing them). The small non-negative 
+ * items are counted in arrays, and the other items in a map.
+ *
+ * @see MappedSequenceFileParser
+ */
+final class ItemSupports {
+	// the items smaller than this value are counted in the arrays
+	private static final int DENSE_LIMIT = 1 << 18;
+
+	// the support of each small item
+	private int[] supports = new int[0];
+	// the index plus one of the last sequence where each small item was counted
+	private int[] lastSequences = new int[0];
+	// the other items: {support, index plus one of the last sequence}
+	private final Map<Integer, int[]> sparseSupports = new HashMap<Integer, int[]>();
+
+	/**
+	 * Count an item of a sequence (an item is counted once per sequence).
+	 * The sequences must be given in increasing order.
+	 * @param item the item
+	 * @param sequence the index of the sequence
+	 */
+	void add(int item, int sequence) {
+		if(item >= 0 && item < DENSE_LIMIT){
+			if(item >= supports.length){
+				int length = Math.min(DENSE_LIMIT, Math.max(item + 1, supports.length * 2));
+				supports = Arrays.copyOf(supports, length);
+				lastSequences = Arrays.copyOf(lastSequences, length);
+			}
+			if(lastSequences[item] != sequence + 1){
+				lastSequences[item] = sequence + 1;
+				supports[item]++;
+			}
+			return;
+		}
+		int[] count = sparseSupports.get(item);
+		if(count == null){
+			count = new int[2];
+			sparseSupports.put(item, count);
+		}
+		if(count[1] != sequence + 1){
+			count[1] = sequence + 1;
+			count[0]++;
+		}
+	}
+
+	/**
+	 * Add the supports counted in other sequences.
+	 * @param other the supports
+	 */
+	void addAll(ItemSupports other) {
+		if(other.supports.length > supports.length){
+			supports = Arrays.copyOf(supports, other.supports.length);
+		}
+		for(int item = 0; item < other.supports.length; item++){
+			supports[item] += other.supports[item];
+		}
+		for(Map.Entry<Integer, int[]> entry : other.sparseSupports.entrySet()){
+			int[] count = sparseSupports.get(entry.getKey());
+			if(count == null){
+				count = new int[2];
+				sparseSupports.put(entry.getKey(), count);
+			}
+			count[0] += entry.getValue()[0];
+		}
+	}
+
+	/**
+	 * Get the support of an item.
+	 * @param item the item
+	 * @return the support
+	 */
+	int getSupport(int item) {
+		if(item >= 0 && item < DENSE_LIMIT){
+			return item < supports.length ? supports[item] : 0;
+		}
+		int[] count = sparseSupports.get(item);
+		return count == null ? 0 : count[0];
+	}
+
+	/**
+	 * Get the frequent items.
+	 * @param minsup the minimum support
+	 * @return the items whose support is at least minsup, sorted
+	 */
+	int[] getFrequentItems(int minsup) {
+		int[] items = new int[16];
+		int count = 0;
+		for(int item = 0; item < supports.length; item++){
+			if(supports[item] >= minsup){
+				if(count == items.length){
+					items = Arrays.copyOf(items, count * 2);
+				}
+				items[count++] = item;
+			}
+		}
+		for(Map.Entry<Integer, int[]> entry : sparseSupports.entrySet()){
+			if(entry.getValue()[0] >= minsup){
+				if(count == items.length){
+					items = Arrays.copyOf(items, count * 2);
+				}
+				items[count++] = entry.getKey();
+			}
+		}
+		items = Arrays.copyOf(items, count);
+		Arrays.sort(items);
+		return items;
+	}
+}
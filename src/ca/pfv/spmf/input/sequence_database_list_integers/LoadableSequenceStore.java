@@ -0,0 +1,436 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.pfv.spmf.tools.GzipDetectingInputStream;
+
+/**
+ * Base class of the sequence stores that are built in memory: the sequences are added one
+ * item at a time with addItem(), endItemset() and endSequence(), copied from a SequenceDatabase,
+ * or loaded from a file, a stream or a channel in SPMF format. The subclasses only decide how
+ * the sequences are stored: as flat arrays of integers (CompactSequenceDatabase) or as
+ * compressed bytes (CompressedSequenceDatabase). The infrequent items can be removed while
+ * loading a file (see loadFile(String, int, int)).
+ * <br/><br/>
+ * A store that is only read (such as a MappedSequenceDatabase) implements SequenceStore directly.
+ *
+ * @see SequenceStore
+ * @see CompactSequenceDatabase
+ * @see CompressedSequenceDatabase
+ */
+public abstract class LoadableSequenceStore implements SequenceStore {
+
+	// if the infrequent items were removed while loading the database, the minimum support 
+	// used (0 otherwise), the number of sequences before removing items, and the frequent items
+	private int pruningMinsup = 0;
+	private int sizeBeforePruning = 0;
+	private int[] frequentItems = null;
+
+	/**
+	 * Method to load a sequence database from a text file in SPMF format.
+	 * The file may be compressed with gzip (see loadStream()).
+	 * @param path  the input file path.
+	 * @throws IOException exception if error while reading the file.
+	 */
+	public void loadFile(String path) throws IOException {
+		InputStream fin = new FileInputStream(new File(path));
+		try {
+			loadStream(fin);
+		} finally {
+			fin.close();
+		}
+	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a stream, such as System.in
+	 * or the output of another process. If the data is compressed with gzip, it is detected
+	 * and decompressed. The lines are parsed as they are read, so that the database is
+	 * loaded (and compressed, for a CompressedSequenceDatabase) while the data is being
+	 * produced. The sequences get the same ids as with loadFile(String). The stream is not closed.
+	 * @param in  the stream.
+	 * @throws IOException exception if error while reading the stream.
+	 */
+	public void loadStream(InputStream in) throws IOException {
+		String thisLine; // variable to read each line.
+		BufferedReader myInput = new BufferedReader(new InputStreamReader(new GzipDetectingInputStream(in)));
+		// for each line until the end of the file
+		while ((thisLine = myInput.readLine()) != null) {
+			// if the line is not a comment, is not empty or is not other
+			// kind of metadata
+			if (thisLine.isEmpty() == false &&
+					thisLine.charAt(0) != '#' && thisLine.charAt(0) != '%'
+					&& thisLine.charAt(0) != '@') {
+				// split this line according to spaces and process the line
+				addSequence(thisLine.split(" "));
+			}
+		}
+		trimToSize();
+	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a channel (see loadStream()).
+	 * The channel is not closed.
+	 * @param channel  the channel.
+	 * @throws IOException exception if error while reading the channel.
+	 */
+	public void loadChannel(ReadableByteChannel channel) throws IOException {
+		loadStream(Channels.newInputStream(channel));
+	}
+
+	/**
+	 * Method to load a sequence database from a text file in SPMF format, by memory-mapping
+	 * the file and parsing parts of it on several threads. The sequences get the same ids as
+	 * with loadFile(String), but an invalid token is reported with its line number.
+	 * @param path  the input file path.
+	 * @param threadCount the number of threads parsing the file.
+	 * @throws IOException exception if error while reading the file, or if the file is invalid.
+	 */
+	public void loadFile(String path, int threadCount) throws IOException {
+		// the items of an unterminated sequence are not kept (as in loadFile(String))
+		discardSequence();
+		new MappedSequenceFileParser(path).parse(this, threadCount);
+		trimToSize();
+	}
+
+	/**
+	 * Method to load a sequence database from a text file in SPMF format (as loadFile(String, int)),
+	 * and remove the infrequent items while loading it. The support of the items is counted while
+	 * the file is parsed, and the infrequent items are removed, as well as the itemsets and the
+	 * sequences that become empty. The sequences keep the ids that they have in the file.
+	 * Thus, the database is the same as the one created by cloneDatabaseMinusItems(), and
+	 * AlgoPrefixSpan mines it directly (without scanning it again) if it is run with the same
+	 * minimum support.
+	 * @param path  the input file path.
+	 * @param threadCount the number of threads parsing the file.
+	 * @param minsup the minimum support of the items that are kept (a number of sequences).
+	 * @throws IOException exception if error while reading the file, or if the file is invalid.
+	 */
+	public void loadFile(String path, int threadCount, int minsup) throws IOException {
+		if(size() != 0){
+			throw new IllegalStateException("The infrequent items can only be removed when loading an empty database");
+		}
+		discardSequence();
+		MappedSequenceFileParser parser = new MappedSequenceFileParser(path);
+		pruningMinsup = Math.max(1, minsup);
+		frequentItems = parser.parse(this, threadCount, pruningMinsup);
+		sizeBeforePruning = parser.getSequenceCount();
+		trimToSize();
+	}
+
+	/**
+	 * Method to process a line from the input file (same format as SequenceDatabase).
+	 * @param tokens A list of tokens from the line (which were separated by spaces in the original file).
+	 */
+	void addSequence(String[] tokens) {
+		// the id is the number of sequences, as in SequenceDatabase
+		int id = size();
+		for (String token : tokens) {
+			// ignore timestamps
+			if (token.codePointAt(0) == '<') {
+				// we ignore
+			} else if (token.equals("-1")) {
+				endItemset();
+			} else if (token.equals("-2")) {
+				endSequence(id);
+			} else {
+				addItem(Integer.parseInt(token));
+			}
+		}
+		// an unterminated sequence is not kept
+		discardSequence();
+	}
+
+	/**
+	 * Add a copy of a sequence at the end of this database.
+	 * @param sequence the sequence
+	 */
+	public void addSequence(Sequence sequence) {
+		for(List<Integer> itemset : sequence.getItemsets()){
+			for(Integer item : itemset){
+				addItem(item);
+			}
+			endItemset();
+		}
+		endSequence(sequence.getId());
+	}
+
+	/**
+	 * Add a copy of a sequence at the end of this database while removing some items
+	 * that are infrequent with respect to a threshold minsup.
+	 * Empty itemsets are removed and the sequence is not added if it becomes empty
+	 * (as in Sequence.cloneSequenceMinusItems()).
+	 * @param sequence the sequence
+	 * @param mapSequenceID a map with key = item  value = a set of sequence ids containing this item
+	 * @param minSupportAbsolute the minimum support threshold chosen by the user.
+	 */
+	public void addSequenceMinusItems(Sequence sequence, Map<Integer, ? extends Set<Integer>> mapSequenceID,
+			double minSupportAbsolute) {
+		for(List<Integer> itemset : sequence.getItemsets()){
+			for(Integer item : itemset){
+				Set<Integer> sidSet = mapSequenceID.get(item);
+				if(sidSet != null && sidSet.size() >= minSupportAbsolute){
+					addItem(item);
+				}
+			}
+			endNonEmptyItemset();
+		}
+		endNonEmptySequence(sequence.getId());
+	}
+
+	/**
+	 * Make a copy of this database while removing some items
+	 * that are infrequent with respect to a threshold minsup.
+	 * Empty itemsets and empty sequences are removed.
+	 * @param mapSequenceID a map with key = item  value = a set of sequence ids containing this item
+	 * @param minSupportAbsolute the minimum support threshold chosen by the user.
+	 * @return a copy of this database except that item(s) with a support lower than minsup have been excluded.
+	 */
+	public LoadableSequenceStore cloneDatabaseMinusItems(Map<Integer, ? extends Set<Integer>> mapSequenceID,
+			double minSupportAbsolute) {
+		LoadableSequenceStore database = newDatabase();
+		database.addSequencesMinusItems(this, mapSequenceID, minSupportAbsolute);
+		database.trimToSize();
+		return database;
+	}
+
+	/**
+	 * Add copies of all the sequences of a sequence store at the end of this database while
+	 * removing some items that are infrequent with respect to a threshold minsup.
+	 * Empty itemsets and empty sequences are removed.
+	 * @param database the sequence store
+	 * @param mapSequenceID a map with key = item  value = a set of sequence ids containing this item
+	 * @param minSupportAbsolute the minimum support threshold chosen by the user.
+	 */
+	void addSequencesMinusItems(SequenceStore database, Map<Integer, ? extends Set<Integer>> mapSequenceID,
+			double minSupportAbsolute) {
+		SequenceView view = new SequenceView();
+		for(int s = 0; s < database.size(); s++){
+			database.readSequence(s, view);
+			for(int i = 0; i < view.getItemsetCount(); i++){
+				for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+					int item = view.getItem(p);
+					Set<Integer> sidSet = mapSequenceID.get(item);
+					if(sidSet != null && sidSet.size() >= minSupportAbsolute){
+						addItem(item);
+					}
+				}
+				endNonEmptyItemset();
+			}
+			endNonEmptySequence(database.getSequenceId(s));
+		}
+	}
+
+	/**
+	 * Create an empty database storing the sequences as this database (used to make copies).
+	 * @return the database
+	 */
+	abstract LoadableSequenceStore newDatabase();
+
+	/**
+	 * Add copies of all the sequences of a compact database at the end of this database
+	 * (the items added since the end of the last sequence must have been discarded).
+	 * @param database the compact database
+	 * @param idOffset the number added to the ids of its sequences
+	 */
+	abstract void append(CompactSequenceDatabase database, int idOffset);
+
+	/**
+	 * Add an item to the current itemset of the current sequence.
+	 * @param item the item
+	 */
+	public abstract void addItem(int item);
+
+	/**
+	 * End the current itemset. The next items are added to a new itemset.
+	 */
+	public abstract void endItemset();
+
+	/**
+	 * End the current itemset if it contains at least one item.
+	 */
+	public abstract void endNonEmptyItemset();
+
+	/**
+	 * End the current sequence. The next itemsets are added to a new sequence.
+	 * Items that were added after the end of the last itemset are discarded.
+	 * @param id the id of the sequence
+	 */
+	public abstract void endSequence(int id);
+
+	/**
+	 * End the current sequence if it contains at least one itemset, and discard it otherwise.
+	 * @param id the id of the sequence
+	 */
+	public abstract void endNonEmptySequence(int id);
+
+	/**
+	 * Discard the items and itemsets that were added since the end of the last sequence.
+	 */
+	abstract void discardSequence();
+
+	/**
+	 * Reduce the arrays to the size of the data.
+	 */
+	public abstract void trimToSize();
+
+
+	/**
+	 * Get the minimum support used to remove the infrequent items while loading this database.
+	 * @return the minimum support, or 0 if the items were not removed while loading
+	 */
+	public int getPruningMinsup() {
+		return pruningMinsup;
+	}
+
+	/**
+	 * Get the number of sequences of this database before the infrequent items were
+	 * removed (the empty sequences are removed with them).
+	 * @return the number of sequences (size() if the items were not removed while loading)
+	 */
+	public int getSizeBeforePruning() {
+		return pruningMinsup == 0 ? size() : sizeBeforePruning;
+	}
+
+	/**
+	 * Get the frequent items, if the infrequent items were removed while loading this database.
+	 * @return the frequent items, sorted (null if the items were not removed while loading)
+	 */
+	public int[] getFrequentItems() {
+		return frequentItems == null ? null : frequentItems.clone();
+	}
+
+	/**
+	 * Get the frequent items, if the infrequent items were removed while loading this database
+	 * with the same minimum support (the supports of the items are not known otherwise).
+	 * @param minsup the minimum support (a number of sequences)
+	 * @return the frequent items, sorted, or null if the items were not removed with this minimum support
+	 */
+	public int[] getFrequentItems(int minsup) {
+		return pruningMinsup == minsup ? getFrequentItems() : null;
+	}
+
+	/**
+	 * Record that the infrequent items were removed before this database was created.
+	 * @param pruningMinsup the minimum support used (0 if the items were not removed)
+	 * @param sizeBeforePruning the number of sequences before removing the items
+	 * @param frequentItems the frequent items, sorted (null if the items were not removed)
+	 */
+	void setPruning(int pruningMinsup, int sizeBeforePruning, int[] frequentItems) {
+		this.pruningMinsup = pruningMinsup;
+		this.sizeBeforePruning = sizeBeforePruning;
+		this.frequentItems = frequentItems;
+	}
+
+	/**
+	 * Read the itemsets of a sequence. If the sequence is not stored in arrays of
+	 * integers, it is copied or decoded in the arrays of the view.
+	 * @param sequence the index of the sequence in this database
+	 * @param view the view to be filled
+	 * @return the view
+	 */
+	public SequenceView readSequence(int sequence, SequenceView view) {
+		return readItemsets(sequence, 0, Integer.MAX_VALUE, view);
+	}
+
+	/**
+	 * Create a Sequence object containing a copy of a sequence of this database.
+	 * @param sequence the index of the sequence in this database
+	 * @return the sequence
+	 */
+	public Sequence getSequence(int sequence) {
+		Sequence result = new Sequence(getSequenceId(sequence));
+		SequenceView view = readSequence(sequence, new SequenceView());
+		for(int i = 0; i < view.getItemsetCount(); i++){
+			List<Integer> itemset = new ArrayList<Integer>(view.getLastItem(i) - view.getFirstItem(i));
+			for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+				itemset.add(view.getItem(p));
+			}
+			result.addItemset(itemset);
+		}
+		return result;
+	}
+
+	/**
+	 * Create a SequenceDatabase containing a copy of the sequences of this database.
+	 * @return the sequence database
+	 */
+	public SequenceDatabase toSequenceDatabase() {
+		SequenceDatabase database = new SequenceDatabase();
+		for(int s = 0; s < size(); s++){
+			database.addSequence(getSequence(s));
+		}
+		return database;
+	}
+
+	/**
+	 * Save this database to a binary snapshot file, that can be opened without parsing
+	 * it with MappedSequenceDatabase.open() (see MappedSequenceDatabase for the format).
+	 * @param path the path of the snapshot file
+	 * @throws IOException exception if error while writing the file.
+	 */
+	public void saveSnapshot(String path) throws IOException {
+		MappedSequenceDatabase.writeSnapshot(this, path);
+	}
+
+	/**
+	 * Print statistics about this database.
+	 */
+	public void printDatabaseStats() {
+		System.out.println("============  STATS ==========");
+		System.out.println("Number of sequences : " + size());
+		System.out.println("Number of itemsets : " + getItemsetCount());
+		System.out.println("Number of items : " + getItemCount());
+		double meansize = ((float)getItemsetCount()) / ((float)size());
+		System.out.println("mean size" + meansize);
+	}
+
+	/**
+	 * Return a string representation of this sequence database.
+	 */
+	public String toString() {
+		StringBuilder r = new StringBuilder();
+		SequenceView view = new SequenceView();
+		for (int s = 0; s < size(); s++) {
+			r.append(getSequenceId(s));
+			r.append(":  ");
+			readSequence(s, view);
+			for(int i = 0; i < view.getItemsetCount(); i++){
+				r.append('(');
+				for(int p = view.getFirstItem(i); p < view.getLastItem(i); p++){
+					r.append(view.getItem(p));
+					r.append(' ');
+				}
+				r.append(')');
+			}
+			r.append("    \n");
+		}
+		return r.toString();
+	}
+}
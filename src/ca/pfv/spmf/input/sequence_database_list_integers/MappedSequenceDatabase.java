@@ -0,0 +1,443 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sequence database read from a binary snapshot file that is memory-mapped.
+ * The arrays of the database are not loaded into the heap: the sequences are read
+ * in the mapped file, so that opening a snapshot only reads its header and its dictionary,
+ * and a database larger than the heap can be mined (the operating system keeps the
+ * parts of the file that are used in its cache). The database is read-only: it only
+ * has the methods of SequenceStore, and those giving the supports of the items.
+ * <br/><br/>
+ * A snapshot is written by CompactSequenceDatabase.saveSnapshot() (or by SnapshotWriter while
+ * the sequences are built). It contains the arrays of the
+ * database, one after the other, as little-endian integers:
+ * <ul>
+ * <li>a header: the bytes "SPDB", then the version, the number of sequences, itemsets and items,
+ * the largest item, the size of the dictionary, the minimum support used to remove the
+ * infrequent items (0 if they were not removed), the number of sequences before removing
+ * them, and 0 (reserved),</li>
+ * <li>the id of each sequence,</li>
+ * <li>the index of the first itemset of each sequence (plus the end of the last sequence),</li>
+ * <li>the position of the first item of each itemset (plus the end of the last itemset),</li>
+ * <li>the items,</li>
+ * <li>the dictionary: the distinct items sorted by increasing value, then the support
+ * of each of these items (the number of sequences containing it).</li>
+ * </ul>
+ * Since the supports of the items are known (see getFrequentItems()), AlgoPrefixSpan mines
+ * a snapshot directly, without scanning it and copying it without its infrequent items.
+ *
+ * @see SequenceStore
+ * @see CompactSequenceDatabase
+ */
+public class MappedSequenceDatabase implements SequenceStore {
+
+	/** the first bytes of a snapshot file */
+	static final byte[] MAGIC = {'S', 'P', 'D', 'B'};
+	/** the version of the format */
+	static final int VERSION = 1;
+
+	// the size of the header in bytes
+	private static final int HEADER_SIZE = 40;
+	// the number of integers of each mapping (a mapping cannot be larger than 2 GB)
+	private static final int SEGMENT_SHIFT = 28;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+	// the size of the buffer used to write a snapshot
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// the mapped arrays
+	private final IntSegments sequenceIds;
+	private final IntSegments sequenceStarts;
+	private final IntSegments itemsetStarts;
+	private final IntSegments items;
+
+	// the number of items, itemsets and sequences
+	private final int itemCount;
+	private final int itemsetCount;
+	private final int sequenceCount;
+	// the largest item
+	private final int maxItem;
+
+	// the minimum support used to remove the infrequent items before writing the
+	// snapshot (0 if they were not removed), and the number of sequences before removing them
+	private final int pruningMinsup;
+	private final int sizeBeforePruning;
+
+	// the distinct items, sorted, and the support of each of them
+	private final int[] dictionary;
+	private final int[] supports;
+
+	/**
+	 * Open a snapshot file.
+	 * @param path the path of the snapshot file
+	 * @param channel the channel of the file
+	 * @throws IOException exception if error while reading the file, or if it is not a valid snapshot
+	 */
+	private MappedSequenceDatabase(String path, FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while(header.hasRemaining() && channel.read(header) >= 0){
+			// read until the header is complete or the end of the file
+		}
+		header.flip();
+		for(byte b : MAGIC){
+			if(!header.hasRemaining() || header.get() != b){
+				throw new IOException(path + " is not a sequence database snapshot");
+			}
+		}
+		if(header.remaining() < HEADER_SIZE - MAGIC.length){
+			throw new IOException("The snapshot " + path + " is truncated");
+		}
+		int version = header.getInt();
+		if(version != VERSION){
+			throw new IOException("The snapshot " + path + " has the unsupported version " + version);
+		}
+		sequenceCount = header.getInt();
+		itemsetCount = header.getInt();
+		itemCount = header.getInt();
+		maxItem = header.getInt();
+		int dictionarySize = header.getInt();
+		pruningMinsup = header.getInt();
+		sizeBeforePruning = header.getInt();
+		if(sequenceCount < 0 || itemsetCount < 0 || itemCount < 0 || dictionarySize < 0){
+			throw new IOException("The snapshot " + path + " is invalid");
+		}
+
+		// the position of each array in the file
+		long position = HEADER_SIZE;
+		long expectedSize = position + 4L * ((long) sequenceCount + sequenceCount + 1
+				+ itemsetCount + 1 + itemCount + 2L * dictionarySize);
+		if(channel.size() != expectedSize){
+			throw new IOException("The snapshot " + path + " is truncated or invalid (" + channel.size()
+					+ " bytes instead of " + expectedSize + ")");
+		}
+		sequenceIds = new IntSegments(channel, position, sequenceCount);
+		position += 4L * sequenceCount;
+		sequenceStarts = new IntSegments(channel, position, sequenceCount + 1L);
+		position += 4L * (sequenceCount + 1L);
+		itemsetStarts = new IntSegments(channel, position, itemsetCount + 1L);
+		position += 4L * (itemsetCount + 1L);
+		items = new IntSegments(channel, position, itemCount);
+		position += 4L * itemCount;
+
+		// the dictionary is small: it is copied into the heap
+		IntBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * dictionarySize)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		dictionary = new int[dictionarySize];
+		supports = new int[dictionarySize];
+		buffer.get(dictionary);
+		buffer.get(supports);
+	}
+
+	/**
+	 * Open a snapshot file written by CompactSequenceDatabase.saveSnapshot() or
+	 * EventLogSequenceBuilder.writeSnapshot(). Only the header and
+	 * the dictionary are read: the sequences are read in the mapped file when they are accessed.
+	 * @param path the path of the snapshot file
+	 * @return the database
+	 * @throws IOException exception if error while reading the file, or if it is not a valid snapshot
+	 */
+	public static MappedSequenceDatabase open(String path) throws IOException {
+		// the mappings stay valid after the channel is closed
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try{
+			return new MappedSequenceDatabase(path, channel);
+		}finally{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Write a database to a snapshot file.
+	 * @param database the database
+	 * @param path the path of the snapshot file
+	 * @throws IOException exception if error while writing the file
+	 */
+	static void writeSnapshot(SequenceStore database, String path) throws IOException {
+		// count the support of each item, for the dictionary
+		ItemSupports itemSupports = new ItemSupports();
+		SequenceView view = new SequenceView();
+		for(int s = 0; s < database.size(); s++){
+			database.readSequence(s, view);
+			for(int p = view.getFirstItem(0); p < view.getFirstItem(view.getItemsetCount()); p++){
+				itemSupports.add(view.getItem(p), s);
+			}
+		}
+		int[] dictionary = itemSupports.getFrequentItems(1);
+		// the itemsets and items of a sequence that is not ended are not written
+		int itemsetCount = 0;
+		int itemCount = 0;
+		for(int s = 0; s < database.size(); s++){
+			database.readSequence(s, view);
+			itemsetCount += view.getItemsetCount();
+			itemCount += view.getFirstItem(view.getItemsetCount()) - view.getFirstItem(0);
+		}
+
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			putHeader(buffer, database.size(), itemsetCount, itemCount, database.getMaxItem(), dictionary.length,
+					database.getPruningMinsup(), database.getSizeBeforePruning());
+			for(int s = 0; s < database.size(); s++){
+				buffer = putInt(channel, buffer, database.getSequenceId(s));
+			}
+			// the last value of these two arrays is the end of the last sequence or itemset
+			int itemset = 0;
+			for(int s = 0; s < database.size(); s++){
+				buffer = putInt(channel, buffer, itemset);
+				itemset += database.readSequence(s, view).getItemsetCount();
+			}
+			buffer = putInt(channel, buffer, itemset);
+			// the positions of the items of each sequence start at the end of the previous sequence
+			int position = 0;
+			for(int s = 0; s < database.size(); s++){
+				database.readSequence(s, view);
+				for(int i = 0; i < view.getItemsetCount(); i++){
+					buffer = putInt(channel, buffer, position + view.getFirstItem(i) - view.getFirstItem(0));
+				}
+				position += view.getFirstItem(view.getItemsetCount()) - view.getFirstItem(0);
+			}
+			buffer = putInt(channel, buffer, position);
+			for(int s = 0; s < database.size(); s++){
+				database.readSequence(s, view);
+				for(int p = view.getFirstItem(0); p < view.getFirstItem(view.getItemsetCount()); p++){
+					buffer = putInt(channel, buffer, view.getItem(p));
+				}
+			}
+			for(int item : dictionary){
+				buffer = putInt(channel, buffer, item);
+			}
+			for(int item : dictionary){
+				buffer = putInt(channel, buffer, itemSupports.getSupport(item));
+			}
+			writeBuffer(channel, buffer);
+		}finally{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Put the header of a snapshot at the start of the buffer used to write it.
+	 * @param buffer the buffer (empty, and larger than the header)
+	 * @param sequenceCount the number of sequences
+	 * @param itemsetCount the number of itemsets
+	 * @param itemCount the number of items
+	 * @param maxItem the largest item
+	 * @param dictionarySize the number of distinct items
+	 * @param pruningMinsup the minimum support used to remove the infrequent items (0 if they were not removed)
+	 * @param sizeBeforePruning the number of sequences before removing the infrequent items
+	 */
+	static void putHeader(ByteBuffer buffer, int sequenceCount, int itemsetCount, int itemCount, int maxItem,
+			int dictionarySize, int pruningMinsup, int sizeBeforePruning) {
+		buffer.put(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(sequenceCount);
+		buffer.putInt(itemsetCount);
+		buffer.putInt(itemCount);
+		buffer.putInt(maxItem);
+		buffer.putInt(dictionarySize);
+		buffer.putInt(pruningMinsup);
+		buffer.putInt(sizeBeforePruning);
+		buffer.putInt(0);
+	}
+
+	/**
+	 * Add an integer to the buffer used to write a snapshot, after writing the buffer if it is full.
+	 * @param channel the channel of the snapshot file
+	 * @param buffer the buffer
+	 * @param value the integer
+	 * @return the buffer
+	 * @throws IOException exception if error while writing the file
+	 */
+	static ByteBuffer putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+		if(buffer.remaining() < 4){
+			writeBuffer(channel, buffer);
+		}
+		return buffer.putInt(value);
+	}
+
+	/**
+	 * Write the content of the buffer used to write a snapshot, and clear it.
+	 * @param channel the channel of the snapshot file
+	 * @param buffer the buffer
+	 * @throws IOException exception if error while writing the file
+	 */
+	static void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Get the distinct items of this database.
+	 * @return the items, sorted by increasing value
+	 */
+	public int[] getDictionary() {
+		return dictionary.clone();
+	}
+
+	/**
+	 * Get the support of an item (the number of sequences containing it).
+	 * @param item the item
+	 * @return the support (0 if the item does not appear in this database)
+	 */
+	public int getItemSupport(int item) {
+		int index = Arrays.binarySearch(dictionary, item);
+		return index < 0 ? 0 : supports[index];
+	}
+
+	/**
+	 * Get the frequent items of this database (the supports of the items are known).
+	 * @param minsup the minimum support (a number of sequences)
+	 * @return the items whose support is at least minsup, sorted by increasing value
+	 */
+	public int[] getFrequentItems(int minsup) {
+		int[] frequentItems = new int[dictionary.length];
+		int count = 0;
+		for(int i = 0; i < dictionary.length; i++){
+			if(supports[i] >= minsup){
+				frequentItems[count++] = dictionary[i];
+			}
+		}
+		return Arrays.copyOf(frequentItems, count);
+	}
+
+	@Override
+	public int size() {
+		return sequenceCount;
+	}
+
+	@Override
+	public int getItemsetCount() {
+		return itemsetCount;
+	}
+
+	@Override
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	@Override
+	public int getMaxItem() {
+		return maxItem;
+	}
+
+	@Override
+	public int getSequenceId(int sequence) {
+		return sequenceIds.get(sequence);
+	}
+
+	@Override
+	public SequenceView readSequence(int sequence, SequenceView view) {
+		return readItemsets(sequence, 0, Integer.MAX_VALUE, view);
+	}
+
+	/**
+	 * Read some consecutive itemsets of a sequence. They are copied from the mapped file
+	 * into the arrays of the view.
+	 */
+	@Override
+	public SequenceView readItemsets(int sequence, int firstItemset, int lastItemset, SequenceView view) {
+		int start = sequenceStarts.get(sequence);
+		int end = sequenceStarts.get(sequence + 1);
+		view.clear(firstItemset, end - start);
+		end = (int) Math.min(end, (long) start + lastItemset);
+		for(int i = start + firstItemset; i < end; i++){
+			for(int p = itemsetStarts.get(i); p < itemsetStarts.get(i + 1); p++){
+				view.addItem(items.get(p));
+			}
+			view.endItemset();
+		}
+		return view;
+	}
+
+	@Override
+	public int getPruningMinsup() {
+		return pruningMinsup;
+	}
+
+	@Override
+	public int getSizeBeforePruning() {
+		return pruningMinsup == 0 ? sequenceCount : sizeBeforePruning;
+	}
+
+	/**
+	 * Make a copy of this database while removing some items that are infrequent with
+	 * respect to a threshold minsup. The copy is stored in the heap.
+	 * Empty itemsets and empty sequences are removed.
+	 * @param mapSequenceID a map with key = item  value = a set of sequence ids containing this item
+	 * @param minSupportAbsolute the minimum support threshold chosen by the user.
+	 * @return a copy of this database except that item(s) with a support lower than minsup have been excluded.
+	 */
+	public CompactSequenceDatabase cloneDatabaseMinusItems(Map<Integer, ? extends Set<Integer>> mapSequenceID,
+			double minSupportAbsolute) {
+		CompactSequenceDatabase database = new CompactSequenceDatabase();
+		database.addSequencesMinusItems(this, mapSequenceID, minSupportAbsolute);
+		database.trimToSize();
+		return database;
+	}
+
+	/**
+	 * An array of integers mapped from a file, in several mappings if it is larger than
+	 * the largest mapping. The integers are read with absolute positions, so several
+	 * threads can read them at the same time.
+	 */
+	private static final class IntSegments {
+		// the mappings, each containing 2^SEGMENT_SHIFT integers (except the last one)
+		private final IntBuffer[] segments;
+
+		/**
+		 * Map an array of integers.
+		 * @param channel the channel of the file
+		 * @param position the position of the array in the file (in bytes)
+		 * @param length the number of integers
+		 * @throws IOException exception if error while mapping the file
+		 */
+		IntSegments(FileChannel channel, long position, long length) throws IOException {
+			segments = new IntBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for(int i = 0; i < segments.length; i++){
+				long start = (long) i << SEGMENT_SHIFT;
+				long size = Math.min(1L << SEGMENT_SHIFT, length - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * start, 4 * size)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			}
+		}
+
+		/**
+		 * Get an integer.
+		 * @param index the index of the integer in the array
+		 * @return the integer
+		 */
+		int get(int index) {
+			return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+		}
+	}
+}
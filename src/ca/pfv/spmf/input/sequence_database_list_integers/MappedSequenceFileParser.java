@@ -0,0 +1,464 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class loads a text file in SPMF format into a LoadableSequenceStore by
+ * memory-mapping it and parsing it on several threads. The file is split into chunks
+ * that end at the end of a line, and each chunk is parsed directly from its bytes
+ * (without creating Strings) into its own database. The databases of the chunks are 
+ * then appended in the order of the file, so that the sequences have the same ids as
+ * with the sequential loading (the number of sequences that precede them).
+ * <br/><br/>
+ * The format is the same as for SequenceDatabase.loadFile(): empty lines and lines starting 
+ * with '#', '%' or '@' are ignored, tokens starting with '<' (timestamps) are ignored, 
+ * -1 ends an itemset, -2 ends a sequence, and a sequence that is not ended is not kept.
+ * Several spaces, tabulations and carriage returns are accepted between tokens.
+ * Any other token that is not an integer is an error, reported with its line and column.
+ * <br/><br/>
+ * If a minimum support is given, each chunk also counts the support of its items (the number
+ * of sequences containing them). The infrequent items are then removed while the chunks are
+ * appended, as well as the itemsets and sequences that become empty, so that the database
+ * is ready to be mined without scanning it again. The sequences keep the ids that they
+ * would have without removing items.
+ *
+ * @see LoadableSequenceStore#loadFile(String, int)
+ */
+final class MappedSequenceFileParser {
+
+	// the maximum size of a chunk (a chunk is mapped as a single buffer)
+	private static final long MAXIMUM_CHUNK_SIZE = 1 << 28;
+	// the number of chunks per thread (so that the threads finish at about the same time)
+	private static final int CHUNKS_PER_THREAD = 4;
+	// the size of the blocks copied from a mapped chunk before being parsed
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	// the path of the file (for the error messages)
+	private final String path;
+	// the number of sequences of the file (before removing the infrequent items)
+	private int sequenceCount = 0;
+
+	/**
+	 * Constructor
+	 * @param path the path of the file
+	 */
+	MappedSequenceFileParser(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Parse the file and append its sequences to a database.
+	 * @param database the database
+	 * @param threadCount the number of threads
+	 * @throws IOException exception if an error while reading the file, or if the file is invalid
+	 */
+	void parse(LoadableSequenceStore database, int threadCount) throws IOException {
+		parse(database, threadCount, 0);
+	}
+
+	/**
+	 * Parse the file and append its sequences to a database, without the infrequent items.
+	 * @param database the database
+	 * @param threadCount the number of threads
+	 * @param minsup the minimum support of the items that are kept (0 to keep all the items)
+	 * @return the frequent items, sorted (null if minsup is 0)
+	 * @throws IOException exception if an error while reading the file, or if the file is invalid
+	 */
+	int[] parse(LoadableSequenceStore database, int threadCount, final int minsup) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		try{
+			checkNotCompressed(channel);
+			long[] boundaries = findChunkBoundaries(channel, Math.max(1, threadCount));
+			List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+			for(int i = 0; i + 1 < boundaries.length; i++){
+				final Chunk chunk = new Chunk(channel, boundaries[i], boundaries[i + 1]);
+				futures.add(executor.submit(new Callable<Chunk>() {
+					@Override
+					public Chunk call() throws IOException {
+						chunk.parse();
+						if(minsup > 0){
+							chunk.countSupports();
+						}
+						return chunk;
+					}
+				}));
+			}
+			// append the chunks in the order of the file (the line numbers of the 
+			// errors are found by counting the lines of the previous chunks)
+			long lineCount = 0;
+			List<Chunk> chunks = new ArrayList<Chunk>(futures.size());
+			for(Future<Chunk> future : futures){
+				Chunk chunk = getChunk(future);
+				if(chunk.errorMessage != null){
+					throw new IOException(chunk.errorMessage + " at line " + (lineCount + chunk.errorLine)
+							+ ", column " + chunk.errorColumn + " of " + path);
+				}
+				lineCount += chunk.lineCount;
+				if(minsup > 0){
+					// the chunks are kept until the supports of all the chunks are known
+					chunks.add(chunk);
+				}else{
+					database.append(chunk.database, database.size());
+				}
+			}
+			if(minsup == 0){
+				sequenceCount = database.size();
+				return null;
+			}
+			
+			// the supports of the items in the whole file
+			ItemSupports supports = new ItemSupports();
+			for(Chunk chunk : chunks){
+				supports.addAll(chunk.supports);
+			}
+			// copy the chunks without the infrequent items (each chunk is released once copied)
+			int idOffset = database.size();
+			for(int c = 0; c < chunks.size(); c++){
+				CompactSequenceDatabase part = chunks.get(c).database;
+				chunks.set(c, null);
+				appendFrequentItems(database, part, idOffset, supports, minsup);
+				idOffset += part.size();
+			}
+			sequenceCount = idOffset;
+			return supports.getFrequentItems(minsup);
+		}finally{
+			executor.shutdownNow();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Get the number of sequences of the file (before removing the infrequent items).
+	 * @return the number of sequences
+	 */
+	int getSequenceCount() {
+		return sequenceCount;
+	}
+
+	/**
+	 * Append the sequences of a chunk to a database without the infrequent items
+	 * (as LoadableSequenceStore.cloneDatabaseMinusItems()).
+	 * @param database the database
+	 * @param part the sequences of the chunk
+	 * @param idOffset the number added to the ids of the sequences of the chunk
+	 * @param supports the supports of the items
+	 * @param minsup the minimum support of the items that are kept
+	 */
+	private static void appendFrequentItems(LoadableSequenceStore database, CompactSequenceDatabase part,
+			int idOffset, ItemSupports supports, int minsup) {
+		for(int s = 0; s < part.size(); s++){
+			for(int i = part.getFirstItemset(s); i < part.getLastItemset(s); i++){
+				for(int p = part.getFirstItem(i); p < part.getLastItem(i); p++){
+					int item = part.getItem(p);
+					if(supports.getSupport(item) >= minsup){
+						database.addItem(item);
+					}
+				}
+				database.endNonEmptyItemset();
+			}
+			database.endNonEmptySequence(part.getSequenceId(s) + idOffset);
+		}
+	}
+
+	/**
+	 * Wait until a chunk is parsed.
+	 * @param future the result of the parsing
+	 * @return the chunk
+	 * @throws IOException exception if an error while reading the chunk
+	 */
+	private static Chunk getChunk(Future<Chunk> future) throws IOException {
+		try{
+			return future.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while loading the file");
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof IOException){
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Error while loading the file", e.getCause());
+		}
+	}
+
+	/**
+	 * Check that the file is not compressed with gzip: a compressed file cannot be split into
+	 * chunks, so it must be read as a stream (CompactSequenceDatabase.loadStream()).
+	 * @param channel the channel of the file
+	 * @throws IOException exception if the file is compressed, or if an error while reading the file
+	 */
+	private void checkNotCompressed(FileChannel channel) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(2);
+		channel.read(magic, 0);
+		if(magic.position() == 2 && (magic.get(0) & 0xFF) == 0x1f && (magic.get(1) & 0xFF) == 0x8b){
+			throw new IOException(path + " is compressed with gzip: it must be loaded with loadFile(String) or loadStream()");
+		}
+	}
+
+	/**
+	 * Split the file into chunks that end at the end of a line.
+	 * @param channel the channel of the file
+	 * @param threadCount the number of threads
+	 * @return the positions where the chunks start, followed by the size of the file
+	 * @throws IOException exception if an error while reading the file
+	 */
+	private long[] findChunkBoundaries(FileChannel channel, int threadCount) throws IOException {
+		long size = channel.size();
+		long chunkCount = Math.max((long) threadCount * CHUNKS_PER_THREAD, (size + MAXIMUM_CHUNK_SIZE - 1) / MAXIMUM_CHUNK_SIZE);
+		chunkCount = Math.max(1, Math.min(chunkCount, size / 1024 + 1));
+		List<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for(long i = 1; i < chunkCount; i++){
+			// the chunk ends after the first end of line following its approximate end
+			long position = Math.max(size * i / chunkCount, boundaries.get(boundaries.size() - 1));
+			long end = findEndOfLine(channel, position, buffer);
+			if(end >= size){
+				break;
+			}
+			if(end > boundaries.get(boundaries.size() - 1)){
+				boundaries.add(end);
+			}
+		}
+		boundaries.add(size);
+		long[] result = new long[boundaries.size()];
+		for(int i = 0; i < result.length; i++){
+			result[i] = boundaries.get(i);
+			if(i > 0 && result[i] - result[i - 1] > Integer.MAX_VALUE){
+				throw new IOException("A line is too long in " + path);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find the position following the first end of line at or after a position.
+	 * @param channel the channel of the file
+	 * @param position the position
+	 * @param buffer a buffer used to read the file
+	 * @return the position, or the size of the file if there is no end of line
+	 * @throws IOException exception if an error while reading the file
+	 */
+	private static long findEndOfLine(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+		while(true){
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if(read <= 0){
+				return channel.size();
+			}
+			for(int i = 0; i < read; i++){
+				if(buffer.get(i) == '\n'){
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * A part of the file, ending at the end of a line, and the sequences parsed from it
+	 * (the ids of its sequences start from 0).
+	 */
+	private final class Chunk {
+		// the channel of the file
+		private final FileChannel channel;
+		// the position of the first byte and the position following the last byte of the chunk
+		private final long start;
+		private final long end;
+
+		// the sequences of the chunk
+		final CompactSequenceDatabase database = new CompactSequenceDatabase();
+		// the supports of the items in the chunk (null if they are not counted)
+		ItemSupports supports = null;
+		// the number of lines of the chunk
+		long lineCount = 0;
+		// the first error of the chunk (null if there is none), and its line in the chunk and column
+		String errorMessage = null;
+		long errorLine;
+		long errorColumn;
+
+		/**
+		 * Constructor
+		 * @param channel the channel of the file
+		 * @param start the position of the first byte of the chunk
+		 * @param end the position following the last byte of the chunk
+		 */
+		Chunk(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Parse the chunk. The parsing stops at the first error.
+		 * @throws IOException exception if an error while reading the file
+		 */
+		void parse() throws IOException {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			byte[] block = new byte[BLOCK_SIZE];
+			// the position in the chunk of the first byte of the current line
+			long lineStart = 0;
+			// true if the current line is ignored (a comment) or if the current token is ignored (a timestamp)
+			boolean ignoredLine = false;
+			boolean ignoredToken = false;
+			// true at the start of a line
+			boolean atLineStart = true;
+			// the token being parsed: true if a token is being parsed, if it is negative, 
+			// if it has a digit, and its absolute value
+			boolean inToken = false;
+			boolean negative = false;
+			boolean hasDigit = false;
+			long value = 0;
+
+			long position = 0;
+			while(mapped.hasRemaining()){
+				int length = Math.min(block.length, mapped.remaining());
+				mapped.get(block, 0, length);
+				for(int i = 0; i < length; i++, position++){
+					byte b = block[i];
+					if(b == '\n' || b == ' ' || b == '\t' || b == '\r'){
+						// the end of a token
+						if(inToken && !endToken(negative, hasDigit, value)){
+							error("Invalid token", lineStart, position);
+							return;
+						}
+						inToken = false;
+						ignoredToken = false;
+						if(b == '\n'){
+							endLine();
+							lineStart = position + 1;
+							atLineStart = true;
+							ignoredLine = false;
+						}
+						continue;
+					}
+					if(atLineStart){
+						atLineStart = false;
+						ignoredLine = b == '#' || b == '%' || b == '@';
+					}
+					if(ignoredLine || ignoredToken){
+						continue;
+					}
+					if(!inToken){
+						// the start of a token
+						if(b == '<'){
+							// a timestamp is ignored
+							ignoredToken = true;
+							continue;
+						}
+						inToken = true;
+						hasDigit = false;
+						value = 0;
+						negative = b == '-';
+						if(negative){
+							continue;
+						}
+					}
+					if(b < '0' || b > '9'){
+						error("Invalid character '" + (char) (b & 0xFF) + "'", lineStart, position);
+						return;
+					}
+					value = value * 10 + (b - '0');
+					hasDigit = true;
+					if(value > 1L + Integer.MAX_VALUE){
+						error("Integer out of range", lineStart, position);
+						return;
+					}
+				}
+			}
+			// the last line of the file may not end with an end of line
+			if(inToken && !endToken(negative, hasDigit, value)){
+				error("Invalid token", lineStart, position);
+				return;
+			}
+			if(!atLineStart){
+				endLine();
+			}
+			database.trimToSize();
+		}
+
+		/**
+		 * Count the support of the items of the chunk.
+		 */
+		void countSupports() {
+			supports = new ItemSupports();
+			for(int s = 0; s < database.size(); s++){
+				for(int p = database.getFirstItem(database.getFirstItemset(s)); 
+						p < database.getFirstItem(database.getLastItemset(s)); p++){
+					supports.add(database.getItem(p), s);
+				}
+			}
+		}
+
+		/**
+		 * Process a token.
+		 * @param negative true if the token starts with '-'
+		 * @param hasDigit true if the token has at least one digit
+		 * @param value the absolute value of the token
+		 * @return false if the token is not a valid integer
+		 */
+		private boolean endToken(boolean negative, boolean hasDigit, long value) {
+			if(!hasDigit || (!negative && value > Integer.MAX_VALUE)){
+				return false;
+			}
+			if(negative && value == 1){
+				database.endItemset();
+			}else if(negative && value == 2){
+				// the id is the number of sequences of the chunk, as in the sequential loading
+				database.endSequence(database.size());
+			}else{
+				database.addItem((int) (negative ? -value : value));
+			}
+			return true;
+		}
+
+		/**
+		 * Process the end of a line: a sequence that is not ended is not kept.
+		 */
+		private void endLine() {
+			database.discardSequence();
+			lineCount++;
+		}
+
+		/**
+		 * Record an error.
+		 * @param message the message
+		 * @param lineStart the position of the line in the chunk
+		 * @param position the position of the error in the chunk
+		 */
+		private void error(String message, long lineStart, long position) {
+			errorMessage = message;
+			errorLine = lineCount + 1;
+			errorColumn = position - lineStart + 1;
+		}
+	}
+}
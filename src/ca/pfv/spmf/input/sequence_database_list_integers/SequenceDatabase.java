@@ -20,12 +20,19 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import ca.pfv.spmf.tools.GzipDetectingInputStream;
+
 
 
 /**
@@ -42,36 +49,93 @@ public class SequenceDatabase {
 
 	/**
 	 * Method to load a sequence database from a text file in SPMF format.
+	 * The file may be compressed with gzip (see loadStream()).
 	 * @param path  the input file path.
 	 * @throws IOException exception if error while reading the file.
 	 */
 	public void loadFile(String path) throws IOException {
-		String thisLine; // variable to read each line.
-		BufferedReader myInput = null;
+		InputStream fin = null;
 		try {
-			FileInputStream fin = new FileInputStream(new File(path));
-			myInput = new BufferedReader(new InputStreamReader(fin));
-			// for each line until the end of the file
-			while ((thisLine = myInput.readLine()) != null) {
-				// if the line is not a comment, is not empty or is not other
-				// kind of metadata
-				if (thisLine.isEmpty() == false &&
-						thisLine.charAt(0) != '#' && thisLine.charAt(0) != '%'
-						&& thisLine.charAt(0) != '@') {
-					// split this line according to spaces and process the line
-
-					addSequence(thisLine.split(" "));
-				}
-			}
+			fin = new FileInputStream(new File(path));
+			loadStream(fin);
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
-			if (myInput != null) {
-				myInput.close();
+			if (fin != null) {
+				fin.close();
+			}
+		}
+	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a stream, such as System.in
+	 * or the output of another process. If the data is compressed with gzip, it is detected
+	 * and decompressed. The lines are parsed as they are read, so that the database is
+	 * loaded while the data is being produced. The stream is not closed.
+	 * Unlike loadFile(String), an error while reading or parsing the data is thrown.
+	 * @param in  the stream.
+	 * @throws IOException exception if error while reading the stream.
+	 */
+	public void loadStream(InputStream in) throws IOException {
+		String thisLine; // variable to read each line.
+		BufferedReader myInput = new BufferedReader(new InputStreamReader(new GzipDetectingInputStream(in)));
+		// for each line until the end of the file
+		while ((thisLine = myInput.readLine()) != null) {
+			// if the line is not a comment, is not empty or is not other
+			// kind of metadata
+			if (thisLine.isEmpty() == false &&
+					thisLine.charAt(0) != '#' && thisLine.charAt(0) != '%'
+					&& thisLine.charAt(0) != '@') {
+				// split this line according to spaces and process the line
+
+				addSequence(thisLine.split(" "));
+			}
+		}
+	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a channel (see loadStream()).
+	 * The channel is not closed.
+	 * @param channel  the channel.
+	 * @throws IOException exception if error while reading the channel.
+	 */
+	public void loadChannel(ReadableByteChannel channel) throws IOException {
+		loadStream(Channels.newInputStream(channel));
+	}
+	
+	/**
+	 * Method to load a sequence database from a text file in SPMF format, by memory-mapping
+	 * the file and parsing parts of it on several threads (see CompactSequenceDatabase).
+	 * The sequences get the same ids as with loadFile(String), but errors are not
+	 * ignored: an invalid token is reported with its line number.
+	 * @param path  the input file path.
+	 * @param threadCount the number of threads parsing the file.
+	 * @throws IOException exception if error while reading the file, or if the file is invalid.
+	 */
+	public void loadFile(String path, int threadCount) throws IOException {
+		CompactSequenceDatabase database = new CompactSequenceDatabase();
+		new MappedSequenceFileParser(path).parse(database, threadCount);
+		// the ids follow the sequences already in this database
+		for (int s = 0; s < database.size(); s++) {
+			Sequence sequence = database.getSequence(s);
+			Sequence copy = new Sequence(sequences.size());
+			for (List<Integer> itemset : sequence.getItemsets()) {
+				copy.addItemset(itemset);
 			}
+			sequences.add(copy);
 		}
 	}
 	
+	/**
+	 * Save this database to a binary snapshot file, that can be opened without parsing
+	 * it with MappedSequenceDatabase.open() (see CompactSequenceDatabase.saveSnapshot()).
+	 * @param path the path of the snapshot file
+	 * @throws IOException exception if error while writing the file.
+	 */
+	public void saveSnapshot(String path) throws IOException {
+		new CompactSequenceDatabase(this).saveSnapshot(path);
+	}
+	
 	/**
 	 * Method to process a line from the input file
 	 * @param tokens A list of tokens from the line (which were separated by spaces in the original file).
@@ -119,6 +183,47 @@ public class SequenceDatabase {
 		sequences.add(sequence);
 	}
 	
+	/**
+	 * Replace the items of this database by dense ids ordered by decreasing support,
+	 * and remove the items that are infrequent (see ItemRecoding).
+	 * The sequences keep their ids. The patterns found in the recoded database
+	 * can be translated back to the original items with the returned recoding.
+	 * @param minsup the minimum support of the items that are kept (a number of sequences)
+	 * @return the recoding
+	 */
+	public ItemRecoding recodeItems(int minsup) {
+		// count the support of each item
+		// (an item is counted once per sequence by remembering the last sequence where it was seen)
+		Map<Integer, int[]> counts = new HashMap<Integer, int[]>();
+		for (int i = 0; i < sequences.size(); i++) {
+			for (List<Integer> itemset : sequences.get(i).getItemsets()) {
+				for (Integer item : itemset) {
+					int[] count = counts.get(item);
+					if (count == null) {
+						// {support, last sequence}
+						count = new int[] {0, -1};
+						counts.put(item, count);
+					}
+					if (count[1] != i) {
+						count[1] = i;
+						count[0]++;
+					}
+				}
+			}
+		}
+		Map<Integer, Integer> itemSupports = new HashMap<Integer, Integer>(counts.size() * 2);
+		for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+			itemSupports.put(entry.getKey(), entry.getValue()[0]);
+		}
+
+		// replace each sequence by its recoded copy
+		ItemRecoding recoding = new ItemRecoding(itemSupports, minsup);
+		for (int i = 0; i < sequences.size(); i++) {
+			sequences.set(i, recoding.recodeSequence(sequences.get(i)));
+		}
+		return recoding;
+	}
+	
 	/**
 	 * Print this sequence database to System.out.
 	 */
@@ -0,0 +1,132 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only access to the sequences of a sequence database whose items are integers,
+ * independently of the way they are stored (flat arrays in the heap, a memory-mapped
+ * snapshot, or compressed bytes). The sequences are read with a SequenceView:
+ * <pre>
+ * SequenceView view = new SequenceView();
+ * for(int s = 0; s &lt; store.size(); s++){
+ *     store.readSequence(s, view);
+ *     for(int i = 0; i &lt; view.getItemsetCount(); i++){
+ *         for(int p = view.getFirstItem(i); p &lt; view.getLastItem(i); p++){
+ *             int item = view.getItem(p);
+ *         }
+ *     }
+ * }
+ * </pre>
+ * The sequences are only read, so several threads can read a same store at the same time
+ * (each thread with its own view).
+ *
+ * @see CompactSequenceDatabase
+ * @see MappedSequenceDatabase
+ * @see SequenceView
+ */
+public interface SequenceStore {
+
+	/**
+	 * Get the sequence count.
+	 * @return the sequence count.
+	 */
+	int size();
+
+	/**
+	 * Get the total number of itemsets of the sequences.
+	 * @return the itemset count.
+	 */
+	int getItemsetCount();
+
+	/**
+	 * Get the total number of items of the sequences (an item is counted each time it appears).
+	 * @return the item count.
+	 */
+	int getItemCount();
+
+	/**
+	 * Get the largest item.
+	 * @return the largest item (0 if there is no item)
+	 */
+	int getMaxItem();
+
+	/**
+	 * Get the id of a sequence.
+	 * @param sequence the index of the sequence
+	 * @return the sequence id
+	 */
+	int getSequenceId(int sequence);
+
+	/**
+	 * Read the itemsets of a sequence. If the sequence is not stored in arrays of
+	 * integers, it is copied or decoded in the arrays of the view.
+	 * @param sequence the index of the sequence
+	 * @param view the view to be filled
+	 * @return the view
+	 */
+	SequenceView readSequence(int sequence, SequenceView view);
+
+	/**
+	 * Read some consecutive itemsets of a sequence (the other itemsets may not be read).
+	 * If the sequence is not stored in arrays of integers, these itemsets are copied or
+	 * decoded in the arrays of the view.
+	 * @param sequence the index of the sequence
+	 * @param firstItemset the index of the first itemset to read in the sequence
+	 * @param lastItemset the index following the last itemset to read (the itemsets are
+	 *   read until the end of the sequence if it is larger than the number of itemsets)
+	 * @param view the view to be filled
+	 * @return the view
+	 */
+	SequenceView readItemsets(int sequence, int firstItemset, int lastItemset, SequenceView view);
+
+	/**
+	 * Get the minimum support used to remove the infrequent items before the sequences were stored.
+	 * @return the minimum support, or 0 if the items were not removed
+	 */
+	int getPruningMinsup();
+
+	/**
+	 * Get the number of sequences before the infrequent items were removed
+	 * (the empty sequences are removed with them).
+	 * @return the number of sequences (size() if the items were not removed)
+	 */
+	int getSizeBeforePruning();
+
+	/**
+	 * Get the items having a minimum support, if the supports of the items are known
+	 * without reading the sequences.
+	 * @param minsup the minimum support (a number of sequences)
+	 * @return a new array containing the items whose support is at least minsup, sorted by
+	 *   increasing value, or null if the sequences must be read to find them
+	 */
+	int[] getFrequentItems(int minsup);
+
+	/**
+	 * Make a copy of the sequences while removing some items
+	 * that are infrequent with respect to a threshold minsup.
+	 * Empty itemsets and empty sequences are removed.
+	 * @param mapSequenceID a map with key = item  value = a set of sequence ids containing this item
+	 * @param minSupportAbsolute the minimum support threshold chosen by the user.
+	 * @return a copy of the sequences except that item(s) with a support lower than minsup have been excluded.
+	 */
+	SequenceStore cloneDatabaseMinusItems(Map<Integer, ? extends Set<Integer>> mapSequenceID,
+			double minSupportAbsolute);
+}
@@ -0,0 +1,178 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.Arrays;
+
+/**
+ * The itemsets of one sequence of a CompactSequenceDatabase, filled by
+ * CompactSequenceDatabase.readSequence(). The itemsets are indexed from 0 in the sequence,
+ * and the items of itemset i are read as follows:
+ * <pre>
+ * for(int p = view.getFirstItem(i); p &lt; view.getLastItem(i); p++){
+ *     int item = view.getItem(p);
+ * }
+ * </pre>
+ * A view either reads the arrays of the database (if the sequences are stored in
+ * arrays of integers) or its own arrays, where the sequence is copied or decoded.
+ * If only the itemsets from a given itemset were read, the previous itemsets must not be accessed.
+ * Thus, a view is reused to read several sequences, one at a time, and it is
+ * only valid until the next sequence is read. A view should only be used by one thread.
+ *
+ * @see CompactSequenceDatabase#readSequence(int, SequenceView)
+ */
+public final class SequenceView {
+
+	// the arrays of this view, where a sequence is copied or decoded
+	private int[] ownItems = new int[16];
+	private int[] ownItemsetStarts = new int[16];
+	// the number of items and itemsets copied in the arrays of this view
+	private int ownItemCount = 0;
+	private int ownItemsetCount = 0;
+
+	// the arrays that are read (the arrays of this view or of a database)
+	private int[] items;
+	private int[] itemsetStarts;
+	// the position of the first itemset of the sequence in itemsetStarts
+	// (negative if the first itemsets were not copied)
+	private int firstItemset;
+	// the number of itemsets of the sequence
+	private int itemsetCount;
+
+	/**
+	 * Get the number of itemsets of the sequence.
+	 * @return the number of itemsets
+	 */
+	public int getItemsetCount() {
+		return itemsetCount;
+	}
+
+	/**
+	 * Get the position of the first item of an itemset.
+	 * @param itemset the index of the itemset in the sequence
+	 * @return the position of the item
+	 */
+	public int getFirstItem(int itemset) {
+		return itemsetStarts[firstItemset + itemset];
+	}
+
+	/**
+	 * Get the position following the last item of an itemset.
+	 * @param itemset the index of the itemset in the sequence
+	 * @return the position of the item
+	 */
+	public int getLastItem(int itemset) {
+		return itemsetStarts[firstItemset + itemset + 1];
+	}
+
+	/**
+	 * Get the item at a given position.
+	 * @param position the position
+	 * @return the item
+	 */
+	public int getItem(int position) {
+		return items[position];
+	}
+
+	/**
+	 * Read a sequence stored in arrays, without copying it.
+	 * @param items the items of all the itemsets
+	 * @param itemsetStarts the position of the first item of each itemset (plus the end of the last itemset)
+	 * @param firstItemset the index of the first itemset of the sequence
+	 * @param itemsetCount the number of itemsets of the sequence
+	 */
+	void wrap(int[] items, int[] itemsetStarts, int firstItemset, int itemsetCount) {
+		this.items = items;
+		this.itemsetStarts = itemsetStarts;
+		this.firstItemset = firstItemset;
+		this.itemsetCount = itemsetCount;
+	}
+
+	/**
+	 * Prepare the arrays of this view to copy or decode the itemsets of a sequence
+	 * from a given itemset (with addItem() and endItemset()).
+	 * @param firstItemset the index of the first itemset that is copied
+	 * @param itemsetCount the number of itemsets of the sequence
+	 */
+	void clear(int firstItemset, int itemsetCount) {
+		if(itemsetCount - firstItemset >= ownItemsetStarts.length){
+			ownItemsetStarts = new int[Math.max(itemsetCount - firstItemset + 1, ownItemsetStarts.length * 2)];
+		}
+		items = ownItems;
+		itemsetStarts = ownItemsetStarts;
+		this.firstItemset = -firstItemset;
+		this.itemsetCount = itemsetCount;
+		ownItemCount = 0;
+		ownItemsetCount = 0;
+		ownItemsetStarts[0] = 0;
+	}
+
+	/**
+	 * Add an item to the current itemset of the sequence being copied.
+	 * @param item the item
+	 */
+	void addItem(int item) {
+		if(ownItemCount == ownItems.length){
+			ownItems = Arrays.copyOf(ownItems, ownItemCount * 2);
+			items = ownItems;
+		}
+		ownItems[ownItemCount++] = item;
+	}
+
+	/**
+	 * Decode the items of an itemset of a CompressedSequenceDatabase (the differences between
+	 * the items as zigzag variable-length integers) and add them to the current itemset of
+	 * the sequence being decoded.
+	 * @param data the array containing the encoded itemset
+	 * @param offset the position of the first byte of the itemset
+	 * @param end the position following the last byte of the itemset
+	 */
+	void decodeItems(byte[] data, int offset, int end) {
+		// there are at most as many items as bytes
+		if(ownItemCount + end - offset > ownItems.length){
+			ownItems = Arrays.copyOf(ownItems, Math.max(ownItemCount + end - offset, ownItems.length * 2));
+			items = ownItems;
+		}
+		int[] items = ownItems;
+		int count = ownItemCount;
+		int item = 0;
+		while(offset < end){
+			int value = data[offset++];
+			if(value < 0){
+				// the number has more than one byte
+				value &= 0x7F;
+				for(int shift = 7; ; shift += 7){
+					byte b = data[offset++];
+					value |= (b & 0x7F) << shift;
+					if(b >= 0){
+						break;
+					}
+				}
+			}
+			item += (value >>> 1) ^ -(value & 1);
+			items[count++] = item;
+		}
+		ownItemCount = count;
+	}
+
+	/**
+	 * End the current itemset of the sequence being copied.
+	 */
+	void endItemset() {
+		ownItemsetStarts[++ownItemsetCount] = ownItemCount;
+	}
+}
@@ -0,0 +1,238 @@
+package ca.pfv.spmf.input.sequence_database_list_integers;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A writer of binary snapshots (see MappedSequenceDatabase) from sequences given one itemset
+ * at a time, without keeping the sequences in memory. Since the header of a snapshot contains
+ * the number of sequences, itemsets and items, and each array of the snapshot is written after
+ * the previous one, the sequence ids, the sequence starts, the itemset starts and the items are
+ * first written to four temporary files (one per column). When the last sequence is ended,
+ * finish() writes the header, concatenates the columns, and writes the dictionary with the
+ * supports of the items (only the supports are kept in memory). close() deletes the columns.
+ *
+ * @see MappedSequenceDatabase
+ * @see EventLogSequenceBuilder
+ */
+final class SnapshotWriter implements Closeable {
+	// the size of the buffer of each column (in bytes)
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// the path of the snapshot
+	private final String path;
+	// the columns: the sequence ids, the index of the first itemset of each sequence,
+	// the position of the first item of each itemset, and the items
+	private final Column sequenceIds;
+	private final Column sequenceStarts;
+	private final Column itemsetStarts;
+	private final Column items;
+
+	// the number of sequences, itemsets and items written
+	private int sequenceCount = 0;
+	private int itemsetCount = 0;
+	private long itemCount = 0;
+	// the index of the first itemset of the sequence being written (-1 if no itemset was added to it)
+	private int firstItemset = -1;
+	// the largest item
+	private int maxItem = 0;
+	// the support of each item
+	private final ItemSupports itemSupports = new ItemSupports();
+
+	/**
+	 * Create a writer.
+	 * @param path the path of the snapshot
+	 * @param temporaryDirectory the directory of the columns (null for the default temporary directory)
+	 * @throws IOException exception if error while creating the columns
+	 */
+	SnapshotWriter(String path, File temporaryDirectory) throws IOException {
+		this.path = path;
+		Column[] columns = new Column[4];
+		try{
+			for(int i = 0; i < columns.length; i++){
+				columns[i] = new Column(temporaryDirectory);
+			}
+		}catch(IOException e){
+			for(Column column : columns){
+				if(column != null){
+					column.delete();
+				}
+			}
+			throw e;
+		}
+		sequenceIds = columns[0];
+		sequenceStarts = columns[1];
+		itemsetStarts = columns[2];
+		items = columns[3];
+	}
+
+	/**
+	 * Add an itemset to the sequence being written.
+	 * @param itemset an array containing the items of the itemset
+	 * @param count the number of items of the itemset (the first items of the array)
+	 * @throws IOException exception if error while writing the columns
+	 */
+	void addItemset(int[] itemset, int count) throws IOException {
+		if(firstItemset < 0){
+			firstItemset = itemsetCount;
+		}
+		if(itemsetCount == Integer.MAX_VALUE || itemCount + count > Integer.MAX_VALUE){
+			throw new IOException("Too many itemsets or items for a snapshot");
+		}
+		itemsetStarts.putInt((int) itemCount);
+		for(int k = 0; k < count; k++){
+			int item = itemset[k];
+			items.putInt(item);
+			itemSupports.add(item, sequenceCount);
+			if(item > maxItem){
+				maxItem = item;
+			}
+		}
+		itemsetCount++;
+		itemCount += count;
+	}
+
+	/**
+	 * End the sequence being written.
+	 * @param sequenceId the id of the sequence
+	 * @throws IOException exception if error while writing the columns
+	 */
+	void endSequence(int sequenceId) throws IOException {
+		sequenceIds.putInt(sequenceId);
+		sequenceStarts.putInt(firstItemset < 0 ? itemsetCount : firstItemset);
+		firstItemset = -1;
+		sequenceCount++;
+	}
+
+	/**
+	 * Write the snapshot, after the last sequence was ended.
+	 * @throws IOException exception if error while writing the snapshot or reading the columns
+	 */
+	void finish() throws IOException {
+		// the last value of these two arrays is the end of the last sequence or itemset
+		sequenceStarts.putInt(itemsetCount);
+		itemsetStarts.putInt((int) itemCount);
+		int[] dictionary = itemSupports.getFrequentItems(1);
+
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			MappedSequenceDatabase.putHeader(buffer, sequenceCount, itemsetCount, (int) itemCount, maxItem,
+					dictionary.length, 0, sequenceCount);
+			MappedSequenceDatabase.writeBuffer(channel, buffer);
+			sequenceIds.transferTo(channel);
+			sequenceStarts.transferTo(channel);
+			itemsetStarts.transferTo(channel);
+			items.transferTo(channel);
+			for(int item : dictionary){
+				buffer = MappedSequenceDatabase.putInt(channel, buffer, item);
+			}
+			for(int item : dictionary){
+				buffer = MappedSequenceDatabase.putInt(channel, buffer, itemSupports.getSupport(item));
+			}
+			MappedSequenceDatabase.writeBuffer(channel, buffer);
+		}finally{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Delete the columns.
+	 */
+	@Override
+	public void close() {
+		sequenceIds.delete();
+		sequenceStarts.delete();
+		itemsetStarts.delete();
+		items.delete();
+	}
+
+	/**
+	 * A column of the snapshot, written to a temporary file.
+	 */
+	private static final class Column {
+		// the file
+		private final File file;
+		// the channel of the file (null once the file is deleted)
+		private FileChannel channel;
+		// the integers not yet written to the file
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		/**
+		 * Create a column.
+		 * @param temporaryDirectory the directory of the file (null for the default temporary directory)
+		 * @throws IOException exception if error while creating the file
+		 */
+		Column(File temporaryDirectory) throws IOException {
+			file = File.createTempFile("spmf-snapshot", ".column", temporaryDirectory);
+			file.deleteOnExit();
+			try{
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}catch(IOException e){
+				file.delete();
+				throw e;
+			}
+		}
+
+		/**
+		 * Add an integer to the column.
+		 * @param value the integer
+		 * @throws IOException exception if error while writing the file
+		 */
+		void putInt(int value) throws IOException {
+			MappedSequenceDatabase.putInt(channel, buffer, value);
+		}
+
+		/**
+		 * Copy the column at the end of a file.
+		 * @param target the channel of the file
+		 * @throws IOException exception if error while reading or writing the files
+		 */
+		void transferTo(FileChannel target) throws IOException {
+			MappedSequenceDatabase.writeBuffer(channel, buffer);
+			long size = channel.position();
+			long position = 0;
+			while(position < size){
+				position += channel.transferTo(position, size - position, target);
+			}
+		}
+
+		/**
+		 * Close and delete the file.
+		 */
+		void delete() {
+			if(channel != null){
+				try{
+					channel.close();
+				}catch(IOException e){
+					// the file is deleted anyway
+				}
+				channel = null;
+			}
+			file.delete();
+		}
+	}
+}
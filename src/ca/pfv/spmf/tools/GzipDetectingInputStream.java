@@ -0,0 +1,146 @@
+package ca.pfv.spmf.tools;
+/*
+ *  Copyright (c) 2008-2012 Philippe Fournier-Viger
+ *
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An input stream that decompresses its data if it is compressed with gzip, and that
+ * returns it unchanged otherwise. The format is detected from the first two bytes
+ * (the gzip magic number), which are read by the first call to read(), so that creating
+ * the stream does not wait for the data.
+ * <br/><br/>
+ * The data is decompressed as it is read, so that a stream produced by another process
+ * (a pipe, a socket or System.in) is read while it is written. Multi-member gzip data (as
+ * written by ParallelGzipOutputStream or by concatenating gzip files) is read completely,
+ * even if the next member has not arrived yet when a member ends.
+ *
+ * @see ParallelGzipOutputStream
+ */
+public class GzipDetectingInputStream extends FilterInputStream {
+
+	// the size of the buffer of the compressed data (in bytes)
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	// the first two bytes of gzip data
+	private static final int GZIP_MAGIC_1 = 0x1f;
+	private static final int GZIP_MAGIC_2 = 0x8b;
+
+	// true if the format of the data was detected
+	private boolean detected = false;
+	// true if the data is compressed with gzip
+	private boolean compressed = false;
+
+	/**
+	 * Constructor
+	 * @param in the stream of the data (compressed with gzip or not)
+	 */
+	public GzipDetectingInputStream(InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * Check if the data is compressed with gzip. This method waits until the first two
+	 * bytes of the data are available.
+	 * @return true if the data is compressed with gzip
+	 * @throws IOException exception if an error while reading the data
+	 */
+	public boolean isCompressed() throws IOException {
+		detect();
+		return compressed;
+	}
+
+	/**
+	 * Read the first two bytes of the data to detect its format, and replace the
+	 * stream that is read by a decompressing stream if the data is compressed.
+	 * @throws IOException exception if an error while reading the data
+	 */
+	private void detect() throws IOException {
+		if(detected){
+			return;
+		}
+		detected = true;
+		PushbackInputStream pushback = new PushbackInputStream(in, 2);
+		int first = pushback.read();
+		int second = first < 0 ? -1 : pushback.read();
+		if(second >= 0){
+			pushback.unread(second);
+		}
+		if(first >= 0){
+			pushback.unread(first);
+		}
+		if(first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2){
+			compressed = true;
+			// GZIPInputStream only reads the next member of a multi-member file if
+			// available() is not 0, which is often not the case when the data comes from a pipe
+			// (a read() waits for the next member instead, and returns -1 at the end of the data)
+			in = new GZIPInputStream(new FilterInputStream(pushback){
+				@Override
+				public int available() throws IOException {
+					return Math.max(1, super.available());
+				}
+			}, BUFFER_SIZE);
+		}else{
+			in = pushback;
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		detect();
+		return in.read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		detect();
+		return in.read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		detect();
+		return in.skip(n);
+	}
+
+	@Override
+	public int available() throws IOException {
+		return detected ? in.available() : 0;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		// not supported
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+}
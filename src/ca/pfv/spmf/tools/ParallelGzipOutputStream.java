@@ -0,0 +1,236 @@
+package ca.pfv.spmf.tools;
+/*
+ *  Copyright (c) 2008-2012 Philippe Fournier-Viger
+ * 
+ * This file is part of the SPMF DATA MINING SOFTWARE
+ * (http://www.philippe-fournier-viger.com/spmf).
+ *
+ * SPMF is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SPMF is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SPMF.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream that compresses its data with gzip on several threads.
+ * The data is cut into independent blocks that are compressed in parallel, each 
+ * block becoming a complete gzip member. The members are written in order, so that 
+ * the output is a multi-member gzip file that can be read by the standard gzip tools
+ * (and by java.util.zip.GZIPInputStream).
+ * <br/><br/>
+ * The number of blocks being compressed is bounded: a thread that writes while all
+ * compression threads are busy waits until the oldest block is compressed and written.
+ * flush() ends the current member, so that the data written until then forms a valid
+ * gzip file.
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream {
+
+	// the default size of the blocks compressed independently (in bytes)
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	// the threads compressing the blocks
+	private final ExecutorService executor;
+	// true if the executor was created by this stream (it is stopped when the stream is closed)
+	private final boolean ownExecutor;
+	// the maximum number of blocks being compressed
+	private final int maximumPendingBlocks;
+	// the blocks being compressed, in the order where they must be written
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<Future<byte[]>>();
+
+	// the block being filled
+	private byte[] block;
+	// the number of bytes of the block being filled
+	private int blockLength = 0;
+	// true if at least one gzip member was submitted
+	private boolean memberWritten = false;
+	// true if the stream is closed
+	private boolean closed = false;
+
+	/**
+	 * Create a stream compressing blocks of 1 MB on its own threads.
+	 * @param out the stream receiving the compressed data
+	 * @param threadCount the number of compression threads
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int threadCount) {
+		this(out, createExecutor(threadCount), true, threadCount, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Create a stream compressing its blocks with an executor shared with other streams
+	 * (the executor is not stopped when the stream is closed).
+	 * @param out the stream receiving the compressed data
+	 * @param executor the executor compressing the blocks
+	 * @param threadCount the number of threads of the executor
+	 * @param blockSize the size of the blocks (in bytes)
+	 */
+	public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int threadCount, int blockSize) {
+		this(out, executor, false, threadCount, blockSize);
+	}
+
+	/**
+	 * Constructor
+	 * @param out the stream receiving the compressed data
+	 * @param executor the executor compressing the blocks
+	 * @param ownExecutor true if the executor is stopped when the stream is closed
+	 * @param threadCount the number of threads of the executor
+	 * @param blockSize the size of the blocks (in bytes)
+	 */
+	private ParallelGzipOutputStream(OutputStream out, ExecutorService executor, boolean ownExecutor,
+			int threadCount, int blockSize) {
+		super(out);
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+		// two blocks per thread, so that the threads do not wait while the oldest block is written
+		this.maximumPendingBlocks = Math.max(1, threadCount) * 2;
+		this.block = new byte[blockSize];
+	}
+
+	/**
+	 * Create an executor for compressing blocks.
+	 * @param threadCount the number of threads
+	 * @return the executor (its threads do not prevent the JVM from exiting)
+	 */
+	public static ExecutorService createExecutor(int threadCount) {
+		return Executors.newFixedThreadPool(Math.max(1, threadCount), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "gzip compression");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if(blockLength == block.length){
+			submitBlock();
+		}
+		block[blockLength++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while(len > 0){
+			if(blockLength == block.length){
+				submitBlock();
+			}
+			int length = Math.min(len, block.length - blockLength);
+			System.arraycopy(b, off, block, blockLength, length);
+			blockLength += length;
+			off += length;
+			len -= length;
+		}
+	}
+
+	/**
+	 * Give the block being filled to the compression threads, and start a new block.
+	 * @throws IOException exception if an error while compressing or writing a previous block
+	 */
+	private void submitBlock() throws IOException {
+		if(blockLength == 0){
+			return;
+		}
+		if(pendingBlocks.size() >= maximumPendingBlocks){
+			writeOldestBlock();
+		}
+		final byte[] data = block;
+		final int length = blockLength;
+		pendingBlocks.add(executor.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				return compress(data, length);
+			}
+		}));
+		memberWritten = true;
+		block = new byte[block.length];
+		blockLength = 0;
+	}
+
+	/**
+	 * Wait until the oldest block is compressed, and write it.
+	 * @throws IOException exception if an error while compressing or writing the block
+	 */
+	private void writeOldestBlock() throws IOException {
+		Future<byte[]> oldest = pendingBlocks.poll();
+		try{
+			out.write(oldest.get());
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for the compression");
+		}catch(ExecutionException e){
+			throw new IOException("Error while compressing the output", e.getCause());
+		}
+	}
+
+	/**
+	 * Compress a block as a complete gzip member.
+	 * @param data the array containing the block
+	 * @param length the length of the block
+	 * @return the gzip member
+	 * @throws IOException exception if an error while compressing
+	 */
+	private static byte[] compress(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(bytes, 1 << 16);
+		gzip.write(data, 0, length);
+		gzip.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Compress and write all the data written until now (the current gzip member is ended).
+	 * @throws IOException exception if an error while compressing or writing the data
+	 */
+	@Override
+	public void flush() throws IOException {
+		submitBlock();
+		while(!pendingBlocks.isEmpty()){
+			writeOldestBlock();
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed){
+			return;
+		}
+		closed = true;
+		try{
+			flush();
+			if(!memberWritten){
+				// an empty gzip file still contains a member
+				out.write(compress(block, 0));
+			}
+		}finally{
+			if(ownExecutor){
+				executor.shutdownNow();
+			}
+			out.close();
+		}
+	}
+}
@@ -11,9 +11,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import spmf.extension.input.sequence_db_generic.ItemDictionary;
 import spmf.extension.input.sequence_db_generic.SequenceDatabaseGen;
 import spmf.extension.input.sequence_db_generic.SequenceGen;
 import spmf.extension.patterns.itemset_list_generic.ItemsetGen;
+import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.AlgoPrefixSpan;
+import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.PatternSink;
+import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.SequentialPattern;
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
+import ca.pfv.spmf.patterns.itemset_list_integers_without_support.Itemset;
 import ca.pfv.spmf.tools.MemoryLogger;
 
 
@@ -69,6 +75,9 @@ public class AlgoPrefixSpanGen<T extends Comparable<T>>{
 	/** if true, sequence identifiers of each pattern will be shown*/
 	boolean showSequenceIdentifiers = false;
 	
+	// if true, the database is encoded as integers and mined by AlgoPrefixSpan
+	private boolean dictionaryEncoding = false;
+	
 	
 	/**
 	 * Default constructor
@@ -154,6 +163,12 @@ public class AlgoPrefixSpanGen<T extends Comparable<T>>{
 			writer = new BufferedWriter(new FileWriter(outputFilePath)); 
 		}
 		
+		// if the database is mined with the integers
+		if(dictionaryEncoding){
+			prefixSpanEncoded(database);
+			return;
+		}
+		
 		// We have to scan the database to find all frequent sequential patterns of size 1.
 		// We note the sequences in which the items appear.
 		Map<T, Set<Integer>> mapSequenceID = findSequencesContainingItems(database);
@@ -202,6 +217,37 @@ public class AlgoPrefixSpanGen<T extends Comparable<T>>{
 		}		
 	}
 	
+	/**
+	 * Mine a sequence database by encoding its items as integers with an ItemDictionary
+	 * and running AlgoPrefixSpan on the encoded database. The patterns found are decoded
+	 * and saved as the patterns found by prefixSpan().
+	 * @param database a sequence database
+	 * @throws IOException exception if an error while writing the output file
+	 */
+	private void prefixSpanEncoded(SequenceDatabaseGen<T> database) throws IOException{
+		final ItemDictionary<T> dictionary = new ItemDictionary<T>(database);
+		CompactSequenceDatabase encodedDatabase = dictionary.encode(database);
+		
+		AlgoPrefixSpan algorithm = new AlgoPrefixSpan();
+		algorithm.setMaximumPatternLength(maximumPatternLength);
+		algorithm.runAlgorithm(encodedDatabase, minsuppAbsolute, new PatternSink() {
+			@Override
+			public void savePattern(SequentialPattern pattern) throws IOException {
+				// decode the items of the pattern
+				SequentialPatternGen<T> decodedPattern = new SequentialPatternGen<T>();
+				for(Itemset itemset : pattern.getItemsets()){
+					ItemsetGen<T> decodedItemset = new ItemsetGen<T>();
+					for(Integer item : itemset.getItems()){
+						decodedItemset.addItem(dictionary.getItem(item));
+					}
+					decodedPattern.addItemset(decodedItemset);
+				}
+				decodedPattern.setSequenceIDs(pattern.getSequenceIDs());
+				AlgoPrefixSpanGen.this.savePattern(decodedPattern);
+			}
+		});
+	}
+	
 	/**
 	 * This method saves a sequential pattern to the output file or
 	 * in memory, depending on if the user provided an output file path or not
@@ -545,6 +591,19 @@ public class AlgoPrefixSpanGen<T extends Comparable<T>>{
 		this.showSequenceIdentifiers = showSequenceIdentifiers;
 	}
 	
+	/**
+	 * Set if the database should be encoded as integers before being mined. If true, the 
+	 * items are encoded once with an ItemDictionary (the ids preserving the order of the items), 
+	 * the encoded database is mined by AlgoPrefixSpan, and the patterns found are decoded 
+	 * when they are saved. The patterns are the same, but they may be found in another order.
+	 * This is much faster than comparing the items during the search, but requires the 
+	 * methods equals() and hashCode() of the items to be consistent with compareTo().
+	 * @param dictionaryEncoding true to encode the database as integers
+	 */
+	public void setDictionaryEncoding(boolean dictionaryEncoding) {
+		this.dictionaryEncoding = dictionaryEncoding;
+	}
+	
 	//=================================================================
 	
 	/**
@@ -1,6 +1,11 @@
 package spmf.extension.algorithm.seqgen;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -14,6 +19,7 @@ import spmf.extension.input.sequence_db_generic.SequenceDatabaseGen;
 import spmf.extension.input.sequence_db_generic.SequenceGen;
 import spmf.extension.patterns.itemset_list_generic.ItemsetGen;
 import spmf.extension.prefixspan.JSPatternGen;
+import ca.pfv.spmf.tools.ParallelGzipOutputStream;
 
 
 public class AlgoPrefixSpanJSGen<T extends Comparable<T>> {
@@ -49,6 +55,29 @@ public class AlgoPrefixSpanJSGen<T extends Comparable<T>> {
 		}
 	}
 	
+	/**
+	 * Save the patterns found by prefixSpanJS() to a file, one pattern per line.
+	 * @param outputFilePath the path of the output file
+	 * @param compressionThreads the number of threads compressing the file with gzip
+	 *   (0 for a file that is not compressed)
+	 * @throws IOException exception if an error while writing the file
+	 */
+	public void saveResult(String outputFilePath, int compressionThreads) throws IOException{
+		OutputStream out = new FileOutputStream(outputFilePath);
+		if(compressionThreads > 0){
+			out = new ParallelGzipOutputStream(out, compressionThreads);
+		}
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		try{
+			for(JSPatternGen<T> pattern : patterns){
+				writer.write(pattern.toString());
+				writer.newLine();
+			}
+		}finally{
+			writer.close();
+		}
+	}
+	
 	/**
 	 * Mine JS with prefixSpan. 
 	 * Sequences of the same ID from left and right, and tag[ID] form <X|Y>(tag).
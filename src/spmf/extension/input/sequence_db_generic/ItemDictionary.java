@@ -0,0 +1,125 @@
+package spmf.extension.input.sequence_db_generic;
+/* Copyright (c) 2008-2013 Philippe Fournier-Viger
+*
+* This file is part of the SPMF DATA MINING SOFTWARE
+* (http://www.philippe-fournier-viger.com/spmf).
+*
+* SPMF is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+*
+* SPMF is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License along with
+* SPMF. If not, see <http://www.gnu.org/licenses/>.
+*/
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.pfv.spmf.input.sequence_database_list_integers.CompactSequenceDatabase;
+
+/**
+ * A dictionary encoding the items of a generic sequence database as integers, so that the
+ * database can be mined by the algorithms working on integers (such as AlgoPrefixSpan on a
+ * CompactSequenceDatabase). The ids preserve the order of the items: the id of an item is its
+ * rank among the distinct items of the database (0 for the smallest item), and the items that
+ * are equal according to compareTo() have the same id. Thus, the itemsets of the encoded
+ * database are sorted as in the generic database, and the patterns found are the same.
+ * <br/><br/>
+ * The items are looked up in a hash map while the database is encoded, so the comparisons
+ * between items are only done once, to sort the distinct items.
+ *
+ * @see SequenceDatabaseGen
+ * @see CompactSequenceDatabase
+ */
+public class ItemDictionary<T extends Comparable<T>> {
+
+	// the id of each distinct item
+	private final Map<T, Integer> ids = new HashMap<T, Integer>();
+	// the item of each id
+	private final List<T> items = new ArrayList<T>();
+
+	/**
+	 * Create the dictionary of the items of a sequence database.
+	 * @param database the sequence database
+	 */
+	public ItemDictionary(SequenceDatabaseGen<T> database) {
+		// find the distinct items
+		List<T> distinctItems = new ArrayList<T>();
+		for(SequenceGen<T> sequence : database.getSequences()){
+			for(List<T> itemset : sequence.getItemsets()){
+				for(T item : itemset){
+					if(!ids.containsKey(item)){
+						ids.put(item, -1);
+						distinctItems.add(item);
+					}
+				}
+			}
+		}
+		// give the ids in the order of the items
+		Collections.sort(distinctItems);
+		for(T item : distinctItems){
+			if(items.isEmpty() || items.get(items.size() - 1).compareTo(item) != 0){
+				items.add(item);
+			}
+			ids.put(item, items.size() - 1);
+		}
+	}
+
+	/**
+	 * Get the id of an item.
+	 * @param item the item
+	 * @return the id, or -1 if the item is not in the dictionary
+	 */
+	public int getId(T item) {
+		Integer id = ids.get(item);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the item of an id.
+	 * @param id the id
+	 * @return the item (the first item of the database with this id, if several items are equal)
+	 */
+	public T getItem(int id) {
+		return items.get(id);
+	}
+
+	/**
+	 * Get the number of ids.
+	 * @return the number of distinct items
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Encode a sequence database with this dictionary. The sequences keep their ids.
+	 * @param database the sequence database (its items must be in this dictionary)
+	 * @return the encoded database
+	 */
+	public CompactSequenceDatabase encode(SequenceDatabaseGen<T> database) {
+		CompactSequenceDatabase encoded = new CompactSequenceDatabase();
+		for(SequenceGen<T> sequence : database.getSequences()){
+			for(List<T> itemset : sequence.getItemsets()){
+				for(T item : itemset){
+					Integer id = ids.get(item);
+					if(id == null){
+						throw new IllegalArgumentException("The item " + item + " is not in the dictionary");
+					}
+					encoded.addItem(id);
+				}
+				encoded.endItemset();
+			}
+			encoded.endSequence(sequence.getId());
+		}
+		encoded.trimToSize();
+		return encoded;
+	}
+}
@@ -20,12 +20,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import ca.pfv.spmf.tools.GzipDetectingInputStream;
 import spmf.extension.prefixspan.StringParsable;
 
 
@@ -44,41 +50,72 @@ public class SequenceDatabaseGen<T extends Comparable<T>> {
 
 	/**
 	 * Method to load a sequence database from a text file in SPMF format.
+	 * The file may be compressed with gzip (see loadStream()).
 	 * @param path  the input file path.
 	 * @throws IOException exception if error while reading the file.
 	 */
 	public void loadFile(String path, StringParsable<T> parser) throws IOException {
-		String thisLine; // variable to read each line.
-		BufferedReader myInput = null;
+		InputStream fin = null;
 		try {
-			FileInputStream fin = new FileInputStream(new File(path));
-			myInput = new BufferedReader(new InputStreamReader(fin));
-			// for each line until the end of the file
-			while ((thisLine = myInput.readLine()) != null) {
-				// if the line is not a comment, is not empty or is not other
-				// kind of metadata
-				if (thisLine.isEmpty() == false &&
-						thisLine.charAt(0) != '#' && thisLine.charAt(0) != '%'
-						&& thisLine.charAt(0) != '@') {
-					// split this line according to spaces and process the line
-
-					addSequence(thisLine.split(" "), parser);
-				}
-			}
+			fin = new FileInputStream(new File(path));
+			loadStream(fin, parser);
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
-			if (myInput != null) {
-				myInput.close();
+			if (fin != null) {
+				fin.close();
 			}
 		}
 	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a stream, such as System.in
+	 * or the output of another process. If the data is compressed with gzip, it is detected
+	 * and decompressed. The lines are parsed as they are read, so that the database is
+	 * loaded while the data is being produced. The stream is not closed.
+	 * Each distinct token is parsed once, so that the equal items are the same object.
+	 * Unlike loadFile(), an error while reading or parsing the data is thrown.
+	 * @param in  the stream.
+	 * @param parser  the parser of the items.
+	 * @throws IOException exception if error while reading the stream.
+	 */
+	public void loadStream(InputStream in, StringParsable<T> parser) throws IOException {
+		String thisLine; // variable to read each line.
+		BufferedReader myInput = new BufferedReader(new InputStreamReader(new GzipDetectingInputStream(in)));
+		// the value of each distinct token (each token is parsed once, and equal items share the same object)
+		Map<String, T> parsedTokens = new HashMap<String, T>();
+		// for each line until the end of the file
+		while ((thisLine = myInput.readLine()) != null) {
+			// if the line is not a comment, is not empty or is not other
+			// kind of metadata
+			if (thisLine.isEmpty() == false &&
+					thisLine.charAt(0) != '#' && thisLine.charAt(0) != '%'
+					&& thisLine.charAt(0) != '@') {
+				// split this line according to spaces and process the line
+
+				addSequence(thisLine.split(" "), parser, parsedTokens);
+			}
+		}
+	}
+
+	/**
+	 * Method to load a sequence database in SPMF format from a channel (see loadStream()).
+	 * The channel is not closed.
+	 * @param channel  the channel.
+	 * @param parser  the parser of the items.
+	 * @throws IOException exception if error while reading the channel.
+	 */
+	public void loadChannel(ReadableByteChannel channel, StringParsable<T> parser) throws IOException {
+		loadStream(Channels.newInputStream(channel), parser);
+	}
 	
 	/**
 	 * Method to process a line from the input file
 	 * @param tokens A list of tokens from the line (which were separated by spaces in the original file).
+	 * @param parser the parser of the items.
+	 * @param parsedTokens the value of the tokens already parsed (updated with the new tokens).
 	 */
-	void addSequence(String[] tokens, StringParsable<T> parser) { 
+	void addSequence(String[] tokens, StringParsable<T> parser, Map<String, T> parsedTokens) { 
 		// create a new Sequence to store the sequence
 		SequenceGen<T> sequence = new SequenceGen<T>(sequences.size());
 		// create a list of strings for the first itemset.
@@ -106,9 +143,14 @@ public class SequenceDatabaseGen<T extends Comparable<T>> {
 				sequences.add(sequence);
 			} else { 
 				// otherwise it is an item.
-				// we parse it as an integer and add it to 
+				// we parse it (if it was not already parsed) and add it to 
 				// the current itemset.
-				itemset.add(parser.parse(token));
+				T item = parsedTokens.get(token);
+				if (item == null) {
+					item = parser.parse(token);
+					parsedTokens.put(token, item);
+				}
+				itemset.add(item);
 			}
 		}
 	}
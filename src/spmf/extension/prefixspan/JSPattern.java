@@ -3,6 +3,7 @@ package spmf.extension.prefixspan;
 import java.util.Set;
 
 import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.SequentialPattern;
+import ca.pfv.spmf.algorithms.sequentialpatterns.BIDE_and_prefixspan.SidSet;
 
 public class JSPattern {
 
@@ -13,14 +14,14 @@ public class JSPattern {
 	 */
 	private SequentialPattern left,right;
 	private int tag;
-	private Set<Integer> sequencesIds;
+	private SidSet sequencesIds;
 	
 	public JSPattern(SequentialPattern seqLeft, SequentialPattern seqRight, int tag,
 			Set<Integer> seqIds){
 		left = seqLeft;
 		right = seqRight;
 		this.tag = tag;
-		sequencesIds = seqIds;
+		sequencesIds = SidSet.valueOf(seqIds);
 	}
 	
 	/**
@@ -31,7 +32,7 @@ public class JSPattern {
 	public JSPattern(JSPattern rootPattern, SequentialPattern seqLeft, SequentialPattern seqRight,
 			Set<Integer> seqIds){
 		tag = rootPattern.tag;
-		sequencesIds = seqIds;
+		sequencesIds = SidSet.valueOf(seqIds);
 		
 		if(seqLeft != null){
 			left = seqLeft;
@@ -60,7 +61,7 @@ public class JSPattern {
 		return right;
 	}
 	
-	public Set<Integer> getSequenceIds(){
+	public SidSet getSequenceIds(){
 		return sequencesIds;
 	}
 	